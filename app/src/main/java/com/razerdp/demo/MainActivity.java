@@ -1,12 +1,7 @@
 package com.razerdp.demo;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.PixelFormat;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
@@ -58,14 +53,14 @@ public class MainActivity extends AppCompatActivity {
                 /**
                  * not done below!
                  */
-                .addData(new SimplePieInfo(0.11943538617599236, getColor("FF446767")).setLabel(resourceToBitmap(R.mipmap.ic_test_1)), true)
-                .addData(new SimplePieInfo(0.41780274681129415, getColor("FFFFD28C"),"测试一下~").setLabel(resourceToBitmap(R.mipmap.ic_test_2)), false)
-                .addData(new SimplePieInfo(0.722165651192247, getColor("FFbb76b4")).setLabel(resourceToBitmap(R.mipmap.ic_test_3)), true)
+                .addData(new SimplePieInfo(0.11943538617599236, getColor("FF446767")).setLabel(R.mipmap.ic_test_1), true)
+                .addData(new SimplePieInfo(0.41780274681129415, getColor("FFFFD28C"),"测试一下~").setLabel(R.mipmap.ic_test_2), false)
+                .addData(new SimplePieInfo(0.722165651192247, getColor("FFbb76b4")).setLabel(R.mipmap.ic_test_3), true)
 //                .addData(new SimplePieInfo(0.11943538617599236, getColor("FF446767")), true)
 //                .addData(new SimplePieInfo(0.41780274681129415, getColor("FFFFD28C")), true)
 //                .addData(new SimplePieInfo(0.722165651192247, getColor("FFbb76b4")), true)
-                .addData(new SimplePieInfo(0.9184314356136125, getColor("FFFFD28C"), "长文字test").setLabel(resourceToBitmap(R.mipmap.ic_test_4)), false)
-                .addData(new SimplePieInfo(0.6028910840057398, getColor("ff2bbc80")).setLabel(resourceToBitmap(R.mipmap.ic_test_5)), true)
+                .addData(new SimplePieInfo(0.9184314356136125, getColor("FFFFD28C"), "长文字test").setLabel(R.mipmap.ic_test_4), false)
+                .addData(new SimplePieInfo(0.6028910840057398, getColor("ff2bbc80")).setLabel(R.mipmap.ic_test_5), true)
                 .addData(new SimplePieInfo(0.6449620647212785, getColor("ff8be8ff")), true)
                 .addData(new SimplePieInfo(0.058853315195452116, getColor("fffa734d")), true)
                 .addData(new SimplePieInfo(0.6632297717331086, getColor("ff957de0")), true)
@@ -118,25 +113,6 @@ public class MainActivity extends AppCompatActivity {
 
     }
 
-    private Bitmap resourceToBitmap(int resid) {
-        Drawable drawable = getResources().getDrawable(resid);
-        if (drawable instanceof BitmapDrawable) {
-            return ((BitmapDrawable) drawable).getBitmap();
-        } else {
-            int w = drawable.getIntrinsicWidth();
-            int h = drawable.getIntrinsicHeight();
-            Bitmap.Config config =
-                    drawable.getOpacity() != PixelFormat.OPAQUE ? Bitmap.Config.ARGB_8888
-                            : Bitmap.Config.RGB_565;
-            Bitmap bitmap = Bitmap.createBitmap(w, h, config);
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, w, h);
-            drawable.draw(canvas);
-
-            return bitmap;
-        }
-    }
-
     private int randomColor() {
         int red = random.nextInt(255);
         int green = random.nextInt(255);
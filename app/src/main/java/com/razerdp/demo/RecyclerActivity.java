@@ -16,6 +16,7 @@ import com.razerdp.animatedpieview.R;
 import com.razerdp.popup.PopupSetting;
 import com.razerdp.widget.animatedpieview.AnimatedPieView;
 import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
+import com.razerdp.widget.animatedpieview.PieLayoutPrefetcher;
 import com.razerdp.widget.animatedpieview.callback.OnPieSelectListener;
 import com.razerdp.widget.animatedpieview.data.IPieInfo;
 import com.razerdp.widget.animatedpieview.data.SimplePieInfo;
@@ -116,6 +117,8 @@ public class RecyclerActivity extends AppCompatActivity implements View.OnClickL
 
 
     private class InnerAdapter extends RecyclerView.Adapter<InnerViewHolder> {
+        //提前计算布局的数量
+        private static final int PREFETCH_COUNT = 2;
         private List<AnimatedPieViewConfig> mConfigs;
 
         public InnerAdapter(List<AnimatedPieViewConfig> configs) {
@@ -130,6 +133,20 @@ public class RecyclerActivity extends AppCompatActivity implements View.OnClickL
         @Override
         public void onBindViewHolder(InnerViewHolder holder, int position) {
             holder.bindData(mConfigs.get(position));
+            prefetch(holder.pie, position);
+        }
+
+        /**
+         * 在后台为即将出现的位置计算布局，绑定时直接加载
+         */
+        private void prefetch(AnimatedPieView pie, int position) {
+            final int width = pie.getWidth() - pie.getPaddingLeft() - pie.getPaddingRight();
+            final int height = pie.getHeight() - pie.getPaddingTop() - pie.getPaddingBottom();
+            if (width <= 0 || height <= 0) return;
+            PieLayoutPrefetcher prefetcher = PieLayoutPrefetcher.getInstance(RecyclerActivity.this);
+            for (int i = position + 1; i <= position + PREFETCH_COUNT && i < mConfigs.size(); i++) {
+                prefetcher.prefetchAsync(mConfigs.get(i), width, height);
+            }
         }
 
         @Override
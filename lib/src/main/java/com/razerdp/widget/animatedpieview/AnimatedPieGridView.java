@@ -0,0 +1,189 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.razerdp.widget.animatedpieview.render.PieGridRender;
+import com.razerdp.widget.animatedpieview.utils.UIUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>在一个View里按网格排列多个甜甜圈，所有甜甜圈在同一次onDraw中绘制，共用缓存、动画计时器和点击索引。
+ * 适用于需要同时展示大量小甜甜圈的概览页面，开销只相当于一个View
+ * <p>
+ * <h3>EN:</h3>Lays out many pies in a grid inside a single view.All pies are drawn in one onDraw and share caches,
+ * the animation ticker and the hit-test index.It is designed for overview screens with hundreds of small pies
+ * which should cost a single view's worth of overhead.
+ * <p>
+ * 网格中的甜甜圈只绘制扇形，不绘制指示线和文字
+ */
+public class AnimatedPieGridView extends View {
+    protected final String TAG = this.getClass().getSimpleName();
+
+    private final List<AnimatedPieViewConfig> mConfigs = new ArrayList<>();
+    private PieGridRender mGridRender;
+    private final Rect mVisibleRect = new Rect();
+    //外层容器滚动时更新可见区域，硬件加速下滚动不会重新调用onDraw
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (updateViewport()) {
+                invalidate();
+            }
+        }
+    };
+
+    public AnimatedPieGridView(Context context) {
+        this(context, null);
+    }
+
+    public AnimatedPieGridView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public AnimatedPieGridView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initView(context, attrs);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public AnimatedPieGridView(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        initView(context, attrs);
+    }
+
+    private void initView(Context context, AttributeSet attrs) {
+        mGridRender = new PieGridRender(this);
+    }
+
+    //-----------------------------------------config-----------------------------------------
+
+    public AnimatedPieGridView columnCount(int columnCount) {
+        mGridRender.setColumnCount(columnCount);
+        requestLayout();
+        return this;
+    }
+
+    public AnimatedPieGridView cellSpacing(int cellSpacing) {
+        mGridRender.setCellSpacing(cellSpacing);
+        requestLayout();
+        return this;
+    }
+
+    public AnimatedPieGridView addConfig(AnimatedPieViewConfig config) {
+        if (config != null) {
+            mConfigs.add(config);
+        }
+        return this;
+    }
+
+    public AnimatedPieGridView addConfigs(List<AnimatedPieViewConfig> configs) {
+        if (configs != null) {
+            mConfigs.addAll(configs);
+        }
+        return this;
+    }
+
+    public AnimatedPieGridView clearConfigs() {
+        mConfigs.clear();
+        return this;
+    }
+
+    public List<AnimatedPieViewConfig> getConfigs() {
+        return mConfigs;
+    }
+
+    /**
+     * <h3>CN:</h3>使用当前的所有config重新准备并播放
+     * <p>
+     * <h3>EN:</h3>Prepare and replay all pies with current configs.
+     */
+    public void start() {
+        for (AnimatedPieViewConfig config : mConfigs) {
+            config.publishDatas();
+        }
+        mGridRender.setConfigs(mConfigs);
+        mGridRender.prepare();
+        requestLayout();
+        invalidate();
+    }
+
+    //-----------------------------------------measure & draw-----------------------------------------
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? UIUtil.dip2px(getContext(), 300f)
+                : MeasureSpec.getSize(widthMeasureSpec);
+        int height;
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            height = MeasureSpec.getSize(heightMeasureSpec);
+        } else {
+            //高度由行数决定
+            height = mGridRender.measureContentHeight(width - getPaddingLeft() - getPaddingRight())
+                    + getPaddingTop() + getPaddingBottom();
+            if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.AT_MOST) {
+                height = Math.min(height, MeasureSpec.getSize(heightMeasureSpec));
+            }
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mGridRender.onSizeChanged(w, h, getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        updateViewport();
+        mGridRender.draw(canvas);
+    }
+
+    /**
+     * @return 是否需要重绘
+     */
+    private boolean updateViewport() {
+        //getLocalVisibleRect已经包含了自身的滚动偏移
+        if (getLocalVisibleRect(mVisibleRect)) {
+            return mGridRender.setViewport(mVisibleRect.top, mVisibleRect.bottom);
+        }
+        mGridRender.clearViewport();
+        return false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        ViewTreeObserver observer = getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(mScrollChangedListener);
+        }
+        //不可见时没有必要继续动画，直接跳到最后一帧
+        mGridRender.finishAnimation();
+        super.onDetachedFromWindow();
+    }
+
+    //-----------------------------------------touch-----------------------------------------
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return mGridRender.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+}
@@ -0,0 +1,353 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.Nullable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.widget.OverScroller;
+
+import com.razerdp.widget.animatedpieview.render.PieChartRender;
+import com.razerdp.widget.animatedpieview.utils.UIUtil;
+
+/**
+ * <h3>CN:</h3>与{@link AnimatedPieView}绑定的图例，只绘制可见的行，数据量再大开销也只与可见行数相关。
+ * 描述文字和颜色直接使用甜甜圈格式化和测量的结果，点击行按照下标选中对应的扇形，点击甜甜圈时图例滚动到对应的行
+ * <p>
+ * <h3>EN:</h3>Legend bound to an {@link AnimatedPieView}.Only visible rows are drawn, so the cost only depends on the visible row count.
+ * Descriptions and colors come straight from the pie's formatting and measuring results.
+ * Tapping a row selects the slice by index, and selecting a slice on the pie scrolls the legend to its row.
+ */
+public class AnimatedPieLegendView extends View {
+    protected final String TAG = this.getClass().getSimpleName();
+
+    private static final int DEFAULT_VISIBLE_ROWS = 6;
+    private static final int SCROLL_DURATION = 250;
+
+    private AnimatedPieView mPieView;
+    private PieChartRender mRender;
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mSwatchPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mHighlightPaint = new Paint();
+    private int mRowPadding;
+    private int mSwatchSize;
+    private int mSwatchMargin;
+    private int mRowHeight;
+    private float mTextBaseline;
+    private int mSliceCount;
+
+    private OverScroller mScroller;
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private float mDownY;
+    private float mLastY;
+    private boolean mDragging;
+
+    private final PieChartRender.OnSliceListener mSliceListener = new PieChartRender.OnSliceListener() {
+        @Override
+        public void onSlicesChanged() {
+            //可能在渲染线程回调
+            post(mSyncAction);
+        }
+
+        @Override
+        public void onSliceSelected(int index, boolean selected) {
+            if (index >= 0 && selected) {
+                scrollToRow(index);
+            }
+            invalidate();
+        }
+    };
+
+    private final Runnable mSyncAction = new Runnable() {
+        @Override
+        public void run() {
+            syncSlices();
+        }
+    };
+
+    public AnimatedPieLegendView(Context context) {
+        this(context, null);
+    }
+
+    public AnimatedPieLegendView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public AnimatedPieLegendView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initView(context);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public AnimatedPieLegendView(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        initView(context);
+    }
+
+    private void initView(Context context) {
+        mScroller = new OverScroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mRowPadding = UIUtil.dip2px(context, 6);
+        mSwatchSize = UIUtil.dip2px(context, 10);
+        mSwatchMargin = UIUtil.dip2px(context, 8);
+        mTextPaint.setColor(Color.DKGRAY);
+        mHighlightPaint.setColor(0x14000000);
+        setTextSize(UIUtil.sp2px(context, 14));
+    }
+
+    /**
+     * postInvalidateOnAnimation是API 16才有的方法，低版本退回postInvalidate
+     */
+    private void postInvalidateNextFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postInvalidateOnAnimation();
+        } else {
+            postInvalidate();
+        }
+    }
+
+    //-----------------------------------------config-----------------------------------------
+
+    /**
+     * <h3>CN:</h3>绑定甜甜圈，传入null解除绑定。图例的字号跟随甜甜圈config的字号，以便直接使用甜甜圈测量的文字宽度
+     * <p>
+     * <h3>EN:</h3>Bind to a pie, null to unbind.The legend follows the text size of the pie's config,
+     * so that the text widths measured by the pie can be reused.
+     */
+    public AnimatedPieLegendView bind(@Nullable AnimatedPieView pieView) {
+        if (mRender != null) {
+            mRender.setOnSliceListener(null);
+        }
+        mPieView = pieView;
+        mRender = pieView == null ? null : pieView.getPieChartRender();
+        if (mRender != null) {
+            mRender.setOnSliceListener(mSliceListener);
+        }
+        syncSlices();
+        return this;
+    }
+
+    public AnimatedPieLegendView textColor(@ColorInt int textColor) {
+        mTextPaint.setColor(textColor);
+        invalidate();
+        return this;
+    }
+
+    public AnimatedPieLegendView highlightColor(@ColorInt int highlightColor) {
+        mHighlightPaint.setColor(highlightColor);
+        invalidate();
+        return this;
+    }
+
+    /**
+     * 把对应的行滚动到可见区域
+     */
+    public void scrollToRow(int index) {
+        if (index < 0 || index >= mSliceCount || mRowHeight <= 0) return;
+        final int viewport = getHeight() - getPaddingTop() - getPaddingBottom();
+        final int rowTop = index * mRowHeight;
+        final int scrollY = getScrollY();
+        int target = scrollY;
+        if (rowTop < scrollY) {
+            target = rowTop;
+        } else if (rowTop + mRowHeight > scrollY + viewport) {
+            target = rowTop + mRowHeight - viewport;
+        }
+        if (target == scrollY) return;
+        mScroller.forceFinished(true);
+        mScroller.startScroll(0, scrollY, 0, clampScroll(target) - scrollY, SCROLL_DURATION);
+        postInvalidateNextFrame();
+    }
+
+    private void syncSlices() {
+        final int sliceCount = mRender == null ? 0 : mRender.getSliceCount();
+        AnimatedPieViewConfig config = mPieView == null ? null : mPieView.getConfig();
+        if (config != null && config.getTextSize() > 0 && config.getTextSize() != mTextPaint.getTextSize()) {
+            setTextSize(config.getTextSize());
+        }
+        final boolean countChanged = sliceCount != mSliceCount;
+        mSliceCount = sliceCount;
+        if (countChanged) {
+            requestLayout();
+        }
+        scrollTo(0, clampScroll(getScrollY()));
+        invalidate();
+    }
+
+    private void setTextSize(float textSize) {
+        mTextPaint.setTextSize(textSize);
+        Paint.FontMetrics fontMetrics = mTextPaint.getFontMetrics();
+        final float textHeight = fontMetrics.descent - fontMetrics.ascent;
+        mRowHeight = (int) Math.ceil(Math.max(textHeight, mSwatchSize)) + mRowPadding * 2;
+        mTextBaseline = (mRowHeight - textHeight) / 2 - fontMetrics.ascent;
+    }
+
+    //-----------------------------------------measure & draw-----------------------------------------
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? UIUtil.dip2px(getContext(), 200f)
+                : MeasureSpec.getSize(widthMeasureSpec);
+        int height;
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            height = MeasureSpec.getSize(heightMeasureSpec);
+        } else {
+            //数据较多时只显示若干行，其余的滚动查看
+            height = Math.min(mSliceCount, DEFAULT_VISIBLE_ROWS) * mRowHeight + getPaddingTop() + getPaddingBottom();
+            if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.AT_MOST) {
+                height = Math.min(height, MeasureSpec.getSize(heightMeasureSpec));
+            }
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollTo(0, clampScroll(getScrollY()));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mRender == null || mSliceCount == 0 || mRowHeight <= 0) return;
+        //数据可能在渲染线程被替换，以甜甜圈当前的数量为准
+        final int sliceCount = Math.min(mSliceCount, mRender.getSliceCount());
+        final int scrollY = getScrollY();
+        final int viewport = getHeight() - getPaddingTop() - getPaddingBottom();
+        //只绘制可见的行
+        final int first = Math.max(0, scrollY / mRowHeight);
+        final int last = Math.min(sliceCount - 1, (scrollY + viewport) / mRowHeight);
+        final int left = getPaddingLeft();
+        final int right = getWidth() - getPaddingRight();
+        final float textLeft = left + mSwatchSize + mSwatchMargin;
+        final float textAvailable = right - textLeft;
+        final int highlighted = mRender.getFloatingIndex();
+
+        canvas.save();
+        canvas.clipRect(left, getPaddingTop() + scrollY, right, getPaddingTop() + scrollY + viewport);
+        canvas.translate(0, getPaddingTop());
+        for (int i = first; i <= last; i++) {
+            final int top = i * mRowHeight;
+            if (i == highlighted || mRender.isSelected(i)) {
+                canvas.drawRect(left, top, right, top + mRowHeight, mHighlightPaint);
+            }
+            mSwatchPaint.setColor(mRender.getSliceColor(i));
+            final float swatchTop = top + (mRowHeight - mSwatchSize) / 2f;
+            canvas.drawRect(left, swatchTop, left + mSwatchSize, swatchTop + mSwatchSize, mSwatchPaint);
+
+            String desc = mRender.getSliceDesc(i);
+            if (TextUtils.isEmpty(desc)) continue;
+            //甜甜圈已经测量过的宽度放得下时不再测量
+            final int measuredWidth = mRender.getSliceTextWidth(i);
+            CharSequence text = measuredWidth > 0 && measuredWidth <= textAvailable
+                    ? desc
+                    : TextUtils.ellipsize(desc, mTextPaint, textAvailable, TextUtils.TruncateAt.END);
+            canvas.drawText(text, 0, text.length(), textLeft, top + mTextBaseline, mTextPaint);
+        }
+        canvas.restore();
+    }
+
+    //-----------------------------------------scroll & touch-----------------------------------------
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(0, clampScroll(mScroller.getCurrY()));
+            postInvalidateNextFrame();
+        }
+    }
+
+    private int getMaxScroll() {
+        return Math.max(0, mSliceCount * mRowHeight - (getHeight() - getPaddingTop() - getPaddingBottom()));
+    }
+
+    private int clampScroll(int scrollY) {
+        return Math.max(0, Math.min(scrollY, getMaxScroll()));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mRender == null || mSliceCount == 0) return super.onTouchEvent(event);
+        if (mVelocityTracker == null) mVelocityTracker = VelocityTracker.obtain();
+        mVelocityTracker.addMovement(event);
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                mScroller.forceFinished(true);
+                mDownY = mLastY = event.getY();
+                mDragging = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!mDragging) {
+                    if (Math.abs(event.getY() - mDownY) < mTouchSlop) return true;
+                    mDragging = true;
+                    ViewParent parent = getParent();
+                    if (parent != null) parent.requestDisallowInterceptTouchEvent(true);
+                }
+                scrollTo(0, clampScroll(getScrollY() + (int) (mLastY - event.getY())));
+                mLastY = event.getY();
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                    final int velocity = (int) mVelocityTracker.getYVelocity();
+                    if (Math.abs(velocity) > mMinFlingVelocity) {
+                        mScroller.fling(0, getScrollY(), 0, -velocity, 0, 0, 0, getMaxScroll());
+                        postInvalidateNextFrame();
+                    }
+                } else {
+                    //按照下标直接选中，O(1)
+                    final int row = (int) (event.getY() - getPaddingTop() + getScrollY()) / mRowHeight;
+                    if (row >= 0 && row < mSliceCount && mRender.toggleSlice(row)) {
+                        performClick();
+                        invalidate();
+                    }
+                }
+                recycleVelocityTracker();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                recycleVelocityTracker();
+                return false;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        mDragging = false;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScroller.forceFinished(true);
+        recycleVelocityTracker();
+    }
+}
@@ -0,0 +1,488 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.TextureView;
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Transformation;
+
+import com.razerdp.widget.animatedpieview.manager.PieManager;
+import com.razerdp.widget.animatedpieview.render.PieChartRender;
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <h3>CN:</h3>在独立渲染线程绘制的甜甜圈，适用于数据量大、绘制耗时的甜甜圈，避免阻塞列表滑动等主线程的工作。
+ * 准备、绘制、动画和点击处理都在渲染线程执行，点击事件通过无锁队列交给渲染线程。
+ * 渲染线程只在surface可用期间存在，之前提交的任务会在surface可用后执行
+ * <p>
+ * <h3>EN:</h3>Pie which renders on a dedicated thread.Useful for heavy charts so that main-thread work like list scrolling
+ * will not be blocked.Preparing, drawing, animations and touch handling all run on the render thread,
+ * and touch events are handed off through a lock-free queue.
+ * The render thread only lives while the surface is available, actions posted before that run once it is.
+ * <p>
+ * 注意：config中的回调（比如{@link com.razerdp.widget.animatedpieview.callback.OnPieSelectListener}）会在渲染线程调用
+ */
+public class AnimatedPieTextureView extends TextureView implements IPieView, TextureView.SurfaceTextureListener {
+    protected final String TAG = this.getClass().getSimpleName();
+
+    private volatile AnimatedPieViewConfig mConfig;
+    private PieChartRender mPieChartRender;
+    private PieManager mPieManager;
+
+    private final Object mRenderThreadLock = new Object();
+    private HandlerThread mRenderThread;
+    private Handler mRenderHandler;
+    //已经退出但可能还在处理剩余消息的渲染线程
+    private HandlerThread mRetiredThread;
+    //渲染线程启动之前提交的任务，通过mRenderThreadLock同步
+    private final List<Runnable> mPendingActions = new ArrayList<>();
+
+    //surface的可用状态和绘制互斥
+    private final Object mSurfaceLock = new Object();
+    private boolean isSurfaceAvailable;
+
+    private final ConcurrentLinkedQueue<MotionEvent> mTouchQueue = new ConcurrentLinkedQueue<>();
+    //当前手势是否交给了渲染线程，只在主线程访问
+    private boolean isTouchAccepted;
+    private final AtomicBoolean isFrameScheduled = new AtomicBoolean(false);
+    private Runnable mScheduleFrameRunnable;
+    private Runnable mFrameRunnable;
+    private Object mFrameCallback;
+
+    //以下只在渲染线程访问
+    private Animation mRenderAnimation;
+    private final Transformation mTransformation = new Transformation();
+
+    public AnimatedPieTextureView(Context context) {
+        this(context, null);
+    }
+
+    public AnimatedPieTextureView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public AnimatedPieTextureView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initView(context, attrs);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public AnimatedPieTextureView(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        initView(context, attrs);
+    }
+
+    private void initView(Context context, AttributeSet attrs) {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+        mPieManager = new PieManager(this);
+        mPieChartRender = new PieChartRender(this);
+        mFrameRunnable = new Runnable() {
+            @Override
+            public void run() {
+                isFrameScheduled.set(false);
+                doFrame();
+            }
+        };
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            //渲染线程有自己的Choreographer，按照vsync绘制
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mFrameRunnable.run();
+                }
+            };
+        }
+        mScheduleFrameRunnable = new Runnable() {
+            @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+            @Override
+            public void run() {
+                if (mFrameCallback != null) {
+                    Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+                } else {
+                    mFrameRunnable.run();
+                }
+            }
+        };
+    }
+
+    //-----------------------------------------render thread-----------------------------------------
+
+    /**
+     * 在surface可用时启动，并执行之前提交的任务
+     */
+    private void startRenderThread() {
+        synchronized (mRenderThreadLock) {
+            if (mRenderHandler != null) return;
+            mRenderThread = new HandlerThread(TAG + "#render", Process.THREAD_PRIORITY_DISPLAY);
+            mRenderThread.start();
+            mRenderHandler = new Handler(mRenderThread.getLooper());
+            final HandlerThread retired = mRetiredThread;
+            mRetiredThread = null;
+            if (retired != null) {
+                //等待上一个渲染线程处理完剩余的消息，渲染器同一时间只在一个线程中使用
+                mRenderHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            retired.join();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            for (Runnable action : mPendingActions) {
+                mRenderHandler.post(action);
+            }
+            mPendingActions.clear();
+        }
+    }
+
+    private void quitRenderThread() {
+        synchronized (mRenderThreadLock) {
+            if (mRenderHandler == null) return;
+            final Looper looper = mRenderThread.getLooper();
+            //之前的消息处理完之后再退出
+            mRenderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    looper.quit();
+                }
+            });
+            mRetiredThread = mRenderThread;
+            mRenderHandler = null;
+            mRenderThread = null;
+        }
+        isFrameScheduled.set(false);
+    }
+
+    private void requestFrame() {
+        synchronized (mRenderThreadLock) {
+            //没有surface时不需要绘制，surface可用时会重新请求
+            if (mRenderHandler == null) return;
+            if (isFrameScheduled.compareAndSet(false, true)) {
+                mRenderHandler.post(mScheduleFrameRunnable);
+            }
+        }
+    }
+
+    private void doFrame() {
+        drainTouchEvents();
+        final boolean hasMoreAnimation = stepRenderAnimation();
+        synchronized (mSurfaceLock) {
+            if (isSurfaceAvailable) {
+                Canvas canvas = null;
+                try {
+                    canvas = lockCanvas();
+                    if (canvas != null) {
+                        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                        final int saveCount = canvas.save();
+                        mPieChartRender.draw(canvas);
+                        canvas.restoreToCount(saveCount);
+                    }
+                } catch (Exception e) {
+                    PLog.e("render frame failed : " + PLog.getCrashInfo(e));
+                } finally {
+                    if (canvas != null) {
+                        unlockCanvasAndPost(canvas);
+                    }
+                }
+            }
+        }
+        if (hasMoreAnimation) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * 代替View推进渲染动画
+     */
+    private boolean stepRenderAnimation() {
+        if (mRenderAnimation == null) return false;
+        if (!mRenderAnimation.isInitialized()) {
+            mRenderAnimation.initialize(getWidth(), getHeight(), getWidth(), getHeight());
+        }
+        final boolean more = mRenderAnimation.getTransformation(AnimationUtils.currentAnimationTimeMillis(), mTransformation);
+        if (!more) {
+            mRenderAnimation = null;
+        }
+        return more;
+    }
+
+    private void drainTouchEvents() {
+        MotionEvent event;
+        while ((event = mTouchQueue.poll()) != null) {
+            mPieChartRender.onTouchEvent(event);
+            event.recycle();
+        }
+    }
+
+    //-----------------------------------------surface-----------------------------------------
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        synchronized (mSurfaceLock) {
+            isSurfaceAvailable = true;
+        }
+        startRenderThread();
+        dispatchContentRect(width, height);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        dispatchContentRect(width, height);
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        synchronized (mSurfaceLock) {
+            isSurfaceAvailable = false;
+        }
+        quitRenderThread();
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+
+    }
+
+    private void dispatchContentRect(final int width, final int height) {
+        final int paddingLeft = getPaddingLeft();
+        final int paddingTop = getPaddingTop();
+        final int paddingRight = getPaddingRight();
+        final int paddingBottom = getPaddingBottom();
+        postRenderAction(new Runnable() {
+            @Override
+            public void run() {
+                mPieManager.setChartContentRect(width, height, paddingLeft, paddingTop, paddingRight, paddingBottom);
+                requestFrame();
+            }
+        });
+    }
+
+    //-----------------------------------------visibility-----------------------------------------
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            dispatchPieVisibility(isShown() && getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        dispatchPieVisibility(false);
+        postRenderAction(new Runnable() {
+            @Override
+            public void run() {
+                mPieChartRender.releaseCache();
+                MotionEvent event;
+                while ((event = mTouchQueue.poll()) != null) {
+                    event.recycle();
+                }
+            }
+        });
+        quitRenderThread();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        dispatchPieVisibility(isVisible);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            dispatchPieVisibility(isShown() && getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            dispatchPieVisibility(visibility == VISIBLE && isShown());
+        }
+    }
+
+    private void dispatchPieVisibility(final boolean visible) {
+        if (mPieChartRender == null) return;
+        synchronized (mRenderThreadLock) {
+            //渲染线程已经退出，没有需要暂停的东西
+            if (!visible && mRenderHandler == null) return;
+        }
+        postRenderAction(new Runnable() {
+            @Override
+            public void run() {
+                mPieChartRender.dispatchVisibilityChanged(visible);
+            }
+        });
+    }
+
+    //-----------------------------------------config-----------------------------------------
+
+    public AnimatedPieTextureView applyConfig(AnimatedPieViewConfig config) {
+        //应用config即提交数据，渲染只读取已经发布的数据
+        if (config != null) config.publishDatas();
+        this.mConfig = config;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>使用当前的config重新准备并播放整个甜甜圈
+     * <p>
+     * <h3>EN:</h3>Prepare and replay the whole pie with current config.
+     */
+    public void start() {
+        applyConfig(mConfig);
+        if (mConfig == null) {
+            throw new NullPointerException("config must not be null");
+        }
+        postRenderAction(new Runnable() {
+            @Override
+            public void run() {
+                mPieChartRender.prepare();
+            }
+        });
+    }
+
+    /**
+     * <h3>CN:</h3>应用config，只刷新发生变化的部分（数据变化才会重新播放动画），如果config没有任何变化则什么都不做
+     * <p>
+     * <h3>EN:</h3>Apply config and refresh only what has changed(the animation will replay only if data has changed).
+     * Nothing will happen if the config has not changed.
+     */
+    public void start(AnimatedPieViewConfig config) {
+        applyConfig(config);
+        if (mConfig == null) {
+            throw new NullPointerException("config must not be null");
+        }
+        postRenderAction(new Runnable() {
+            @Override
+            public void run() {
+                mPieChartRender.update();
+            }
+        });
+    }
+
+    //-----------------------------------------touch-----------------------------------------
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        AnimatedPieViewConfig config = mConfig;
+        if (config == null || !config.isCanTouch()) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            //渲染线程异步处理，按下时按照渲染器的状态决定是否接管这次手势
+            synchronized (mRenderThreadLock) {
+                isTouchAccepted = mRenderHandler != null && mPieChartRender.isTouchable();
+            }
+        }
+        if (!isTouchAccepted) {
+            return super.onTouchEvent(event);
+        }
+        //复制一份交给渲染线程，由渲染线程回收
+        mTouchQueue.offer(MotionEvent.obtain(event));
+        requestFrame();
+        if (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL) {
+            isTouchAccepted = false;
+        }
+        return true;
+    }
+
+    //-----------------------------------------IPieView-----------------------------------------
+
+    @Override
+    public PieManager getManager() {
+        return mPieManager;
+    }
+
+    @Override
+    public Context getViewContext() {
+        return getContext();
+    }
+
+    @Override
+    public AnimatedPieViewConfig getConfig() {
+        return mConfig;
+    }
+
+    @Override
+    public View getPieView() {
+        return this;
+    }
+
+    @Override
+    public void onCallInvalidate() {
+        requestFrame();
+    }
+
+    @Override
+    public boolean postRenderAction(Runnable action) {
+        synchronized (mRenderThreadLock) {
+            if (mRenderHandler == null) {
+                mPendingActions.add(action);
+                return true;
+            }
+            return mRenderHandler.post(action);
+        }
+    }
+
+    @Override
+    public boolean removeRenderAction(Runnable action) {
+        synchronized (mRenderThreadLock) {
+            mPendingActions.remove(action);
+            if (mRenderHandler != null) {
+                mRenderHandler.removeCallbacks(action);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void startRenderAnimation(Animation animation) {
+        animation.setStartTime(Animation.START_ON_FIRST_FRAME);
+        mRenderAnimation = animation;
+        requestFrame();
+    }
+
+    @Override
+    public void resumeRenderAnimation(Animation animation) {
+        mRenderAnimation = animation;
+        requestFrame();
+    }
+
+    @Override
+    public void clearRenderAnimation() {
+        if (mRenderAnimation != null && mRenderAnimation.hasStarted() && !mRenderAnimation.hasEnded()) {
+            //与View.clearAnimation一致，回调onAnimationEnd
+            mRenderAnimation.cancel();
+        }
+        mRenderAnimation = null;
+    }
+}
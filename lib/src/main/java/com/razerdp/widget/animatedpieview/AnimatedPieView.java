@@ -213,11 +213,17 @@ import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.animation.Animation;
 
 import com.razerdp.widget.animatedpieview.manager.PieManager;
 import com.razerdp.widget.animatedpieview.render.PieChartRender;
+import com.razerdp.widget.animatedpieview.snapshot.PieSnapshot;
+import com.razerdp.widget.animatedpieview.snapshot.PieTimeline;
 import com.razerdp.widget.animatedpieview.utils.UIUtil;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Created by 大灯泡 on 2017/11/7.
  * <p>
@@ -253,7 +259,6 @@ public class AnimatedPieView extends View implements IPieView {
     }
 
     private void initView(Context context, AttributeSet attrs) {
-        setLayerType(View.LAYER_TYPE_SOFTWARE, null);
         mPieManager = new PieManager(this);
         mPieChartRender = new PieChartRender(this);
     }
@@ -296,21 +301,205 @@ public class AnimatedPieView extends View implements IPieView {
         mPieManager.setChartContentRect(getWidth(), getHeight(), getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
     }
 
+    //-----------------------------------------visibility-----------------------------------------
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            dispatchPieVisibility(isShown() && getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        dispatchPieVisibility(false);
+        mPieChartRender.releaseCache();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        dispatchPieVisibility(isVisible);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            //N以下没有onVisibilityAggregated
+            dispatchPieVisibility(isShown() && getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            dispatchPieVisibility(visibility == VISIBLE && isShown());
+        }
+    }
+
+    private void dispatchPieVisibility(boolean visible) {
+        if (mPieChartRender == null) return;
+        mPieChartRender.dispatchVisibilityChanged(visible);
+    }
+
     public AnimatedPieView applyConfig(AnimatedPieViewConfig config) {
+        //应用config即提交数据，渲染只读取已经发布的数据
+        if (config != null) config.publishDatas();
         this.mConfig = config;
         return this;
     }
 
+    /**
+     * <h3>CN:</h3>使用当前的config重新准备并播放整个甜甜圈
+     * <p>
+     * <h3>EN:</h3>Prepare and replay the whole pie with current config.
+     */
     public void start() {
-        start(mConfig);
+        applyConfig(mConfig);
+        if (mConfig == null) {
+            throw new NullPointerException("config must not be null");
+        }
+        mPieChartRender.prepare();
     }
 
+    /**
+     * <h3>CN:</h3>应用config，只刷新发生变化的部分（数据变化才会重新播放动画），如果config没有任何变化则什么都不做
+     * <p>
+     * <h3>EN:</h3>Apply config and refresh only what has changed(the animation will replay only if data has changed).
+     * Nothing will happen if the config has not changed.
+     */
     public void start(AnimatedPieViewConfig config) {
         applyConfig(config);
         if (mConfig == null) {
             throw new NullPointerException("config must not be null");
         }
-        mPieChartRender.prepare();
+        mPieChartRender.update();
+    }
+
+    /**
+     * <h3>CN:</h3>使用快照（通常由{@link PieSnapshot#map(java.io.File)}映射）中的数据和布局播放甜甜圈，跳过数据遍历和布局计算，
+     * config只提供样式和动画等配置。快照与config的布局配置不一致时使用config中的数据
+     * <p>
+     * <h3>EN:</h3>Play the pie with the datas and layout of a snapshot(usually mapped by {@link PieSnapshot#map(java.io.File)}),
+     * skipping the data walk and layout calculation.Config only provides the style and animation options.
+     * The datas of config are used if the snapshot was laid out with another config.
+     */
+    public void start(PieSnapshot snapshot) {
+        applyConfig(mConfig);
+        if (mConfig == null) {
+            throw new NullPointerException("config must not be null");
+        }
+        mPieChartRender.prepare(snapshot);
+    }
+
+    /**
+     * <h3>CN:</h3>播放时间轴，每个分类对应一个扇形，初始停在第一步。config只提供样式和动画等配置
+     * <p>
+     * <h3>EN:</h3>Show a timeline, one slice per category, starting at the first step.Config only provides the style and animation options.
+     *
+     * @see #playTimeline(long)
+     * @see #seekTimeline(float)
+     */
+    public void start(PieTimeline timeline) {
+        start(timeline, 0);
+    }
+
+    /**
+     * @param position 时间轴位置，范围[0, stepCount - 1]
+     */
+    public void start(PieTimeline timeline, float position) {
+        applyConfig(mConfig);
+        if (mConfig == null) {
+            throw new NullPointerException("config must not be null");
+        }
+        if (timeline == null) {
+            throw new NullPointerException("timeline must not be null");
+        }
+        mPieChartRender.prepare(timeline, position);
+    }
+
+    /**
+     * <h3>CN:</h3>从当前位置播放到时间轴的最后一步，扇形角度和文字位置在相邻两步之间平滑过渡
+     * <p>
+     * <h3>EN:</h3>Play from the current position to the last step.Slice angles and label positions are interpolated between steps.
+     *
+     * @param stepDuration 每一步的时长
+     */
+    public void playTimeline(long stepDuration) {
+        mPieChartRender.playTimeline(stepDuration);
+    }
+
+    /**
+     * <h3>CN:</h3>拖动到时间轴的某个位置（例如跟随SeekBar），会停止正在进行的播放
+     * <p>
+     * <h3>EN:</h3>Scrub to a position of the timeline(e.g. following a SeekBar).Playback in progress will be stopped.
+     */
+    public void seekTimeline(float position) {
+        mPieChartRender.seekTimeline(position);
+    }
+
+    public void stopTimeline() {
+        mPieChartRender.stopTimeline();
+    }
+
+    public boolean isTimelinePlaying() {
+        return mPieChartRender.isTimelinePlaying();
+    }
+
+    public float getTimelinePosition() {
+        return mPieChartRender.getTimelinePosition();
+    }
+
+    /**
+     * <h3>CN:</h3>将当前的数据和布局写入快照
+     * <p>
+     * <h3>EN:</h3>Write the current datas and layout into a snapshot.
+     *
+     * @return false if the pie has not been prepared
+     * @see com.razerdp.widget.animatedpieview.snapshot.PieSnapshotWriter
+     */
+    public boolean writeSnapshot(OutputStream outputStream) throws IOException {
+        return mPieChartRender.writeSnapshot(outputStream);
+    }
+
+    //-----------------------------------------selection-----------------------------------------
+
+    /**
+     * <h3>CN:</h3>多选模式（{@link AnimatedPieViewConfig#SELECTION_MULTIPLE}）下设置扇形的选中状态，不会回调选中监听
+     * <p>
+     * <h3>EN:</h3>Select or deselect a slice in {@link AnimatedPieViewConfig#SELECTION_MULTIPLE} mode.
+     * The select listener will not be called.
+     *
+     * @param index 扇形在数据中的下标
+     */
+    public void setSelected(int index, boolean selected) {
+        mPieChartRender.setSelected(index, selected);
+    }
+
+    /**
+     * 多选模式下选中[from, to)范围内的扇形
+     */
+    public void selectRange(int from, int to) {
+        mPieChartRender.selectRange(from, to);
+    }
+
+    public void selectAll() {
+        mPieChartRender.selectAll();
+    }
+
+    public void clearSelection() {
+        mPieChartRender.clearSelection();
+    }
+
+    public boolean isSelected(int index) {
+        return mPieChartRender.isSelected(index);
+    }
+
+    public int getSelectedCount() {
+        return mPieChartRender.getSelectedCount();
     }
 
     //-----------------------------------------touch-----------------------------------------
@@ -324,6 +513,10 @@ public class AnimatedPieView extends View implements IPieView {
         return mPieManager;
     }
 
+    PieChartRender getPieChartRender() {
+        return mPieChartRender;
+    }
+
     @Override
     public Context getViewContext() {
         return getContext();
@@ -348,6 +541,31 @@ public class AnimatedPieView extends View implements IPieView {
         }
     }
 
+    @Override
+    public boolean postRenderAction(Runnable action) {
+        return post(action);
+    }
+
+    @Override
+    public boolean removeRenderAction(Runnable action) {
+        return removeCallbacks(action);
+    }
+
+    @Override
+    public void startRenderAnimation(Animation animation) {
+        startAnimation(animation);
+    }
+
+    @Override
+    public void resumeRenderAnimation(Animation animation) {
+        setAnimation(animation);
+    }
+
+    @Override
+    public void clearRenderAnimation() {
+        clearAnimation();
+    }
+
     boolean isMainThread() {
         return Looper.getMainLooper().getThread() == Thread.currentThread();
     }
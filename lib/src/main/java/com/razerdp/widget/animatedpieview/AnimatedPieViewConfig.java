@@ -4,20 +4,30 @@ import android.graphics.Paint;
 import android.support.annotation.FloatRange;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 
+import com.razerdp.widget.animatedpieview.callback.OnPieSelectBatchListener;
 import com.razerdp.widget.animatedpieview.callback.OnPieSelectListener;
 import com.razerdp.widget.animatedpieview.data.IPieInfo;
+import com.razerdp.widget.animatedpieview.data.PieColumns;
+import com.razerdp.widget.animatedpieview.data.PieOption;
+import com.razerdp.widget.animatedpieview.utils.PercentFormatter;
 import com.razerdp.widget.animatedpieview.utils.Util;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.text.DecimalFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by 大灯泡 on 2018/2/1.
@@ -50,8 +60,59 @@ public class AnimatedPieViewConfig {
     public static final int ECTOPIC = 0x23;
 
 
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({RESUME_CONTINUE, RESUME_JUMP_TO_END})
+    public @interface ResumeMode {
+    }
+
+    public static final int RESUME_CONTINUE = 0x30;
+    public static final int RESUME_JUMP_TO_END = 0x31;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({SELECTION_SINGLE, SELECTION_MULTIPLE})
+    public @interface SelectionMode {
+    }
+
+    public static final int SELECTION_SINGLE = 0x40;
+    public static final int SELECTION_MULTIPLE = 0x41;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({DISPATCH_SYNC, DISPATCH_NEXT_FRAME, DISPATCH_EXECUTOR})
+    public @interface SelectDispatchMode {
+    }
+
+    public static final int DISPATCH_SYNC = 0x50;
+    public static final int DISPATCH_NEXT_FRAME = 0x51;
+    public static final int DISPATCH_EXECUTOR = 0x52;
+
+    /**
+     * 旋转后不吸附，见{@link #snapAngle(float)}
+     */
+    public static final float SNAP_NONE = Float.NaN;
+
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef(flag = true, value = {CHANGE_NONE, CHANGE_DATA, CHANGE_GEOMETRY, CHANGE_PAINT, CHANGE_TEXT, CHANGE_ANIMATION, CHANGE_PIE_ANIMATION})
+    public @interface ConfigChange {
+    }
+
+    public static final int CHANGE_NONE = 0;
+    public static final int CHANGE_DATA = 0x1;
+    public static final int CHANGE_GEOMETRY = 0x2;
+    public static final int CHANGE_PAINT = 0x4;
+    public static final int CHANGE_TEXT = 0x8;
+    public static final int CHANGE_ANIMATION = 0x10;
+    //入场动画：animatePie、duration、interpolator
+    public static final int CHANGE_PIE_ANIMATION = 0x20;
+    public static final int CHANGE_ALL = CHANGE_DATA | CHANGE_GEOMETRY | CHANGE_PAINT | CHANGE_TEXT | CHANGE_ANIMATION | CHANGE_PIE_ANIMATION;
+
+
     //=============================================================default
 
+    /**
+     * @deprecated DecimalFormat is not thread-safe.Use {@link #getAutoDescFormatter()} instead.
+     */
+    @Deprecated
     public static DecimalFormat sFormateRate = new DecimalFormat("0.##");
     private static final String DEFAULT_AUTO_DESC_FORMAT = "%1$s%%";
     private static final int DEFAULT_STROKE_WIDTH = 80;
@@ -72,6 +133,10 @@ public class AnimatedPieViewConfig {
     private static final int DEFAULT_GUIDE_LINE_WIDTH = 2;
     private static final int DEFAULT_TEXT_MARGIN = 6;
     private static final Interpolator DEFAULT_ANIMATION_INTERPOLATOR = new LinearInterpolator();
+    private static final int DEFAULT_RESUME_MODE = RESUME_CONTINUE;
+    private static final float DEFAULT_MAX_ZOOM = 1000;
+    private static final int DEFAULT_SELECTION_MODE = SELECTION_SINGLE;
+    private static final int DEFAULT_SELECT_DISPATCH_MODE = DISPATCH_SYNC;
 
     //=============================================================option
 
@@ -84,6 +149,7 @@ public class AnimatedPieViewConfig {
     private float floatExpandAngle = DEFAULT_FLOAT_EXPAND_ANGLE;
     private float floatExpandSize = DEFAULT_FLOAT_EXPAND_SIZE;
     private String autoDescStringFormat = DEFAULT_AUTO_DESC_FORMAT;
+    private volatile PercentFormatter autoDescFormatter;
     private boolean autoSize = true;
     private float pieRadius = 0;
     private float pieRadiusRatio = 0;
@@ -94,6 +160,11 @@ public class AnimatedPieViewConfig {
     private boolean canTouch = true;
     private boolean animTouch = true;
     private OnPieSelectListener mSelectListener;
+    private OnPieSelectBatchListener mSelectBatchListener;
+    @SelectDispatchMode
+    private int selectDispatchMode = DEFAULT_SELECT_DISPATCH_MODE;
+    private Executor selectDispatchExecutor;
+    private long selectThrottle = 0;
     @FocusAlpha
     private int focusAlphaType = DEFAULT_FOCUS_ALPHA_TYPE;
     private int focusAlpha = DEFAULT_FOCUS_ALPHA;
@@ -105,19 +176,37 @@ public class AnimatedPieViewConfig {
     private boolean cubicGuide = false;
     private int textMargin = DEFAULT_TEXT_MARGIN;
     private Interpolator animationInterpolator = DEFAULT_ANIMATION_INTERPOLATOR;
+    @ResumeMode
+    private int resumeMode = DEFAULT_RESUME_MODE;
+    private boolean labelAtlas = false;
+    private boolean adaptiveQuality = false;
+    private boolean rotatable = false;
+    private float snapAngle = SNAP_NONE;
+    private boolean zoomable = false;
+    private float maxZoom = DEFAULT_MAX_ZOOM;
+    @SelectionMode
+    private int selectionMode = DEFAULT_SELECTION_MODE;
 
 
     private boolean strokeMode = true;
 
 
-    private List<Pair<IPieInfo, Boolean>> mDatas;
+    //双缓冲：写入方只修改后台缓冲区，由写入方提交（publishDatas）时通过一次volatile写发布不可变的PublishedDatas，读取方不需要加锁
+    private final Object mDataLock = new Object();
+    //以下通过mDataLock同步访问
+    private final ArrayList<Pair<IPieInfo, Boolean>> mBackDatas;
+    //按列存储的数据，与mBackDatas互斥
+    private PieColumns mBackColumns;
+    private boolean mDataDirty;
+    private volatile PublishedDatas mPublished;
 
     public AnimatedPieViewConfig() {
         this(null);
     }
 
     public AnimatedPieViewConfig(AnimatedPieViewConfig config) {
-        mDatas = new ArrayList<>();
+        mBackDatas = new ArrayList<>();
+        mPublished = PublishedDatas.EMPTY;
         if (config != null) {
             copyFrom(config);
         }
@@ -165,6 +254,9 @@ public class AnimatedPieViewConfig {
     }
 
     public AnimatedPieViewConfig autoDescStringFormat(String autoDescStringFormat) {
+        if (!TextUtils.equals(this.autoDescStringFormat, autoDescStringFormat)) {
+            autoDescFormatter = null;
+        }
         this.autoDescStringFormat = autoDescStringFormat;
         return this;
     }
@@ -278,10 +370,138 @@ public class AnimatedPieViewConfig {
         return this;
     }
 
+    /**
+     * <h3>CN:</h3>甜甜圈不可见时动画会暂停，重新可见时继续播放动画（{@link #RESUME_CONTINUE}）或者直接跳到最后一帧（{@link #RESUME_JUMP_TO_END}）
+     * <h3>EN:</h3>Animations are paused while the pie is invisible.When it becomes visible again,
+     * continue the animation({@link #RESUME_CONTINUE}) or jump to the final frame({@link #RESUME_JUMP_TO_END}).
+     */
+    public AnimatedPieViewConfig resumeMode(@ResumeMode int resumeMode) {
+        this.resumeMode = resumeMode;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>是否把文字和图标预先绘制到一张图集里，动画期间以贴图的方式绘制，适用于标签较多的情况
+     * <h3>EN:</h3>Whether to pre-render labels(text and icon) into a shared atlas bitmap,
+     * so that labels are drawn as bitmap blits during animations.Useful when there are many labels.
+     */
+    public AnimatedPieViewConfig labelAtlas(boolean labelAtlas) {
+        this.labelAtlas = labelAtlas;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>是否根据帧率自动调节动画期间的画质，掉帧时依次关闭抗锯齿、浮起阴影、指示线和文字，最后一帧恢复完整画质。
+     * 开启后省电模式下动画期间不绘制阴影
+     * <h3>EN:</h3>Whether to adapt the quality during animations to the frame rate.When frames are dropped,
+     * anti-aliasing, float shadows, guide lines and labels are turned off one after another,
+     * and the final frame is always drawn at full quality.Shadows are skipped during animations in battery saver mode.
+     */
+    public AnimatedPieViewConfig adaptiveQuality(boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>是否允许拖动和快速滑动来旋转甜甜圈，旋转只作用于绘制，不会重新计算角度和布局
+     * <h3>EN:</h3>Whether the pie can be spun by dragging and flinging.Rotation is applied at draw time only,
+     * angles and layout are never recomputed.
+     */
+    public AnimatedPieViewConfig rotatable(boolean rotatable) {
+        this.rotatable = rotatable;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>旋转停止或者点击选中后，把选中扇形的中线转到该角度（与startAngle同一坐标系，90为正下方），
+     * {@link #SNAP_NONE}代表不吸附
+     * <h3>EN:</h3>After a fling or a selection, rotate the middle of the selected slice to this angle
+     * (same coordinate system as startAngle, 90 is the bottom).{@link #SNAP_NONE} disables snapping.
+     */
+    public AnimatedPieViewConfig snapAngle(float snapAngle) {
+        this.snapAngle = snapAngle;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>是否允许双指缩放，放大后选中角度范围铺满整个圆环，并按缩放程度从聚合金字塔中显示更细的扇形，适用于数据量巨大的情况。
+     * 放大状态下拖动为平移
+     * <h3>EN:</h3>Whether pinch zoom is enabled.A zoomed angular range is expanded to the full ring and finer slices
+     * are revealed from an aggregation pyramid, which is useful for huge datasets.Dragging pans while zoomed.
+     */
+    public AnimatedPieViewConfig zoomable(boolean zoomable) {
+        this.zoomable = zoomable;
+        return this;
+    }
+
+    public AnimatedPieViewConfig maxZoom(float maxZoom) {
+        this.maxZoom = Math.max(1, maxZoom);
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>选择模式，{@link #SELECTION_SINGLE}同一时间只浮起一个扇形，{@link #SELECTION_MULTIPLE}点击切换每个扇形的选中状态，
+     * 可以同时浮起多个扇形。多选模式下不绘制浮起阴影
+     * <h3>EN:</h3>Selection mode.{@link #SELECTION_SINGLE} floats up one slice at a time,
+     * {@link #SELECTION_MULTIPLE} toggles each slice on click so that many slices can float up together.
+     * Float shadows are not drawn in multiple mode.
+     */
+    public AnimatedPieViewConfig selectionMode(@SelectionMode int selectionMode) {
+        this.selectionMode = selectionMode;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>批量的选中回调，配合{@link #selectDispatchMode(int)}和{@link #selectThrottle(long)}使用，适用于多选
+     * <h3>EN:</h3>Batched select callback.Works with {@link #selectDispatchMode(int)} and {@link #selectThrottle(long)},
+     * useful for multiple selection.
+     */
+    public <T extends IPieInfo> AnimatedPieViewConfig selectBatchListener(OnPieSelectBatchListener<T> selectBatchListener) {
+        mSelectBatchListener = selectBatchListener;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>选中事件的分发方式：{@link #DISPATCH_SYNC}在点击处理中直接回调，{@link #DISPATCH_NEXT_FRAME}在下一帧的主线程回调，
+     * {@link #DISPATCH_EXECUTOR}在{@link #selectDispatchExecutor(Executor)}指定的线程池回调（未指定时使用内置的单线程）。
+     * 非同步方式下同一个扇形的多次变化只回调最后的状态
+     * <h3>EN:</h3>How select events are dispatched:{@link #DISPATCH_SYNC} calls back inside touch handling,
+     * {@link #DISPATCH_NEXT_FRAME} on the main thread at the next frame,
+     * {@link #DISPATCH_EXECUTOR} on the executor set by {@link #selectDispatchExecutor(Executor)}(a built-in single thread if not set).
+     * Except for the synchronous mode, repeated changes of a slice are coalesced and only the latest state is delivered.
+     */
+    public AnimatedPieViewConfig selectDispatchMode(@SelectDispatchMode int selectDispatchMode) {
+        this.selectDispatchMode = selectDispatchMode;
+        return this;
+    }
+
+    public AnimatedPieViewConfig selectDispatchExecutor(Executor selectDispatchExecutor) {
+        this.selectDispatchExecutor = selectDispatchExecutor;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>两次选中回调之间的最小间隔（毫秒），间隔内的事件合并后在间隔结束时一起分发
+     * <h3>EN:</h3>Minimum interval between two select callbacks in milliseconds.Events inside the interval are coalesced
+     * and delivered together when it ends.
+     */
+    public AnimatedPieViewConfig selectThrottle(long selectThrottle) {
+        this.selectThrottle = Math.max(0, selectThrottle);
+        return this;
+    }
+
     public AnimatedPieViewConfig copyFrom(AnimatedPieViewConfig config) {
         if (config == null) return this;
-        this.mDatas.clear();
-        this.mDatas.addAll(config.mDatas);
+        //只复制已经发布的数据，发布的数据不可变，可以直接共享
+        final PublishedDatas published = config.mPublished;
+        synchronized (mDataLock) {
+            mBackDatas.clear();
+            //按列的数据不展开成行
+            if (published.columns == null) mBackDatas.addAll(published.datas);
+            mBackColumns = published.columns;
+            mPublished = published;
+            mDataDirty = false;
+        }
         return strokeWidth(config.strokeWidth)
                 .startAngle(config.startAngle)
                 .duration(config.duration)
@@ -301,6 +521,10 @@ public class AnimatedPieViewConfig {
                 .canTouch(config.canTouch)
                 .animOnTouch(config.animTouch)
                 .selectListener(config.mSelectListener)
+                .selectBatchListener(config.mSelectBatchListener)
+                .selectDispatchMode(config.selectDispatchMode)
+                .selectDispatchExecutor(config.selectDispatchExecutor)
+                .selectThrottle(config.selectThrottle)
                 .floatExpandSize(config.floatExpandSize)
                 .focusAlphaType(config.focusAlphaType)
                 .focusAlpha(config.focusAlpha)
@@ -310,7 +534,15 @@ public class AnimatedPieViewConfig {
                 .cubicGuide(config.cubicGuide)
                 .guideLineWidth(config.guideLineWidth)
                 .textMargin(config.textMargin)
-                .interpolator(config.animationInterpolator);
+                .interpolator(config.animationInterpolator)
+                .resumeMode(config.resumeMode)
+                .labelAtlas(config.labelAtlas)
+                .adaptiveQuality(config.adaptiveQuality)
+                .rotatable(config.rotatable)
+                .snapAngle(config.snapAngle)
+                .zoomable(config.zoomable)
+                .maxZoom(config.maxZoom)
+                .selectionMode(config.selectionMode);
     }
 
     //=============================================================data
@@ -323,23 +555,202 @@ public class AnimatedPieViewConfig {
             Log.e(TAG, "addData: pieinfo is null,abort add data");
             return this;
         }
-        mDatas.add(Pair.create(info, autoDesc));
+        synchronized (mDataLock) {
+            dropColumns();
+            mBackDatas.add(Pair.create(info, autoDesc));
+            mDataDirty = true;
+        }
         return this;
     }
 
+    /**
+     * <h3>CN:</h3>在同一次加锁中添加多个数据，读取方不会看到只添加了一部分的状态
+     * <p>
+     * <h3>EN:</h3>Add several datas under one lock, readers never observe a partially added batch.
+     */
+    public AnimatedPieViewConfig addDatas(@NonNull Collection<? extends IPieInfo> infos, boolean autoDesc) {
+        synchronized (mDataLock) {
+            dropColumns();
+            for (IPieInfo info : infos) {
+                if (info == null) continue;
+                mBackDatas.add(Pair.create(info, autoDesc));
+            }
+            mDataDirty = true;
+        }
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>替换所有数据
+     * <p>
+     * <h3>EN:</h3>Replace all datas.
+     */
+    public AnimatedPieViewConfig setDatas(@NonNull Collection<? extends IPieInfo> infos, boolean autoDesc) {
+        synchronized (mDataLock) {
+            mBackDatas.clear();
+            return addDatas(infos, autoDesc);
+        }
+    }
+
+    public AnimatedPieViewConfig clearDatas() {
+        synchronized (mDataLock) {
+            mBackDatas.clear();
+            mBackColumns = null;
+            mDataDirty = true;
+        }
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>使用按列存储的数据替换所有数据，prepare时直接读取数组，不会为每个扇形创建IPieInfo和Pair。
+     * 之后再调用{@link #addData(IPieInfo)}等方法会丢弃按列的数据
+     * <p>
+     * <h3>EN:</h3>Replace all datas with column-oriented datas whose arrays are read directly while preparing,
+     * without creating an IPieInfo and a Pair per slice.Calling {@link #addData(IPieInfo)} and friends afterwards discards the columns.
+     */
+    public AnimatedPieViewConfig setColumns(@NonNull PieColumns columns) {
+        synchronized (mDataLock) {
+            mBackDatas.clear();
+            mBackColumns = columns;
+            mDataDirty = true;
+        }
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>按列设置数据
+     * <p>
+     * <h3>EN:</h3>Set column-oriented datas.
+     *
+     * @param descs 可以为null
+     * @see #setColumns(PieColumns)
+     */
+    public AnimatedPieViewConfig setColumns(@NonNull double[] values, @NonNull int[] colors, String[] descs) {
+        return setColumns(new PieColumns(values, colors, descs));
+    }
+
+    private void dropColumns() {
+        if (mBackColumns != null) {
+            Log.w(TAG, "discard column datas because of adding row datas");
+            mBackColumns = null;
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>提交后台缓冲区中的数据，之后的读取都能看到完整的一批。只能由写入方调用，读取方从不发布，
+     * 因此不会看到写入方还没写完的一批。{@link AnimatedPieView#applyConfig(AnimatedPieViewConfig)}等入口会自动提交
+     * <p>
+     * <h3>EN:</h3>Commit the back buffer so that every later read sees the whole batch.Only the producer calls this,
+     * readers never publish, so they never observe a batch which is still being written.
+     * Entry points such as {@link AnimatedPieView#applyConfig(AnimatedPieViewConfig)} commit automatically.
+     */
+    public AnimatedPieViewConfig publishDatas() {
+        synchronized (mDataLock) {
+            if (mDataDirty) {
+                final PieColumns columns = mBackColumns;
+                final List<Pair<IPieInfo, Boolean>> datas = columns != null
+                        ? columns.asRows()
+                        : Collections.unmodifiableList(new ArrayList<>(mBackDatas));
+                //一次volatile写同时发布三者
+                mPublished = new PublishedDatas(datas, columns);
+                mDataDirty = false;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>获取最近一次发布的数据。需要同时读取行、列数据时（例如prepare）应该只调用一次并从同一个对象读取，
+     * 避免混用两次发布的数据
+     * <p>
+     * <h3>EN:</h3>Get the last published datas.Callers which need rows and columns together(e.g. prepare) should call this once
+     * and read everything from the same object, so that two generations are never mixed.
+     */
+    @NonNull
+    public PublishedDatas getPublishedDatas() {
+        return mPublished;
+    }
+
+    /**
+     * <h3>CN:</h3>获取最近一次发布的数据，返回的列表不可修改并且不会再变化，可以在任意线程遍历
+     * <p>
+     * <h3>EN:</h3>Get the last published datas.The returned list is immutable and never changes, so it can be iterated on any thread.
+     */
     public List<Pair<IPieInfo, Boolean>> getDatas() {
-        return mDatas;
+        return mPublished.datas;
     }
 
+    /**
+     * <h3>CN:</h3>获取最近一次发布的按列数据，数据是按行添加的时候返回null
+     * <p>
+     * <h3>EN:</h3>Get the last published column-oriented datas, null if datas were added by rows.
+     */
+    public PieColumns getColumns() {
+        return mPublished.columns;
+    }
+
+    /**
+     * <h3>CN:</h3>获取最近一次发布的数据（不含是否自动描述），返回的是不可修改的视图，不会复制数据
+     * <p>
+     * <h3>EN:</h3>Get the last published datas without the auto-desc flags.The returned list is a read-only view, nothing is copied.
+     */
     public List<IPieInfo> getRawDatas() {
-        List<IPieInfo> result = new ArrayList<>();
-        if (!Util.isListEmpty(mDatas)) {
-            for (Pair<IPieInfo, Boolean> data : mDatas) {
-                result.add(data.first);
-            }
+        return mPublished.rawDatas;
+    }
+
+    /**
+     * <h3>CN:</h3>一次发布的数据，创建后不可变
+     * <p>
+     * <h3>EN:</h3>Datas of one publication, immutable once created.
+     */
+    public static final class PublishedDatas {
+        static final PublishedDatas EMPTY = new PublishedDatas(Collections.<Pair<IPieInfo, Boolean>>emptyList(), null);
+
+        private final List<Pair<IPieInfo, Boolean>> datas;
+        private final PieColumns columns;
+        private final List<IPieInfo> rawDatas;
+
+        PublishedDatas(List<Pair<IPieInfo, Boolean>> datas, PieColumns columns) {
+            this.datas = datas;
+            this.columns = columns;
+            this.rawDatas = datas.isEmpty() ? Collections.<IPieInfo>emptyList() : new RawDataList(datas);
+        }
+
+        /**
+         * @return 按行的数据，按列设置时是列数据的只读视图
+         */
+        public List<Pair<IPieInfo, Boolean>> getDatas() {
+            return datas;
+        }
+
+        /**
+         * @return 按列的数据，数据是按行添加的时候返回null
+         */
+        public PieColumns getColumns() {
+            return columns;
         }
-        return result;
 
+        public List<IPieInfo> getRawDatas() {
+            return rawDatas;
+        }
+    }
+
+    private static final class RawDataList extends AbstractList<IPieInfo> {
+        private final List<Pair<IPieInfo, Boolean>> datas;
+
+        RawDataList(List<Pair<IPieInfo, Boolean>> datas) {
+            this.datas = datas;
+        }
+
+        @Override
+        public IPieInfo get(int index) {
+            return datas.get(index).first;
+        }
+
+        @Override
+        public int size() {
+            return datas.size();
+        }
     }
 
     //=============================================================getter
@@ -375,6 +786,19 @@ public class AnimatedPieViewConfig {
         return autoDescStringFormat;
     }
 
+    /**
+     * <h3>CN:</h3>预编译的自动描述格式化工具，线程安全
+     * <h3>EN:</h3>Precompiled and thread-safe formatter for auto description.
+     */
+    public PercentFormatter getAutoDescFormatter() {
+        PercentFormatter formatter = autoDescFormatter;
+        if (formatter == null || !TextUtils.equals(formatter.getPattern(), autoDescStringFormat)) {
+            formatter = PercentFormatter.compile(autoDescStringFormat);
+            autoDescFormatter = formatter;
+        }
+        return formatter;
+    }
+
     public boolean isAutoSize() {
         return autoSize;
     }
@@ -419,6 +843,23 @@ public class AnimatedPieViewConfig {
         return mSelectListener;
     }
 
+    public OnPieSelectBatchListener getSelectBatchListener() {
+        return mSelectBatchListener;
+    }
+
+    @SelectDispatchMode
+    public int getSelectDispatchMode() {
+        return selectDispatchMode;
+    }
+
+    public Executor getSelectDispatchExecutor() {
+        return selectDispatchExecutor;
+    }
+
+    public long getSelectThrottle() {
+        return selectThrottle;
+    }
+
     public float getFloatExpandSize() {
         return floatExpandSize;
     }
@@ -461,6 +902,303 @@ public class AnimatedPieViewConfig {
         return animationInterpolator;
     }
 
+    @ResumeMode
+    public int getResumeMode() {
+        return resumeMode;
+    }
+
+    public boolean isLabelAtlas() {
+        return labelAtlas;
+    }
+
+    public boolean isAdaptiveQuality() {
+        return adaptiveQuality;
+    }
+
+    public boolean isRotatable() {
+        return rotatable;
+    }
+
+    public float getSnapAngle() {
+        return snapAngle;
+    }
+
+    public boolean isZoomable() {
+        return zoomable;
+    }
+
+    public float getMaxZoom() {
+        return maxZoom;
+    }
+
+    @SelectionMode
+    public int getSelectionMode() {
+        return selectionMode;
+    }
+
+    //=============================================================fingerprint
+
+    /**
+     * <h3>CN:</h3>生成当前配置的结构指纹，通过{@link Fingerprint#diff(Fingerprint)}可以得知两次配置之间发生了哪些变化
+     * <h3>EN:</h3>Create a structural fingerprint of this config.Use {@link Fingerprint#diff(Fingerprint)} to find out what has changed between two configs.
+     */
+    public Fingerprint fingerprint() {
+        return fingerprint(mPublished);
+    }
+
+    /**
+     * 使用已经读取的一次发布生成指纹，与prepare使用的数据保持一致
+     */
+    public Fingerprint fingerprint(@NonNull PublishedDatas published) {
+        final List<Pair<IPieInfo, Boolean>> datas = published.datas;
+        final PieColumns columns = published.columns;
+        //按列的数据不可变，只需要比较对象；按行的数据保存每一行的原始值，diff时逐项比较，不依赖哈希
+        final int count = columns == null ? datas.size() : 0;
+        final Fingerprint.Rows rows = new Fingerprint.Rows(count);
+        for (int i = 0; i < count; i++) {
+            Pair<IPieInfo, Boolean> pair = datas.get(i);
+            IPieInfo info = pair.first;
+            rows.infos[i] = info;
+            rows.values[i] = info.getValue();
+            rows.colors[i] = info.getColor();
+            final boolean autoDesc = pair.second != null && pair.second;
+            //自动描述由数值和格式决定，两者都已记录；渲染时会把结果写回SimplePieInfo，不能计入指纹
+            rows.descs[i] = autoDesc ? null : info.getDesc();
+            rows.autoDescs[i] = autoDesc;
+            PieOption option = info.getPieOpeion();
+            if (option != null) {
+                //PieOption可以原地修改，保存它的内容而不是引用
+                rows.icons[i] = option.getLabelIconSource();
+                rows.labelPositions[i] = option.getLabelPosition();
+                rows.labelPaddings[i] = option.getLabelPadding();
+            }
+        }
+
+        final Object[] geometry = {
+                strokeWidth,
+                startAngle,
+                autoSize,
+                pieRadius,
+                pieRadiusRatio,
+                splitAngle,
+                strokeMode,
+                guideLineMarginStart
+        };
+
+        final Object[] paint = {
+                focusAlphaType,
+                focusAlpha,
+                floatShadowRadius
+        };
+
+        //与数据无关的文字样式
+        final Object[] textStyle = {
+                autoDescStringFormat,
+                textSize,
+                drawText,
+                textGravity,
+                guidePointRadius,
+                guideLineWidth,
+                cubicGuide,
+                textMargin,
+                labelAtlas
+        };
+
+        final Object[] animation = {
+                floatUpDuration,
+                floatDownDuration,
+                floatExpandAngle,
+                floatExpandSize,
+                canTouch,
+                animTouch,
+                mSelectListener,
+                mSelectBatchListener,
+                resumeMode,
+                adaptiveQuality,
+                rotatable,
+                snapAngle,
+                zoomable,
+                maxZoom,
+                selectionMode
+        };
+
+        //入场动画，变化时需要重新准备动画
+        final Object[] pieAnimation = {
+                animatePie,
+                duration,
+                animationInterpolator
+        };
+
+        return new Fingerprint(columns, rows, geometry, paint, textStyle, animation, pieAnimation);
+    }
+
+    /**
+     * <h3>CN:</h3>配置的结构指纹，按照数据、几何、画笔、文字、动画分类。
+     * 指纹保存各项配置的原始值（数据对象、监听器、插值器按引用），{@link #diff(Fingerprint)}逐项比较，不会因为哈希碰撞漏掉变化
+     * <h3>EN:</h3>Structural fingerprint of config which is classified by data, geometry, paint, text and animation.
+     * The fingerprint keeps the raw values(datas, listeners and interpolators by reference) and {@link #diff(Fingerprint)}
+     * compares them one by one, so no change is missed because of a hash collision.
+     */
+    public static final class Fingerprint {
+        private final PieColumns columns;
+        private final Rows rows;
+        private final Object[] geometry;
+        private final Object[] paint;
+        private final Object[] textStyle;
+        private final Object[] animation;
+        private final Object[] pieAnimation;
+
+        Fingerprint(PieColumns columns, Rows rows, Object[] geometry, Object[] paint, Object[] textStyle, Object[] animation, Object[] pieAnimation) {
+            this.columns = columns;
+            this.rows = rows;
+            this.geometry = geometry;
+            this.paint = paint;
+            this.textStyle = textStyle;
+            this.animation = animation;
+            this.pieAnimation = pieAnimation;
+        }
+
+        /**
+         * <h3>CN:</h3>只包含影响布局的几何和文字样式，不包含数据，用于校验布局快照
+         * <p>
+         * <h3>EN:</h3>Hash of the geometry and text style which affect the layout, excluding datas.Used to validate layout snapshots.
+         */
+        public long getLayoutHash() {
+            long layout = 31 * hash(geometry) + hash(textStyle);
+            //0代表快照不校验
+            return layout == 0 ? 1 : layout;
+        }
+
+        /**
+         * <h3>CN:</h3>包含数据、几何和文字，不包含画笔和动画，用于缓存预取的布局。
+         * 哈希可能碰撞，命中后需要通过{@link #isSameContent(Fingerprint)}确认
+         * <p>
+         * <h3>EN:</h3>Hash of the datas, geometry and text, excluding paint and animation.Used to cache prefetched layouts.
+         * Hashes may collide, confirm a hit with {@link #isSameContent(Fingerprint)}.
+         */
+        public long getContentHash() {
+            long result = System.identityHashCode(columns);
+            result = 31 * result + rows.hashData();
+            result = 31 * result + rows.hashText();
+            result = 31 * result + hash(geometry);
+            result = 31 * result + hash(textStyle);
+            return result;
+        }
+
+        /**
+         * @return 数据、几何和文字是否完全相同，即{@link #getContentHash()}覆盖的部分
+         */
+        public boolean isSameContent(Fingerprint other) {
+            return other != null
+                    && (diff(other) & (CHANGE_DATA | CHANGE_GEOMETRY | CHANGE_TEXT)) == CHANGE_NONE;
+        }
+
+        /**
+         * @return the changes between two fingerprints, combination of {@link ConfigChange}
+         */
+        @ConfigChange
+        public int diff(Fingerprint other) {
+            if (other == null) return CHANGE_ALL;
+            int result = CHANGE_NONE;
+            if (columns != other.columns || !rows.sameData(other.rows)) result |= CHANGE_DATA;
+            if (!Arrays.equals(geometry, other.geometry)) result |= CHANGE_GEOMETRY;
+            if (!Arrays.equals(rows.colors, other.rows.colors) || !Arrays.equals(paint, other.paint)) {
+                result |= CHANGE_PAINT;
+            }
+            if (!rows.sameText(other.rows) || !Arrays.equals(textStyle, other.textStyle)) result |= CHANGE_TEXT;
+            if (!Arrays.equals(animation, other.animation)) result |= CHANGE_ANIMATION;
+            if (!Arrays.equals(pieAnimation, other.pieAnimation)) result |= CHANGE_PIE_ANIMATION;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Fingerprint && diff((Fingerprint) obj) == CHANGE_NONE;
+        }
+
+        @Override
+        public int hashCode() {
+            long result = getContentHash();
+            result = 31 * result + Arrays.hashCode(rows.colors);
+            result = 31 * result + hash(paint);
+            result = 31 * result + hash(animation);
+            result = 31 * result + hash(pieAnimation);
+            return (int) (result ^ (result >>> 32));
+        }
+
+        private static long hash(Object[] values) {
+            long result = 17;
+            for (Object value : values) {
+                result = 31 * result + (value == null ? 0 : value.hashCode());
+            }
+            return result;
+        }
+
+        /**
+         * 按行的数据，IPieInfo按引用比较
+         */
+        static final class Rows {
+            final IPieInfo[] infos;
+            final double[] values;
+            final int[] colors;
+            final String[] descs;
+            final boolean[] autoDescs;
+            //PieOption的图标来源（key、资源id或者Bitmap）和文字边距
+            final Object[] icons;
+            final int[] labelPositions;
+            final int[] labelPaddings;
+
+            Rows(int count) {
+                infos = new IPieInfo[count];
+                values = new double[count];
+                colors = new int[count];
+                descs = new String[count];
+                autoDescs = new boolean[count];
+                icons = new Object[count];
+                labelPositions = new int[count];
+                labelPaddings = new int[count];
+            }
+
+            boolean sameData(Rows other) {
+                //图标和文字边距来自PieOption，变化时需要重新获取图标，按数据变化处理
+                return sameReferences(infos, other.infos)
+                        && Arrays.equals(values, other.values)
+                        && Arrays.equals(icons, other.icons)
+                        && Arrays.equals(labelPositions, other.labelPositions)
+                        && Arrays.equals(labelPaddings, other.labelPaddings);
+            }
+
+            boolean sameText(Rows other) {
+                return Arrays.equals(descs, other.descs) && Arrays.equals(autoDescs, other.autoDescs);
+            }
+
+            long hashData() {
+                long result = 17;
+                for (int i = 0; i < infos.length; i++) {
+                    result = 31 * result + System.identityHashCode(infos[i]);
+                    long bits = Double.doubleToLongBits(values[i]);
+                    result = 31 * result + (int) (bits ^ (bits >>> 32));
+                    result = 31 * result + (icons[i] == null ? 0 : icons[i].hashCode());
+                    result = 31 * result + labelPositions[i];
+                    result = 31 * result + labelPaddings[i];
+                }
+                return 31 * result + infos.length;
+            }
+
+            long hashText() {
+                return 31L * Arrays.hashCode(descs) + Arrays.hashCode(autoDescs);
+            }
+
+            private static boolean sameReferences(Object[] a, Object[] b) {
+                if (a.length != b.length) return false;
+                for (int i = 0; i < a.length; i++) {
+                    if (a[i] != b[i]) return false;
+                }
+                return true;
+            }
+        }
+    }
+
     //=============================================================Deprecated methods
     //from version 1.1.5,most of methods' name has been changed
 
@@ -0,0 +1,72 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.content.Context;
+import android.view.View;
+import android.view.animation.Animation;
+
+import com.razerdp.widget.animatedpieview.manager.PieManager;
+
+/**
+ * 没有界面的宿主，所有操作在调用线程同步执行，用于导出和预取布局
+ */
+final class HeadlessPieView implements IPieView {
+    private final Context mContext;
+    private final PieManager mPieManager;
+    AnimatedPieViewConfig mConfig;
+
+    HeadlessPieView(Context context) {
+        mContext = context.getApplicationContext() == null ? context : context.getApplicationContext();
+        mPieManager = new PieManager(this);
+    }
+
+    @Override
+    public PieManager getManager() {
+        return mPieManager;
+    }
+
+    @Override
+    public Context getViewContext() {
+        return mContext;
+    }
+
+    @Override
+    public AnimatedPieViewConfig getConfig() {
+        return mConfig;
+    }
+
+    @Override
+    public View getPieView() {
+        return null;
+    }
+
+    @Override
+    public void onCallInvalidate() {
+
+    }
+
+    @Override
+    public boolean postRenderAction(Runnable action) {
+        action.run();
+        return true;
+    }
+
+    @Override
+    public boolean removeRenderAction(Runnable action) {
+        return true;
+    }
+
+    @Override
+    public void startRenderAnimation(Animation animation) {
+
+    }
+
+    @Override
+    public void resumeRenderAnimation(Animation animation) {
+
+    }
+
+    @Override
+    public void clearRenderAnimation() {
+
+    }
+}
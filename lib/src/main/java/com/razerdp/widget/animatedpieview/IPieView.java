@@ -2,6 +2,7 @@ package com.razerdp.widget.animatedpieview;
 
 import android.content.Context;
 import android.view.View;
+import android.view.animation.Animation;
 
 import com.razerdp.widget.animatedpieview.manager.PieManager;
 
@@ -23,4 +24,32 @@ public interface IPieView {
     View getPieView();
 
     void onCallInvalidate();
+
+    /**
+     * <h3>CN:</h3>在渲染所在的线程执行action。以下渲染相关的方法在1.3.0加入，基于View的实现委托给post、removeCallbacks、
+     * startAnimation、setAnimation和clearAnimation即可，参考{@link AnimatedPieView}
+     * <p>
+     * <h3>EN:</h3>Run the action on the thread which renders the pie.The render methods below were added in 1.3.0,
+     * a View based implementation can delegate to post, removeCallbacks, startAnimation, setAnimation and clearAnimation,
+     * see {@link AnimatedPieView}.
+     */
+    boolean postRenderAction(Runnable action);
+
+    boolean removeRenderAction(Runnable action);
+
+    /**
+     * <h3>CN:</h3>从头播放渲染动画
+     * <p>
+     * <h3>EN:</h3>Start the render animation from the beginning.
+     */
+    void startRenderAnimation(Animation animation);
+
+    /**
+     * <h3>CN:</h3>继续播放渲染动画，开始时间由调用者设置
+     * <p>
+     * <h3>EN:</h3>Continue the render animation.The start time is set by the caller.
+     */
+    void resumeRenderAnimation(Animation animation);
+
+    void clearRenderAnimation();
 }
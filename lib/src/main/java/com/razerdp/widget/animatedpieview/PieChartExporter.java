@@ -0,0 +1,394 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.RectF;
+import android.graphics.pdf.PdfDocument;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Base64;
+import android.util.Base64OutputStream;
+
+import com.razerdp.widget.animatedpieview.render.PieChartRender;
+import com.razerdp.widget.animatedpieview.render.PieLayoutVisitor;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * <h3>CN:</h3>把甜甜圈导出为矢量的SVG或者PDF，布局与界面上最终帧一致。SVG在遍历布局的同时直接写入输出流，
+ * 批量导出时复用同一个渲染器并且每个甜甜圈单独写入一个输出流，所以内存占用与导出的数量无关
+ * <p>
+ * <h3>EN:</h3>Export pies as vector SVG or PDF with the same layout as the final frame on screen.
+ * SVG elements are streamed to the output while walking the layout.Batch export reuses one renderer and writes each pie
+ * to its own stream, so memory usage does not grow with the number of charts.
+ * <p>
+ * 标签图标只有在已经被{@link com.razerdp.widget.animatedpieview.manager.PieIconCache}缓存时才会导出
+ */
+public class PieChartExporter {
+
+    public interface OutputStreamProvider {
+        /**
+         * 为第index个甜甜圈打开输出流，导出完成后由导出器关闭
+         */
+        OutputStream open(int index, AnimatedPieViewConfig config) throws IOException;
+    }
+
+    private final int width;
+    private final int height;
+    private final HeadlessPieView mHost;
+    private final PieChartRender mRender;
+    private final SvgLayoutWriter mSvgWriter;
+
+    /**
+     * @param width  导出的宽度（px）
+     * @param height 导出的高度（px）
+     */
+    public PieChartExporter(@NonNull Context context, int width, int height) {
+        this.width = width;
+        this.height = height;
+        mHost = new HeadlessPieView(context);
+        mRender = new PieChartRender(mHost);
+        //导出在工作线程同步执行，图标必须在prepare期间加载完成，也不能修改调用者的数据对象
+        mRender.setHeadless(true);
+        mSvgWriter = new SvgLayoutWriter();
+        mHost.getManager().setChartContentRect(width, height, 0, 0, 0, 0);
+    }
+
+    //-----------------------------------------svg-----------------------------------------
+
+    @WorkerThread
+    public void exportSvg(@NonNull AnimatedPieViewConfig config, @NonNull OutputStream out) throws IOException {
+        prepare(config);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        mSvgWriter.begin(writer, out);
+        try {
+            mRender.visitLayout(mSvgWriter);
+            if (mSvgWriter.error != null) throw mSvgWriter.error;
+            writer.flush();
+        } finally {
+            mSvgWriter.end();
+        }
+    }
+
+    /**
+     * @return 导出的数量
+     */
+    @WorkerThread
+    public int exportSvg(@NonNull Iterator<AnimatedPieViewConfig> configs, @NonNull OutputStreamProvider provider) throws IOException {
+        int index = 0;
+        while (configs.hasNext()) {
+            AnimatedPieViewConfig config = configs.next();
+            OutputStream out = provider.open(index, config);
+            try {
+                exportSvg(config, out);
+            } finally {
+                out.close();
+            }
+            index++;
+        }
+        return index;
+    }
+
+    //-----------------------------------------pdf-----------------------------------------
+
+    /**
+     * 直接使用PdfDocument的矢量画布绘制最终帧
+     */
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    @WorkerThread
+    public void exportPdf(@NonNull AnimatedPieViewConfig config, @NonNull OutputStream out) throws IOException {
+        prepare(config);
+        PdfDocument document = new PdfDocument();
+        try {
+            PdfDocument.Page page = document.startPage(new PdfDocument.PageInfo.Builder(width, height, 1).create());
+            mRender.draw(page.getCanvas());
+            document.finishPage(page);
+            document.writeTo(out);
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * 每个甜甜圈单独生成一个PDF文档，写完即释放，避免所有页面同时留在内存中
+     *
+     * @return 导出的数量
+     */
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    @WorkerThread
+    public int exportPdf(@NonNull Iterator<AnimatedPieViewConfig> configs, @NonNull OutputStreamProvider provider) throws IOException {
+        int index = 0;
+        while (configs.hasNext()) {
+            AnimatedPieViewConfig config = configs.next();
+            OutputStream out = provider.open(index, config);
+            try {
+                exportPdf(config, out);
+            } finally {
+                out.close();
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private void prepare(AnimatedPieViewConfig config) {
+        //导出最终帧，不需要动画
+        config.publishDatas();
+        mHost.mConfig = new AnimatedPieViewConfig().copyFrom(config).animatePie(false);
+        //HeadlessPieView同步执行，prepare返回时已经准备完成
+        mRender.prepare();
+        if (!mRender.isPrepared()) {
+            throw new IllegalStateException("prepare failed");
+        }
+    }
+
+    //-----------------------------------------svg writer-----------------------------------------
+
+    private final class SvgLayoutWriter implements PieLayoutVisitor {
+        private Writer writer;
+        private OutputStream out;
+        IOException error;
+
+        void begin(Writer writer, OutputStream out) {
+            this.writer = writer;
+            this.out = out;
+            this.error = null;
+        }
+
+        void end() {
+            writer = null;
+            out = null;
+        }
+
+        @Override
+        public void onLayoutStart(float drawWidth, float drawHeight) {
+            try {
+                writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"");
+                writer.write(Integer.toString(width));
+                writer.write("\" height=\"");
+                writer.write(Integer.toString(height));
+                writer.write("\" viewBox=\"0 0 ");
+                writer.write(Integer.toString(width));
+                writer.write(' ');
+                writer.write(Integer.toString(height));
+                writer.write("\">\n<g transform=\"translate(");
+                writeNumber(drawWidth / 2);
+                writer.write(',');
+                writeNumber(drawHeight / 2);
+                writer.write(")\">\n");
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        @Override
+        public void onSlice(SliceLayout slice) {
+            if (error != null || slice.getSweepAngle() <= 0) return;
+            try {
+                RectF bounds = slice.getBounds();
+                final float rx = bounds.width() / 2;
+                final float ry = bounds.height() / 2;
+                if (slice.getSweepAngle() >= 360) {
+                    writer.write("<ellipse cx=\"");
+                    writeNumber(bounds.centerX());
+                    writer.write("\" cy=\"");
+                    writeNumber(bounds.centerY());
+                    writer.write("\" rx=\"");
+                    writeNumber(rx);
+                    writer.write("\" ry=\"");
+                    writeNumber(ry);
+                    writer.write('"');
+                } else {
+                    final double from = Math.toRadians(slice.getFromAngle());
+                    final double to = Math.toRadians(slice.getFromAngle() + slice.getSweepAngle());
+                    writer.write("<path d=\"");
+                    if (!slice.isStrokeMode()) {
+                        writer.write('M');
+                        writeNumber(bounds.centerX());
+                        writer.write(' ');
+                        writeNumber(bounds.centerY());
+                        writer.write(" L");
+                    } else {
+                        writer.write('M');
+                    }
+                    writeNumber((float) (bounds.centerX() + rx * Math.cos(from)));
+                    writer.write(' ');
+                    writeNumber((float) (bounds.centerY() + ry * Math.sin(from)));
+                    writer.write(" A");
+                    writeNumber(rx);
+                    writer.write(' ');
+                    writeNumber(ry);
+                    writer.write(slice.getSweepAngle() > 180 ? " 0 1 1 " : " 0 0 1 ");
+                    writeNumber((float) (bounds.centerX() + rx * Math.cos(to)));
+                    writer.write(' ');
+                    writeNumber((float) (bounds.centerY() + ry * Math.sin(to)));
+                    writer.write(slice.isStrokeMode() ? "\"" : " Z\"");
+                }
+                if (slice.isStrokeMode()) {
+                    writer.write(" fill=\"none\"");
+                    writePaint(" stroke", slice.getColor());
+                    writer.write(" stroke-width=\"");
+                    writeNumber(slice.getStrokeWidth());
+                    writer.write('"');
+                } else {
+                    writePaint(" fill", slice.getColor());
+                }
+                writer.write("/>\n");
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        @Override
+        public void onLabel(LabelLayout label) {
+            if (error != null) return;
+            try {
+                //指示点
+                writer.write("<circle cx=\"");
+                writeNumber(label.getPointX());
+                writer.write("\" cy=\"");
+                writeNumber(label.getPointY());
+                writer.write("\" r=\"");
+                writeNumber(label.getPointRadius());
+                writer.write('"');
+                writePaint(" fill", label.getColor());
+                writer.write("/>\n");
+
+                //指示线
+                writer.write("<polyline points=\"");
+                writeNumber(label.getPointX());
+                writer.write(',');
+                writeNumber(label.getPointY());
+                writer.write(' ');
+                writeNumber(label.getLineX1());
+                writer.write(',');
+                writeNumber(label.getLineY1());
+                writer.write(' ');
+                writeNumber(label.getLineX2());
+                writer.write(',');
+                writeNumber(label.getLineY2());
+                writer.write("\" fill=\"none\" stroke-linejoin=\"round\"");
+                writePaint(" stroke", label.getColor());
+                writer.write(" stroke-width=\"");
+                writeNumber(label.getLineWidth());
+                writer.write("\"/>\n");
+
+                //图标
+                Bitmap icon = label.getIcon();
+                if (icon != null && !icon.isRecycled()) {
+                    writer.write("<image x=\"");
+                    writeNumber(label.getIconX());
+                    writer.write("\" y=\"");
+                    writeNumber(label.getIconY());
+                    writer.write("\" width=\"");
+                    writer.write(Integer.toString(icon.getWidth()));
+                    writer.write("\" height=\"");
+                    writer.write(Integer.toString(icon.getHeight()));
+                    //SVG 1.1只认识xlink:href，SVG 2使用href，两者都写入，图片只编码一次
+                    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                    Base64OutputStream base64 = new Base64OutputStream(encoded, Base64.NO_WRAP);
+                    icon.compress(Bitmap.CompressFormat.PNG, 100, base64);
+                    base64.close();
+                    writer.write("\" xlink:href=\"data:image/png;base64,");
+                    writer.flush();
+                    encoded.writeTo(out);
+                    writer.write("\" href=\"data:image/png;base64,");
+                    writer.flush();
+                    encoded.writeTo(out);
+                    writer.write("\"/>\n");
+                }
+
+                //文字
+                writer.write("<text x=\"");
+                writeNumber(label.getTextX());
+                writer.write("\" y=\"");
+                writeNumber(label.getTextY());
+                writer.write("\" font-size=\"");
+                writeNumber(label.getTextSize());
+                writer.write('"');
+                writePaint(" fill", label.getColor());
+                writer.write('>');
+                writeEscaped(label.getDesc());
+                writer.write("</text>\n");
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        @Override
+        public void onLayoutEnd() {
+            if (error != null) return;
+            try {
+                writer.write("</g>\n</svg>\n");
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        private void writePaint(String attr, int color) throws IOException {
+            writer.write(attr);
+            writer.write("=\"#");
+            final int rgb = color & 0xFFFFFF;
+            for (int shift = 20; shift >= 0; shift -= 4) {
+                writer.write(Character.forDigit((rgb >> shift) & 0xF, 16));
+            }
+            writer.write('"');
+            final int alpha = Color.alpha(color);
+            if (alpha < 255) {
+                writer.write(attr);
+                writer.write("-opacity=\"");
+                writeNumber(alpha / 255f);
+                writer.write('"');
+            }
+        }
+
+        /**
+         * 最多保留两位小数，不依赖Locale
+         */
+        private void writeNumber(float value) throws IOException {
+            long scaled = Math.round(Math.abs(value) * 100.0);
+            if (scaled != 0 && value < 0) writer.write('-');
+            writer.write(Long.toString(scaled / 100));
+            final int fraction = (int) (scaled % 100);
+            if (fraction != 0) {
+                writer.write('.');
+                writer.write((char) ('0' + fraction / 10));
+                if (fraction % 10 != 0) writer.write((char) ('0' + fraction % 10));
+            }
+        }
+
+        private void writeEscaped(String text) throws IOException {
+            if (text == null) return;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '<':
+                        writer.write("&lt;");
+                        break;
+                    case '>':
+                        writer.write("&gt;");
+                        break;
+                    case '&':
+                        writer.write("&amp;");
+                        break;
+                    case '"':
+                        writer.write("&quot;");
+                        break;
+                    default:
+                        writer.write(c);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import com.razerdp.widget.animatedpieview.data.IPieInfo;
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3>CN:</h3>把大量原始记录按照key分组求和，生成甜甜圈的数据。
+ * 记录会被切分成多段，每段在独立的线程里用原始类型的哈希表聚合，最后按顺序合并，所以分组的顺序和记录中第一次出现的顺序一致
+ * <p>
+ * <h3>EN:</h3>Group and sum a large amount of raw records into pie datas.
+ * Records are split into chunks which are aggregated in parallel into per-thread primitive hash maps,
+ * then merged in order, so that groups keep the order of their first appearance.
+ *
+ * @param <R> record type
+ * @param <K> group key type
+ */
+public class PieDataAggregator<R, K> {
+    private static final String TAG = "PieDataAggregator";
+
+    //少于这个数量的记录直接在当前线程聚合
+    private static final int DEFAULT_SEQUENTIAL_THRESHOLD = 8192;
+
+    public interface RecordSource<R> {
+        int size();
+
+        R get(int index);
+    }
+
+    public interface KeyExtractor<R, K> {
+        K getKey(R record);
+    }
+
+    public interface ValueExtractor<R> {
+        double getValue(R record);
+    }
+
+    public interface PieInfoFactory<K> {
+        IPieInfo create(K key, double value);
+    }
+
+    private static volatile ExecutorService sDefaultExecutor;
+
+    private final RecordSource<R> mSource;
+    private final KeyExtractor<R, K> mKeyExtractor;
+    private final ValueExtractor<R> mValueExtractor;
+    private ExecutorService mExecutor;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int sequentialThreshold = DEFAULT_SEQUENTIAL_THRESHOLD;
+
+    public PieDataAggregator(@NonNull RecordSource<R> source,
+                             @NonNull KeyExtractor<R, K> keyExtractor,
+                             @NonNull ValueExtractor<R> valueExtractor) {
+        mSource = source;
+        mKeyExtractor = keyExtractor;
+        mValueExtractor = valueExtractor;
+    }
+
+    public static <R> RecordSource<R> fromList(@NonNull final List<R> records) {
+        return new RecordSource<R>() {
+            @Override
+            public int size() {
+                return records.size();
+            }
+
+            @Override
+            public R get(int index) {
+                return records.get(index);
+            }
+        };
+    }
+
+    public static <R> RecordSource<R> fromArray(@NonNull final R[] records) {
+        return new RecordSource<R>() {
+            @Override
+            public int size() {
+                return records.length;
+            }
+
+            @Override
+            public R get(int index) {
+                return records[index];
+            }
+        };
+    }
+
+    public PieDataAggregator<R, K> parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    public PieDataAggregator<R, K> sequentialThreshold(int sequentialThreshold) {
+        this.sequentialThreshold = Math.max(1, sequentialThreshold);
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>指定执行聚合的线程池，不指定则使用共享的线程池
+     * <p>
+     * <h3>EN:</h3>Executor which runs the aggregation.A shared executor will be used if not set.
+     */
+    public PieDataAggregator<R, K> executor(ExecutorService executor) {
+        mExecutor = executor;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>执行聚合，会阻塞当前线程，请不要在主线程调用
+     * <p>
+     * <h3>EN:</h3>Run the aggregation.It blocks the calling thread so do not call it on main thread.
+     */
+    @WorkerThread
+    public Result<K> aggregate() {
+        final int size = mSource.size();
+        final int chunkCount = size < sequentialThreshold ? 1 : Math.min(parallelism, (size + sequentialThreshold - 1) / sequentialThreshold);
+        if (chunkCount <= 1) {
+            return new Result<>(aggregateRange(0, size));
+        }
+        final int chunkSize = (size + chunkCount - 1) / chunkCount;
+        List<Callable<ObjectDoubleMap>> tasks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final int from = i * chunkSize;
+            final int to = Math.min(size, from + chunkSize);
+            tasks.add(new Callable<ObjectDoubleMap>() {
+                @Override
+                public ObjectDoubleMap call() throws Exception {
+                    return aggregateRange(from, to);
+                }
+            });
+        }
+        ExecutorService executor = mExecutor == null ? getDefaultExecutor() : mExecutor;
+        try {
+            List<Future<ObjectDoubleMap>> futures = executor.invokeAll(tasks);
+            //按分段顺序合并，保证分组顺序与首次出现的顺序一致
+            ObjectDoubleMap result = futures.get(0).get();
+            for (int i = 1; i < futures.size(); i++) {
+                result.mergeFrom(futures.get(i).get());
+            }
+            PLog.i("aggregate " + size + " records into " + result.size() + " groups with " + chunkCount + " chunks");
+            return new Result<>(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("aggregation interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("aggregation failed", cause);
+        }
+    }
+
+    private ObjectDoubleMap aggregateRange(int from, int to) {
+        ObjectDoubleMap map = new ObjectDoubleMap(16);
+        for (int i = from; i < to; i++) {
+            R record = mSource.get(i);
+            map.add(mKeyExtractor.getKey(record), mValueExtractor.getValue(record));
+        }
+        return map;
+    }
+
+    private static ExecutorService getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            synchronized (PieDataAggregator.class) {
+                if (sDefaultExecutor == null) {
+                    final AtomicInteger threadCount = new AtomicInteger(1);
+                    sDefaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable r) {
+                            Thread thread = new Thread(r, TAG + "#" + threadCount.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return sDefaultExecutor;
+    }
+
+    //-----------------------------------------result-----------------------------------------
+
+    /**
+     * 聚合结果，分组按照首次出现的顺序排列
+     */
+    public static final class Result<K> {
+        private final ObjectDoubleMap mMap;
+
+        Result(ObjectDoubleMap map) {
+            mMap = map;
+        }
+
+        public int size() {
+            return mMap.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        public K getKey(int index) {
+            return (K) mMap.keyAt(index);
+        }
+
+        public double getValue(int index) {
+            return mMap.valueAt(index);
+        }
+
+        public List<IPieInfo> toPieInfos(@NonNull PieInfoFactory<K> factory) {
+            final int size = size();
+            List<IPieInfo> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(factory.create(getKey(i), getValue(i)));
+            }
+            return result;
+        }
+
+        public AnimatedPieViewConfig addTo(@NonNull AnimatedPieViewConfig config, @NonNull PieInfoFactory<K> factory, boolean autoDesc) {
+            final int size = size();
+            for (int i = 0; i < size; i++) {
+                config.addData(factory.create(getKey(i), getValue(i)), autoDesc);
+            }
+            return config;
+        }
+    }
+
+    /**
+     * key为对象，value为double的开放寻址哈希表，避免装箱；同时记录插入顺序
+     */
+    static final class ObjectDoubleMap {
+        private static final Object NULL_KEY = new Object();
+
+        private Object[] keys;
+        private double[] values;
+        //按插入顺序记录槽位
+        private int[] order;
+        private int size;
+        private int mask;
+
+        ObjectDoubleMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new Object[capacity];
+            values = new double[capacity];
+            order = new int[capacity >> 1];
+            mask = capacity - 1;
+        }
+
+        void add(Object key, double value) {
+            if (key == null) key = NULL_KEY;
+            int slot = findSlot(key, keys, mask);
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                values[slot] = value;
+                order[size++] = slot;
+                if (size >= order.length) {
+                    rehash();
+                }
+            } else {
+                values[slot] += value;
+            }
+        }
+
+        void mergeFrom(ObjectDoubleMap other) {
+            for (int i = 0; i < other.size; i++) {
+                int slot = other.order[i];
+                add(other.keys[slot], other.values[slot]);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        Object keyAt(int index) {
+            Object key = keys[order[index]];
+            return key == NULL_KEY ? null : key;
+        }
+
+        double valueAt(int index) {
+            return values[order[index]];
+        }
+
+        private static int findSlot(Object key, Object[] keys, int mask) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            int slot = (h * 0x9E3779B9) & mask;
+            while (keys[slot] != null && !keys[slot].equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            final int newCapacity = keys.length << 1;
+            final int newMask = newCapacity - 1;
+            Object[] newKeys = new Object[newCapacity];
+            double[] newValues = new double[newCapacity];
+            int[] newOrder = Arrays.copyOf(order, newCapacity >> 1);
+            for (int i = 0; i < size; i++) {
+                int oldSlot = order[i];
+                int slot = findSlot(keys[oldSlot], newKeys, newMask);
+                newKeys[slot] = keys[oldSlot];
+                newValues[slot] = values[oldSlot];
+                newOrder[i] = slot;
+            }
+            keys = newKeys;
+            values = newValues;
+            order = newOrder;
+            mask = newMask;
+        }
+    }
+}
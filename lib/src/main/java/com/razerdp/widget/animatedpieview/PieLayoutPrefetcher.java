@@ -0,0 +1,231 @@
+package com.razerdp.widget.animatedpieview;
+
+import android.content.Context;
+import android.os.Process;
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.razerdp.widget.animatedpieview.render.PieChartRender;
+import com.razerdp.widget.animatedpieview.snapshot.PieSnapshot;
+import com.razerdp.widget.animatedpieview.utils.PLog;
+import com.razerdp.widget.animatedpieview.utils.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <h3>CN:</h3>进程内共享的布局预取器。适配器可以在空闲帧或者RecyclerView的预取窗口中为即将出现的位置提前计算布局（角度、半径和文字位置），
+ * 结果以快照的形式保存在限制总字节数的LRU缓存中，{@link AnimatedPieView#start(AnimatedPieViewConfig)}命中缓存时直接加载，
+ * 不再遍历数据和测量文字
+ * <p>
+ * <h3>EN:</h3>Process-wide layout prefetcher.Adapters can compute the layout(angles, radius and label positions) of upcoming positions
+ * during idle frames or in the prefetch window of RecyclerView.Layouts are kept as snapshots in a byte-bounded LRU cache
+ * and picked up by {@link AnimatedPieView#start(AnimatedPieViewConfig)} without walking the datas or measuring text again.
+ * <p>
+ * 缓存按照config的数据、几何和文字指纹（{@link AnimatedPieViewConfig.Fingerprint#getContentHash()}）查找，
+ * 命中后再通过{@link AnimatedPieViewConfig.Fingerprint#isSameContent(AnimatedPieViewConfig.Fingerprint)}确认，画笔和动画的变化不影响命中
+ */
+public final class PieLayoutPrefetcher {
+
+    private static final int DEFAULT_MAX_BYTES = 512 * 1024;
+
+    private static volatile PieLayoutPrefetcher sInstance;
+
+    public static PieLayoutPrefetcher getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (PieLayoutPrefetcher.class) {
+                if (sInstance == null) {
+                    sInstance = new PieLayoutPrefetcher(context);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * <h3>CN:</h3>查找预取的布局，没有使用过预取时直接返回null
+     * <p>
+     * <h3>EN:</h3>Find the prefetched layout, returns null if prefetching has never been used.
+     */
+    @Nullable
+    public static PieSnapshot getPrefetched(@NonNull AnimatedPieViewConfig.Fingerprint fingerprint) {
+        PieLayoutPrefetcher prefetcher = sInstance;
+        return prefetcher == null ? null : prefetcher.get(fingerprint);
+    }
+
+    //通过this同步访问
+    private final LinkedHashMap<Long, Entry> mCache;
+    private int mMaxBytes;
+    private int mCurrentBytes;
+
+    //预取使用独立的渲染器，不与任何界面共享，通过mHost同步
+    private final HeadlessPieView mHost;
+    private final PieChartRender mRender;
+    private final ByteArrayOutputStream mBuffer;
+    private final ExecutorService mPrefetchExecutor;
+
+    private PieLayoutPrefetcher(Context context) {
+        mCache = new LinkedHashMap<>(16, 0.75f, true);
+        mMaxBytes = DEFAULT_MAX_BYTES;
+        mHost = new HeadlessPieView(context);
+        mRender = new PieChartRender(mHost);
+        //不接收异步的图标回调（回调会在主线程修改正在预取的布局），图标在预取线程同步加载，缓存的文字宽度与界面一致；
+        //自动描述也不写回调用者的数据对象
+        mRender.setHeadless(true);
+        mBuffer = new ByteArrayOutputStream();
+        mPrefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "AnimatedPieView-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * <h3>CN:</h3>设置缓存的最大字节数，每个扇形大约占用100字节
+     * <p>
+     * <h3>EN:</h3>Set the max bytes of the cache, each slice takes about 100 bytes.
+     */
+    public PieLayoutPrefetcher setMaxBytes(int maxBytes) {
+        synchronized (this) {
+            mMaxBytes = Math.max(0, maxBytes);
+            trimToSize();
+        }
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>在当前线程计算布局并放入缓存，已经缓存的config直接跳过
+     * <p>
+     * <h3>EN:</h3>Compute the layout on the calling thread and put it into the cache.Cached configs are skipped.
+     *
+     * @param width  控件的绘制宽度（去掉padding）
+     * @param height 控件的绘制高度（去掉padding）
+     * @return 缓存中是否存在该config的布局
+     */
+    @WorkerThread
+    public boolean prefetch(@NonNull AnimatedPieViewConfig config, int width, int height) {
+        config.publishDatas();
+        if (Util.isListEmpty(config.getDatas())) return false;
+        final AnimatedPieViewConfig.Fingerprint fingerprint = config.fingerprint();
+        if (get(fingerprint) != null) return true;
+        PieSnapshot snapshot;
+        synchronized (mHost) {
+            //只需要最终帧的布局
+            mHost.mConfig = new AnimatedPieViewConfig().copyFrom(config).animatePie(false);
+            mHost.getManager().setChartContentRect(width, height, 0, 0, 0, 0);
+            //HeadlessPieView同步执行，prepare返回时已经准备完成
+            mRender.prepare();
+            try {
+                mBuffer.reset();
+                if (!mRender.writeSnapshot(mBuffer)) return false;
+                snapshot = PieSnapshot.wrap(ByteBuffer.wrap(mBuffer.toByteArray()));
+            } catch (IOException e) {
+                PLog.e("prefetch failed : " + e.getMessage());
+                return false;
+            } finally {
+                mRender.reset();
+                mHost.mConfig = null;
+            }
+        }
+        put(fingerprint, snapshot);
+        return true;
+    }
+
+    /**
+     * <h3>CN:</h3>在后台线程预取，config会被复制，调用后修改config不会影响本次预取
+     * <p>
+     * <h3>EN:</h3>Prefetch on a background thread.The config is copied, so later changes of it do not affect this prefetch.
+     */
+    @AnyThread
+    public void prefetchAsync(@NonNull AnimatedPieViewConfig config, final int width, final int height) {
+        //在调用线程提交，副本只复制已经发布的数据
+        config.publishDatas();
+        if (get(config.fingerprint()) != null) return;
+        final AnimatedPieViewConfig copy = new AnimatedPieViewConfig().copyFrom(config);
+        mPrefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(copy, width, height);
+            }
+        });
+    }
+
+    @Nullable
+    public PieSnapshot get(@NonNull AnimatedPieViewConfig config) {
+        return get(config.fingerprint());
+    }
+
+    public void remove(@NonNull AnimatedPieViewConfig config) {
+        synchronized (this) {
+            final AnimatedPieViewConfig.Fingerprint fingerprint = config.fingerprint();
+            Entry entry = mCache.get(fingerprint.getContentHash());
+            if (entry != null && entry.fingerprint.isSameContent(fingerprint)) {
+                mCache.remove(fingerprint.getContentHash());
+                mCurrentBytes -= entry.snapshot.getByteSize();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            mCache.clear();
+            mCurrentBytes = 0;
+        }
+    }
+
+    private PieSnapshot get(AnimatedPieViewConfig.Fingerprint fingerprint) {
+        synchronized (this) {
+            Entry entry = mCache.get(fingerprint.getContentHash());
+            //哈希碰撞时视为未命中
+            return entry != null && entry.fingerprint.isSameContent(fingerprint) ? entry.snapshot : null;
+        }
+    }
+
+    private void put(AnimatedPieViewConfig.Fingerprint fingerprint, PieSnapshot snapshot) {
+        synchronized (this) {
+            Entry old = mCache.put(fingerprint.getContentHash(), new Entry(fingerprint, snapshot));
+            if (old != null) {
+                mCurrentBytes -= old.snapshot.getByteSize();
+            }
+            mCurrentBytes += snapshot.getByteSize();
+            trimToSize();
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Long, Entry>> iterator = mCache.entrySet().iterator();
+        while (mCurrentBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<Long, Entry> eldest = iterator.next();
+            mCurrentBytes -= eldest.getValue().snapshot.getByteSize();
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        final AnimatedPieViewConfig.Fingerprint fingerprint;
+        final PieSnapshot snapshot;
+
+        Entry(AnimatedPieViewConfig.Fingerprint fingerprint, PieSnapshot snapshot) {
+            this.fingerprint = fingerprint;
+            this.snapshot = snapshot;
+        }
+    }
+}
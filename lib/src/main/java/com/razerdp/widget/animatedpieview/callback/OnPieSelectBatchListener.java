@@ -0,0 +1,21 @@
+package com.razerdp.widget.animatedpieview.callback;
+
+import android.support.annotation.NonNull;
+import android.util.Pair;
+
+import com.razerdp.widget.animatedpieview.data.IPieInfo;
+
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>批量的选中回调，同一批中每个扇形只保留最后一次的状态，按照首次变化的顺序排列
+ * <p>
+ * <h3>EN:</h3>Batched select callback.Each slice appears once per batch with its latest state,
+ * in the order of its first change.
+ */
+public interface OnPieSelectBatchListener<T extends IPieInfo> {
+    /**
+     * @param changes 数据实体以及是否浮起
+     */
+    void onSelectPies(@NonNull List<Pair<T, Boolean>> changes);
+}
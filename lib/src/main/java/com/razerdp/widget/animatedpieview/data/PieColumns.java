@@ -0,0 +1,182 @@
+package com.razerdp.widget.animatedpieview.data;
+
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Pair;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>按列存储的甜甜圈数据，数值、颜色、描述（以及可选的key）分别保存在数组中，prepare时直接读取数组，
+ * 数据量很大时不需要为每个扇形创建{@link IPieInfo}和Pair。
+ * PieColumns创建后不可变，config按引用判断数据是否变化。数组不会被复制，交给config之后请不要再修改，需要改变数据时创建新的PieColumns
+ * <p>
+ * <h3>EN:</h3>Column-oriented pie datas.Values, colors, descriptions(and optional keys) are kept in arrays which are read
+ * directly while preparing, so large charts don't need an {@link IPieInfo} and a Pair per slice.
+ * PieColumns is immutable once created and config detects data changes by reference.
+ * Arrays are not copied, don't modify them once handed to config, create a new PieColumns instead.
+ */
+public final class PieColumns {
+
+    private final double[] values;
+    private final int[] colors;
+    //描述直接以String保存，读取时不需要转换
+    private final String[] descs;
+    private final int size;
+    private final Object[] keys;
+    private final boolean autoDesc;
+    //兼容按行读取的视图，用到时才创建
+    private List<Pair<IPieInfo, Boolean>> rowView;
+
+    /**
+     * @param descs 为null时所有扇形都没有描述
+     */
+    public PieColumns(@NonNull double[] values, @NonNull int[] colors, @Nullable String[] descs) {
+        this(values, colors, descs, null, false);
+    }
+
+    /**
+     * @param descs    为null时所有扇形都没有描述（可以配合autoDesc自动填充百分比）
+     * @param keys     每个扇形的key，选中回调中可以通过{@link Entry#getKey()}取得，可以为null
+     * @param autoDesc 是否自动填充描述，与{@link com.razerdp.widget.animatedpieview.AnimatedPieViewConfig#addData(IPieInfo, boolean)}一致
+     */
+    public PieColumns(@NonNull double[] values,
+                      @NonNull int[] colors,
+                      @Nullable String[] descs,
+                      @Nullable Object[] keys,
+                      boolean autoDesc) {
+        if (values == null || colors == null) {
+            throw new NullPointerException("values and colors must not be null");
+        }
+        if (colors.length != values.length || (descs != null && descs.length != values.length)) {
+            throw new IllegalArgumentException("columns must have the same length , values = " + values.length
+                    + " , colors = " + colors.length
+                    + " , descs = " + (descs == null ? 0 : descs.length));
+        }
+        if (keys != null && keys.length != values.length) {
+            throw new IllegalArgumentException("keys.length = " + keys.length + " , size = " + values.length);
+        }
+        this.values = values;
+        this.colors = colors;
+        this.descs = descs;
+        this.keys = keys;
+        this.autoDesc = autoDesc;
+        this.size = values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    @ColorInt
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    @Nullable
+    public String getDesc(int index) {
+        return descs == null ? null : descs[index];
+    }
+
+    @Nullable
+    public Object getKey(int index) {
+        return keys == null ? null : keys[index];
+    }
+
+    public boolean isAutoDesc() {
+        return autoDesc;
+    }
+
+    /**
+     * <h3>CN:</h3>按行读取的只读视图，只在访问时为对应的扇形创建对象，用于兼容基于{@link IPieInfo}的接口
+     * <p>
+     * <h3>EN:</h3>Read-only row view which only creates objects for the rows accessed.Used by the {@link IPieInfo} based APIs.
+     */
+    public List<Pair<IPieInfo, Boolean>> asRows() {
+        if (rowView == null) {
+            rowView = new AbstractList<Pair<IPieInfo, Boolean>>() {
+                @Override
+                public Pair<IPieInfo, Boolean> get(int index) {
+                    return Pair.create((IPieInfo) getEntry(index), autoDesc);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return rowView;
+    }
+
+    public Entry getEntry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + " , size = " + size);
+        }
+        return new Entry(this, index);
+    }
+
+    /**
+     * <h3>CN:</h3>某一行的{@link IPieInfo}视图，同一行的Entry互相相等
+     * <p>
+     * <h3>EN:</h3>{@link IPieInfo} view of one row.Entries of the same row are equal.
+     */
+    public static final class Entry implements IPieInfo {
+        private final PieColumns columns;
+        private final int index;
+
+        Entry(PieColumns columns, int index) {
+            this.columns = columns;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Nullable
+        public Object getKey() {
+            return columns.getKey(index);
+        }
+
+        @Override
+        public double getValue() {
+            return columns.getValue(index);
+        }
+
+        @Override
+        public int getColor() {
+            return columns.getColor(index);
+        }
+
+        @Override
+        public String getDesc() {
+            return columns.getDesc(index);
+        }
+
+        @Nullable
+        @Override
+        public PieOption getPieOpeion() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof Entry)) return false;
+            Entry other = (Entry) obj;
+            return other.columns == columns && other.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(columns) + index;
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.razerdp.widget.animatedpieview.data;
 import android.graphics.Bitmap;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.DrawableRes;
 import android.support.annotation.IntDef;
+import android.support.annotation.Nullable;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -22,6 +24,9 @@ public class PieOption implements Parcelable {
     public static final int FAR_FROM_PIE = 0x11;
 
     Bitmap mLabelIcon;
+    @DrawableRes
+    int mLabelIconRes;
+    String mLabelIconKey;
     @LabelPosition
     int mLabelPosition = FAR_FROM_PIE;
     int mLabelPadding = 10;
@@ -32,12 +37,19 @@ public class PieOption implements Parcelable {
     protected PieOption(Parcel in) {
         mLabelIcon = in.readParcelable(Bitmap.class.getClassLoader());
         mLabelPosition = in.readInt();
+        mLabelPadding = in.readInt();
+        mLabelIconRes = in.readInt();
+        mLabelIconKey = in.readString();
     }
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeParcelable(mLabelIcon, flags);
+        //通过资源或者key引用图标时不需要写入Bitmap
+        dest.writeParcelable(mLabelIconRes == 0 && mLabelIconKey == null ? mLabelIcon : null, flags);
         dest.writeInt(mLabelPosition);
+        dest.writeInt(mLabelPadding);
+        dest.writeInt(mLabelIconRes);
+        dest.writeString(mLabelIconKey);
     }
 
     @Override
@@ -66,6 +78,45 @@ public class PieOption implements Parcelable {
         return this;
     }
 
+    @DrawableRes
+    public int getLabelIconRes() {
+        return mLabelIconRes;
+    }
+
+    /**
+     * <h3>CN:</h3>通过drawable资源引用图标，图标会在后台解码并且按需缩放，相同的图标在所有甜甜圈之间共享
+     * <p>
+     * <h3>EN:</h3>Reference the icon by drawable resource.It will be decoded and downsampled in background and shared between charts.
+     */
+    public PieOption setLabelIcon(@DrawableRes int labelIconRes) {
+        mLabelIconRes = labelIconRes;
+        return this;
+    }
+
+    public String getLabelIconKey() {
+        return mLabelIconKey;
+    }
+
+    /**
+     * <h3>CN:</h3>通过key引用在{@link com.razerdp.widget.animatedpieview.manager.PieIconCache#register(String, Bitmap)}注册的图标
+     * <p>
+     * <h3>EN:</h3>Reference the icon registered by {@link com.razerdp.widget.animatedpieview.manager.PieIconCache#register(String, Bitmap)}.
+     */
+    public PieOption setLabelIconKey(String labelIconKey) {
+        mLabelIconKey = labelIconKey;
+        return this;
+    }
+
+    /**
+     * @return key > resource > bitmap
+     */
+    @Nullable
+    public Object getLabelIconSource() {
+        if (mLabelIconKey != null) return mLabelIconKey;
+        if (mLabelIconRes != 0) return mLabelIconRes;
+        return mLabelIcon;
+    }
+
     @LabelPosition
     public int getLabelPosition() {
         return mLabelPosition;
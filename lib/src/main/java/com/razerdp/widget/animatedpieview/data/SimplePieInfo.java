@@ -1,6 +1,7 @@
 package com.razerdp.widget.animatedpieview.data;
 
 import android.graphics.Bitmap;
+import android.support.annotation.DrawableRes;
 import android.support.annotation.Nullable;
 
 /**
@@ -46,6 +47,22 @@ public class SimplePieInfo implements IPieInfo {
         return this;
     }
 
+    public SimplePieInfo setLabel(@DrawableRes int resId) {
+        if (mPieOption == null) {
+            mPieOption = new PieOption();
+        }
+        mPieOption.setLabelIcon(resId);
+        return this;
+    }
+
+    public SimplePieInfo setLabel(String iconKey) {
+        if (mPieOption == null) {
+            mPieOption = new PieOption();
+        }
+        mPieOption.setLabelIconKey(iconKey);
+        return this;
+    }
+
     @Override
     public double getValue() {
         return value;
@@ -0,0 +1,449 @@
+package com.razerdp.widget.animatedpieview.manager;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <h3>CN:</h3>进程内共享的标签图标缓存，按照图标来源和目标尺寸缓存，资源和注册图标的解码和缩放都在后台线程完成，并且限制缓存的总字节数
+ * <p>
+ * <h3>EN:</h3>Process-wide cache for label icons which is keyed by icon source and target size.
+ * Resources and registered icons are decoded and downsampled off the main thread, shared between charts and limited by a byte budget.
+ * <p>
+ * 图标来源可以是：drawable资源id（Integer）、通过{@link #register(String, Bitmap)}注册的key（String）或者直接设置的Bitmap。
+ * 直接设置的Bitmap已经在内存中，在调用线程同步缩放，第一帧就能绘制；缓存只弱引用这类Bitmap，不影响外部回收
+ */
+public final class PieIconCache {
+    private static final String TAG = "PieIconCache";
+
+    private static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private static volatile PieIconCache sInstance;
+
+    public static PieIconCache getInstance() {
+        if (sInstance == null) {
+            synchronized (PieIconCache.class) {
+                if (sInstance == null) {
+                    sInstance = new PieIconCache();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    public interface OnIconLoadListener {
+        void onIconLoaded();
+    }
+
+    //以下集合通过this同步访问，可以在主线程或者渲染线程使用
+    private final LinkedHashMap<IconKey, Bitmap> mCache;
+    private final HashMap<IconKey, List<OnIconLoadListener>> mPendingRequests;
+    private final IconKey mProbeKey;
+    private int mMaxBytes;
+    private int mCurrentBytes;
+
+    //后台线程写，主线程读（只记录资源和注册的图标）
+    private final Map<Object, Bitmap> mRegisteredIcons;
+    private final Map<Object, int[]> mSourceSizes;
+
+    private final Handler mMainHandler;
+    private final ExecutorService mDecodeExecutor;
+
+    private PieIconCache() {
+        mCache = new LinkedHashMap<>(16, 0.75f, true);
+        mPendingRequests = new HashMap<>();
+        mProbeKey = new IconKey();
+        mRegisteredIcons = new ConcurrentHashMap<>();
+        mSourceSizes = new ConcurrentHashMap<>();
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mMaxBytes = (int) Math.min(DEFAULT_MAX_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        mDecodeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * <h3>CN:</h3>注册一个图标，PieOption可以通过key引用它而不需要持有Bitmap
+     * <p>
+     * <h3>EN:</h3>Register an icon so that PieOption can reference it by key instead of holding the bitmap.
+     */
+    public PieIconCache register(@NonNull String key, @NonNull Bitmap icon) {
+        mRegisteredIcons.put(key, icon);
+        mSourceSizes.remove(key);
+        removeSource(key);
+        return this;
+    }
+
+    public PieIconCache unregister(@NonNull String key) {
+        mRegisteredIcons.remove(key);
+        mSourceSizes.remove(key);
+        removeSource(key);
+        return this;
+    }
+
+    /**
+     * 移除某个来源所有尺寸的缓存，重新注册同一个key后不会再命中旧的图标
+     */
+    private synchronized void removeSource(Object source) {
+        Iterator<Map.Entry<IconKey, Bitmap>> iterator = mCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<IconKey, Bitmap> entry = iterator.next();
+            if (source.equals(entry.getKey().getSource())) {
+                mCurrentBytes -= entry.getValue().getByteCount();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>设置缓存的最大字节数，超出的部分按照最近最少使用的顺序移除
+     * <p>
+     * <h3>EN:</h3>Set the byte budget of cache.Least recently used icons will be evicted when over budget.
+     */
+    public synchronized PieIconCache setMaxBytes(int maxBytes) {
+        mMaxBytes = Math.max(0, maxBytes);
+        trimToSize(mMaxBytes);
+        return this;
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * <h3>CN:</h3>获取适应(maxWidth,maxHeight)的图标，如果还没有加载完成则在后台加载并返回null，加载完成后在主线程回调listener。
+     * Bitmap来源总是同步返回，不会回调listener
+     * <p>
+     * <h3>EN:</h3>Get the icon which fits in (maxWidth,maxHeight).If it is not ready yet,it will be loaded in background and
+     * the listener will be notified on main thread when it is done.Bitmap sources are always returned synchronously.
+     *
+     * @param source resource id(Integer),registered key(String) or Bitmap
+     */
+    @Nullable
+    public synchronized Bitmap get(Resources res, @Nullable Object source, int maxWidth, int maxHeight, @Nullable OnIconLoadListener l) {
+        if (source == null || maxWidth <= 0 || maxHeight <= 0) return null;
+        if (source instanceof Bitmap) {
+            return getBitmapIcon((Bitmap) source, maxWidth, maxHeight);
+        }
+        int[] sourceSize = mSourceSizes.get(source);
+        if (sourceSize == null) {
+            //尺寸未知，先在后台读取尺寸
+            request(res, new IconKey(source, 0, 0), l);
+            return null;
+        }
+        final int sourceWidth = sourceSize[0];
+        final int sourceHeight = sourceSize[1];
+        if (sourceWidth <= 0 || sourceHeight <= 0) return null;
+        final float scale = fitScale(sourceWidth, sourceHeight, maxWidth, maxHeight);
+        final int width = Math.max(1, Math.round(sourceWidth * scale));
+        final int height = Math.max(1, Math.round(sourceHeight * scale));
+        Bitmap result = probe(source, width, height);
+        if (result != null) return result;
+        request(res, new IconKey(source, width, height), l);
+        return null;
+    }
+
+    /**
+     * <h3>CN:</h3>在调用线程同步加载图标，用于没有界面的渲染（导出、预取），不会产生任何回调
+     * <p>
+     * <h3>EN:</h3>Load the icon synchronously on the calling thread.Used by headless renders(export, prefetch), no callback is ever made.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap getSync(Resources res, @Nullable Object source, int maxWidth, int maxHeight) {
+        if (source == null || maxWidth <= 0 || maxHeight <= 0) return null;
+        if (source instanceof Bitmap) {
+            synchronized (this) {
+                return getBitmapIcon((Bitmap) source, maxWidth, maxHeight);
+            }
+        }
+        int[] sourceSize = mSourceSizes.get(source);
+        if (sourceSize == null) {
+            //只读取尺寸
+            load(res, new IconKey(source, 0, 0));
+            sourceSize = mSourceSizes.get(source);
+            if (sourceSize == null) return null;
+        }
+        if (sourceSize[0] <= 0 || sourceSize[1] <= 0) return null;
+        final float scale = fitScale(sourceSize[0], sourceSize[1], maxWidth, maxHeight);
+        final IconKey key = new IconKey(source,
+                Math.max(1, Math.round(sourceSize[0] * scale)),
+                Math.max(1, Math.round(sourceSize[1] * scale)));
+        synchronized (this) {
+            Bitmap result = probe(source, key.width, key.height);
+            if (result != null) return result;
+        }
+        //在锁外解码，不阻塞主线程的读取
+        final Bitmap bitmap = load(res, key);
+        if (bitmap != null) {
+            synchronized (this) {
+                put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private Bitmap getBitmapIcon(Bitmap source, int maxWidth, int maxHeight) {
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+        if (sourceWidth <= 0 || sourceHeight <= 0) return null;
+        final float scale = fitScale(sourceWidth, sourceHeight, maxWidth, maxHeight);
+        final int width = Math.max(1, Math.round(sourceWidth * scale));
+        final int height = Math.max(1, Math.round(sourceHeight * scale));
+        //不需要缩放时直接使用，不放入缓存
+        if (width == sourceWidth && height == sourceHeight) return source;
+        Bitmap result = probe(source, width, height);
+        if (result == null) {
+            result = Bitmap.createScaledBitmap(source, width, height, true);
+            put(new IconKey(source, width, height), result);
+        }
+        return result;
+    }
+
+    private Bitmap probe(Object source, int width, int height) {
+        mProbeKey.set(source, width, height);
+        Bitmap result = mCache.get(mProbeKey);
+        //探测用的key不持有来源
+        mProbeKey.set(null, 0, 0);
+        return result;
+    }
+
+    private void request(final Resources res, final IconKey key, OnIconLoadListener l) {
+        List<OnIconLoadListener> listeners = mPendingRequests.get(key);
+        if (listeners != null) {
+            if (l != null && !listeners.contains(l)) listeners.add(l);
+            return;
+        }
+        listeners = new ArrayList<>(2);
+        if (l != null) listeners.add(l);
+        mPendingRequests.put(key, listeners);
+        mDecodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = load(res, key);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onLoaded(IconKey key, Bitmap bitmap) {
+        List<OnIconLoadListener> listeners;
+        synchronized (this) {
+            if (bitmap != null && key.width > 0) {
+                put(key, bitmap);
+            }
+            listeners = mPendingRequests.remove(key);
+        }
+        //在锁外回调，避免与渲染线程互相等待
+        if (listeners != null) {
+            for (OnIconLoadListener listener : listeners) {
+                listener.onIconLoaded();
+            }
+        }
+    }
+
+    private void put(IconKey key, Bitmap bitmap) {
+        int size = bitmap.getByteCount();
+        if (size > mMaxBytes) return;
+        purgeStaleKeys();
+        Bitmap old = mCache.put(key, bitmap);
+        mCurrentBytes += size;
+        if (old != null) mCurrentBytes -= old.getByteCount();
+        trimToSize(mMaxBytes);
+    }
+
+    private void trimToSize(int maxBytes) {
+        Iterator<Map.Entry<IconKey, Bitmap>> iterator = mCache.entrySet().iterator();
+        while (mCurrentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<IconKey, Bitmap> eldest = iterator.next();
+            mCurrentBytes -= eldest.getValue().getByteCount();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 移除来源Bitmap已经被回收的缓存，这些缓存不会再被命中
+     */
+    private void purgeStaleKeys() {
+        Iterator<Map.Entry<IconKey, Bitmap>> iterator = mCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<IconKey, Bitmap> entry = iterator.next();
+            if (entry.getKey().isStale()) {
+                mCurrentBytes -= entry.getValue().getByteCount();
+                iterator.remove();
+            }
+        }
+    }
+
+    //-----------------------------------------background-----------------------------------------
+
+    private Bitmap load(Resources res, IconKey key) {
+        try {
+            final Object source = key.getSource();
+            int[] sourceSize = mSourceSizes.get(source);
+            if (sourceSize == null) {
+                sourceSize = decodeSourceSize(res, source);
+                mSourceSizes.put(source, sourceSize);
+            }
+            if (key.width <= 0) {
+                //只是读取尺寸
+                return null;
+            }
+            return decode(res, key, sourceSize);
+        } catch (Exception e) {
+            PLog.e("load icon failed : " + PLog.getCrashInfo(e));
+            return null;
+        }
+    }
+
+    private int[] decodeSourceSize(Resources res, Object source) {
+        if (source instanceof Integer) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeResource(res, (Integer) source, options);
+            return new int[]{options.outWidth, options.outHeight};
+        }
+        Bitmap bitmap = mRegisteredIcons.get(source);
+        if (bitmap == null) return new int[]{0, 0};
+        return new int[]{bitmap.getWidth(), bitmap.getHeight()};
+    }
+
+    private Bitmap decode(Resources res, IconKey key, int[] sourceSize) {
+        final Object source = key.getSource();
+        Bitmap bitmap;
+        if (source instanceof Integer) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateInSampleSize(sourceSize, key.width, key.height);
+            bitmap = BitmapFactory.decodeResource(res, (Integer) source, options);
+        } else {
+            bitmap = mRegisteredIcons.get(source);
+        }
+        if (bitmap == null) return null;
+        if (bitmap.getWidth() == key.width && bitmap.getHeight() == key.height) {
+            return bitmap;
+        }
+        return Bitmap.createScaledBitmap(bitmap, key.width, key.height, true);
+    }
+
+    private static int calculateInSampleSize(int[] sourceSize, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        int halfWidth = sourceSize[0] >> 1;
+        int halfHeight = sourceSize[1] >> 1;
+        while (halfWidth / inSampleSize >= reqWidth && halfHeight / inSampleSize >= reqHeight) {
+            inSampleSize <<= 1;
+        }
+        return inSampleSize;
+    }
+
+    //-----------------------------------------size-----------------------------------------
+
+    private static float fitScale(int sourceWidth, int sourceHeight, int maxWidth, int maxHeight) {
+        float sX = sourceWidth > maxWidth ? (float) maxWidth / sourceWidth : 1.0f;
+        float sY = sourceHeight > maxHeight ? (float) maxHeight / sourceHeight : 1.0f;
+        return Math.min(sX, sY);
+    }
+
+    private static final class IconKey {
+        //资源id和注册的key强引用，Bitmap来源弱引用
+        private Object source;
+        private WeakReference<Bitmap> bitmapSource;
+        private int sourceHash;
+        int width;
+        int height;
+
+        IconKey() {
+        }
+
+        IconKey(Object source, int width, int height) {
+            if (source instanceof Bitmap) {
+                bitmapSource = new WeakReference<>((Bitmap) source);
+                sourceHash = System.identityHashCode(source);
+                this.width = width;
+                this.height = height;
+            } else {
+                set(source, width, height);
+            }
+        }
+
+        /**
+         * 只用于探测，强引用来源
+         */
+        void set(Object source, int width, int height) {
+            this.source = source;
+            this.sourceHash = source instanceof Bitmap ? System.identityHashCode(source) : (source == null ? 0 : source.hashCode());
+            this.width = width;
+            this.height = height;
+        }
+
+        Object getSource() {
+            return bitmapSource != null ? bitmapSource.get() : source;
+        }
+
+        boolean isStale() {
+            return bitmapSource != null && bitmapSource.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof IconKey)) return false;
+            IconKey other = (IconKey) obj;
+            return width == other.width
+                    && height == other.height
+                    && sourceHash == other.sourceHash
+                    && sourceEquals(getSource(), other.getSource());
+        }
+
+        private static boolean sourceEquals(Object a, Object b) {
+            //来源已经被回收的key不与任何key相等
+            if (a == null || b == null) return false;
+            //Bitmap按照引用比较
+            if (a instanceof Bitmap || b instanceof Bitmap) return a == b;
+            return a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sourceHash;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return result;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 
 import com.razerdp.widget.animatedpieview.IPieView;
 import com.razerdp.widget.animatedpieview.manager.PieManager;
+import com.razerdp.widget.animatedpieview.utils.PieTrace;
 
 /**
  * Created by 大灯泡 on 2018/2/1.
@@ -19,6 +20,9 @@ public abstract class BaseRender {
     IPieView mIPieView;
     PieManager mPieManager;
     private volatile boolean isPrepared;
+    private volatile boolean isVisible = true;
+    private Runnable mPrepareRunnable;
+    private boolean isPreparePending;
 
     public BaseRender(IPieView iPieView) {
         mIPieView = iPieView;
@@ -28,7 +32,16 @@ public abstract class BaseRender {
 
     public void draw(Canvas canvas) {
         if (!isPrepared) return;
-        onDraw(canvas);
+        final boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW);
+        try {
+            onDraw(canvas);
+        } finally {
+            PieTrace.end(traced);
+        }
+    }
+
+    public boolean isPrepared() {
+        return isPrepared;
     }
 
     public final void prepare() {
@@ -38,15 +51,52 @@ public abstract class BaseRender {
     public final void prepare(@Nullable final OnPrepareFinishListener l) {
         isPrepared = false;
         reset();
-        mIPieView.getPieView().post(new Runnable() {
+        if (mPrepareRunnable != null) {
+            mIPieView.removeRenderAction(mPrepareRunnable);
+        }
+        mPrepareRunnable = new Runnable() {
             @Override
             public void run() {
-                isPrepared = onPrepare();
-                if (isPrepared) {
-                    handlePrepareFinish(l);
+                isPreparePending = false;
+                final boolean traced = PieTrace.begin(PieTrace.SECTION_PREPARE);
+                try {
+                    isPrepared = onPrepare();
+                    if (isPrepared) {
+                        handlePrepareFinish(l);
+                    }
+                } finally {
+                    PieTrace.end(traced);
                 }
             }
-        });
+        };
+        //不可见的时候推迟到可见时再准备
+        isPreparePending = !isVisible;
+        if (isVisible) {
+            mIPieView.postRenderAction(mPrepareRunnable);
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>宿主可见性变化，不可见时暂停所有动画并推迟prepare
+     * <p>
+     * <h3>EN:</h3>Called when the host's visibility changed.Animations will be paused and preparing will be deferred while invisible.
+     */
+    public final void dispatchVisibilityChanged(boolean visible) {
+        if (isVisible == visible) return;
+        isVisible = visible;
+        if (visible) {
+            if (isPreparePending && mPrepareRunnable != null) {
+                isPreparePending = false;
+                mIPieView.postRenderAction(mPrepareRunnable);
+            }
+            onResume();
+        } else {
+            onPause();
+        }
+    }
+
+    public boolean isVisible() {
+        return isVisible;
     }
 
     public void destroy() {
@@ -64,6 +114,23 @@ public abstract class BaseRender {
 
     public abstract void onDestroy();
 
+    protected void onPause() {
+
+    }
+
+    protected void onResume() {
+
+    }
+
+    /**
+     * <h3>CN:</h3>释放可以重新生成的缓存（比如宿主detach的时候）
+     * <p>
+     * <h3>EN:</h3>Release caches which can be rebuilt lazily(e.g. when the host is detached).
+     */
+    public void releaseCache() {
+
+    }
+
     public void callInvalidate() {
         mIPieView.onCallInvalidate();
     }
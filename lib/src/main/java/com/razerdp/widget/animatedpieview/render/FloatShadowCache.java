@@ -0,0 +1,151 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+/**
+ * <h3>CN:</h3>浮起扇形的阴影缓存，每次选中时按照完全浮起的状态模糊一次，动画期间只需要按比例缩放和调整透明度
+ * <p>
+ * <h3>EN:</h3>Cache of the shadow under floating slices.The shadow is blurred only once per selection at full float state,
+ * and float animations draw it with scaled size and alpha, so the cost no longer depends on the blur radius.
+ */
+final class FloatShadowCache {
+    //同时最多有两个扇形在浮起/落下
+    private static final int SLOT_COUNT = 2;
+
+    private final Shadow[] mShadows;
+    private final Paint mBlurPaint;
+    private final Paint mDrawPaint;
+    private final Path mArcPath;
+    private int nextSlot;
+
+    FloatShadowCache() {
+        mShadows = new Shadow[SLOT_COUNT];
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            mShadows[i] = new Shadow();
+        }
+        mBlurPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mDrawPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        mArcPath = new Path();
+    }
+
+    /**
+     * @param paint       扇形完全浮起时的画笔
+     * @param fullBounds  扇形完全浮起时的绘制区域
+     * @param blurRadius  阴影模糊半径
+     */
+    void draw(Canvas canvas,
+              PieInfoWrapper wrapper,
+              Paint paint,
+              RectF fullBounds,
+              float fromAngle,
+              float sweepAngle,
+              boolean useCenter,
+              float blurRadius,
+              float scale,
+              float timeSet) {
+        if (blurRadius <= 0 || timeSet <= 0 || fullBounds.isEmpty()) return;
+        Shadow shadow = obtain(wrapper, fullBounds, blurRadius);
+        if (shadow.bitmap == null) {
+            build(shadow, paint, fullBounds, fromAngle, sweepAngle, useCenter, blurRadius);
+        }
+        if (shadow.bitmap == null) return;
+        //ALPHA_8的位图使用画笔的颜色绘制
+        mDrawPaint.setColor(paint.getColor());
+        mDrawPaint.setAlpha((int) (paint.getAlpha() * timeSet));
+        canvas.save();
+        canvas.scale(scale, scale);
+        canvas.drawBitmap(shadow.bitmap, shadow.left, shadow.top, mDrawPaint);
+        canvas.restore();
+    }
+
+    void clear() {
+        for (Shadow shadow : mShadows) {
+            shadow.release();
+        }
+    }
+
+    private Shadow obtain(PieInfoWrapper wrapper, RectF fullBounds, float blurRadius) {
+        for (Shadow shadow : mShadows) {
+            if (shadow.owner == wrapper) {
+                if (shadow.blurRadius != blurRadius || !shadow.fullBounds.equals(fullBounds)) {
+                    shadow.release();
+                    shadow.owner = wrapper;
+                }
+                return shadow;
+            }
+        }
+        //替换较早的一个
+        Shadow shadow = mShadows[nextSlot];
+        nextSlot = (nextSlot + 1) % SLOT_COUNT;
+        shadow.release();
+        shadow.owner = wrapper;
+        return shadow;
+    }
+
+    private void build(Shadow shadow,
+                       Paint paint,
+                       RectF fullBounds,
+                       float fromAngle,
+                       float sweepAngle,
+                       boolean useCenter,
+                       float blurRadius) {
+        mArcPath.rewind();
+        if (useCenter) {
+            mArcPath.moveTo(fullBounds.centerX(), fullBounds.centerY());
+            mArcPath.arcTo(fullBounds, fromAngle, sweepAngle);
+            mArcPath.close();
+        } else {
+            mArcPath.addArc(fullBounds, fromAngle, sweepAngle);
+        }
+        RectF area = new RectF();
+        mArcPath.computeBounds(area, true);
+        //模糊会向外扩散
+        final float outset = (paint.getStyle() == Paint.Style.FILL ? 0 : paint.getStrokeWidth() / 2) + blurRadius * 2;
+        area.inset(-outset, -outset);
+        final int width = (int) (Math.ceil(area.right) - Math.floor(area.left));
+        final int height = (int) (Math.ceil(area.bottom) - Math.floor(area.top));
+        if (width <= 0 || height <= 0) return;
+        try {
+            shadow.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        } catch (OutOfMemoryError e) {
+            PLog.e("create float shadow failed : " + PLog.getCrashInfo(e));
+            return;
+        }
+        shadow.left = (float) Math.floor(area.left);
+        shadow.top = (float) Math.floor(area.top);
+        shadow.fullBounds.set(fullBounds);
+        shadow.blurRadius = blurRadius;
+
+        mBlurPaint.set(paint);
+        mBlurPaint.setAlpha(255);
+        mBlurPaint.clearShadowLayer();
+        mBlurPaint.setMaskFilter(new BlurMaskFilter(blurRadius, BlurMaskFilter.Blur.NORMAL));
+        Canvas canvas = new Canvas(shadow.bitmap);
+        canvas.translate(-shadow.left, -shadow.top);
+        canvas.drawPath(mArcPath, mBlurPaint);
+        PLog.i("float shadow built : " + width + "x" + height);
+    }
+
+    private static final class Shadow {
+        PieInfoWrapper owner;
+        Bitmap bitmap;
+        float left;
+        float top;
+        float blurRadius;
+        final RectF fullBounds = new RectF();
+
+        void release() {
+            //硬件加速下上一帧的显示列表可能仍然引用该位图，不主动recycle
+            bitmap = null;
+            owner = null;
+            fullBounds.setEmpty();
+        }
+    }
+}
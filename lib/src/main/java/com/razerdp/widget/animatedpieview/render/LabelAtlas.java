@@ -0,0 +1,234 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+import java.util.Arrays;
+
+/**
+ * <h3>CN:</h3>文字标签图集，把每个扇形的文字和图标预先绘制到同一张Bitmap里，动画期间只需要按透明度贴图。
+ * 图标在文字的哪一侧取决于标签在圆心的左边还是右边，旋转后可能改变，所以带图标的标签两侧各有一个sprite
+ * <p>
+ * <h3>EN:</h3>Texture atlas of labels.Text and icon of each slice are rendered once into a shared bitmap,
+ * so that labels can be drawn as alpha-modulated bitmap blits during animations.
+ * The side of the icon depends on whether the label is on the left or the right of the center, which may change after rotation,
+ * so labels with an icon have one sprite for each side.
+ */
+final class LabelAtlas {
+    private static final int MAX_ATLAS_SIZE = 2048;
+    private static final int SPRITE_PADDING = 1;
+
+    //标签在圆心的哪一侧
+    static final int SIDE_LEFT = 0;
+    static final int SIDE_RIGHT = 1;
+
+    private Bitmap mAtlas;
+    private Canvas mAtlasCanvas;
+    private final Paint mTextPaint;
+    private final Paint mBlitPaint;
+    private final Rect mSrc;
+    private final RectF mDst;
+    private boolean isDirty = true;
+
+    //========== 以下数组以扇形下标为索引 ==========
+    private String[] descs;
+    private Bitmap[] icons;
+    private int[] colors;
+    //相对于文字基线起点的图标top
+    private float[] iconTop;
+
+    //========== 以下数组以sprite下标（扇形下标 * 2 + 侧边）为索引，没有图标的标签只使用左侧 ==========
+    //相对于文字基线起点的sprite边界
+    private int[] spriteLeft;
+    private int[] spriteTop;
+    private int[] spriteWidth;
+    private int[] spriteHeight;
+    //相对于文字基线起点的图标left
+    private float[] iconLeft;
+    //在图集中的位置，-1代表没有sprite
+    private int[] atlasX;
+    private int[] atlasY;
+    private int count;
+
+    //上一次构建时的文字参数
+    private float lastTextSize;
+    private Typeface lastTypeface;
+
+    LabelAtlas() {
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setStyle(Paint.Style.FILL);
+        mBlitPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        mSrc = new Rect();
+        mDst = new RectF();
+        ensureCapacity(16);
+    }
+
+    void setDirty() {
+        isDirty = true;
+    }
+
+    boolean isDirty(float textSize, Typeface typeface) {
+        return isDirty || textSize != lastTextSize || typeface != lastTypeface;
+    }
+
+    //-----------------------------------------build-----------------------------------------
+
+    void begin(int size, float textSize, Typeface typeface) {
+        ensureCapacity(size);
+        Arrays.fill(descs, null);
+        Arrays.fill(icons, null);
+        Arrays.fill(spriteWidth, 0);
+        Arrays.fill(spriteHeight, 0);
+        count = size;
+        lastTextSize = textSize;
+        lastTypeface = typeface;
+        mTextPaint.setTextSize(textSize);
+        mTextPaint.setTypeface(typeface);
+    }
+
+    /**
+     * @param textBounds 文字相对于基线起点的边界
+     * @param iconXLeft  标签在左侧时图标相对于基线起点的x，没有图标时忽略
+     * @param iconXRight 标签在右侧时图标相对于基线起点的x，没有图标时忽略
+     */
+    void add(int index, String desc, int color, Rect textBounds, Bitmap icon, float iconXLeft, float iconXRight) {
+        descs[index] = desc;
+        colors[index] = color;
+        icons[index] = icon;
+        iconTop[index] = -textBounds.height();
+        measureSprite(index * 2 + SIDE_LEFT, textBounds, icon, iconXLeft, iconTop[index]);
+        if (icon != null) {
+            measureSprite(index * 2 + SIDE_RIGHT, textBounds, icon, iconXRight, iconTop[index]);
+        }
+    }
+
+    private void measureSprite(int sprite, Rect textBounds, Bitmap icon, float iconX, float iconY) {
+        float left = textBounds.left;
+        float top = textBounds.top;
+        float right = textBounds.right;
+        float bottom = textBounds.bottom;
+        if (icon != null) {
+            iconLeft[sprite] = iconX;
+            left = Math.min(left, iconX);
+            top = Math.min(top, iconY);
+            right = Math.max(right, iconX + icon.getWidth());
+            bottom = Math.max(bottom, iconY + icon.getHeight());
+        }
+        spriteLeft[sprite] = (int) Math.floor(left) - SPRITE_PADDING;
+        spriteTop[sprite] = (int) Math.floor(top) - SPRITE_PADDING;
+        spriteWidth[sprite] = (int) Math.ceil(right) + SPRITE_PADDING - spriteLeft[sprite];
+        spriteHeight[sprite] = (int) Math.ceil(bottom) + SPRITE_PADDING - spriteTop[sprite];
+    }
+
+    void end() {
+        isDirty = false;
+        //shelf packing
+        final int spriteCount = count * 2;
+        int atlasWidth = 0;
+        long area = 0;
+        for (int i = 0; i < spriteCount; i++) {
+            atlasWidth = Math.max(atlasWidth, spriteWidth[i]);
+            area += (long) spriteWidth[i] * spriteHeight[i];
+        }
+        atlasWidth = Math.min(MAX_ATLAS_SIZE, Math.max(atlasWidth, (int) Math.ceil(Math.sqrt(area))));
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (int i = 0; i < spriteCount; i++) {
+            if (spriteWidth[i] <= 0 || spriteWidth[i] > atlasWidth) {
+                atlasX[i] = -1;
+                continue;
+            }
+            if (x + spriteWidth[i] > atlasWidth) {
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+            if (y + spriteHeight[i] > MAX_ATLAS_SIZE) {
+                //放不下的标签直接绘制
+                atlasX[i] = -1;
+                continue;
+            }
+            atlasX[i] = x;
+            atlasY[i] = y;
+            x += spriteWidth[i];
+            shelfHeight = Math.max(shelfHeight, spriteHeight[i]);
+        }
+        final int atlasHeight = y + shelfHeight;
+        if (atlasWidth <= 0 || atlasHeight <= 0) {
+            return;
+        }
+        if (mAtlas == null || mAtlas.getWidth() < atlasWidth || mAtlas.getHeight() < atlasHeight) {
+            //不能调用release()，它会把刚构建的图集重新标记为dirty，导致下一帧再构建一次
+            mAtlas = Bitmap.createBitmap(atlasWidth, atlasHeight, Bitmap.Config.ARGB_8888);
+            mAtlasCanvas = new Canvas(mAtlas);
+        } else {
+            mAtlas.eraseColor(0);
+        }
+        for (int i = 0; i < spriteCount; i++) {
+            if (atlasX[i] < 0) continue;
+            final int index = i / 2;
+            final float originX = atlasX[i] - spriteLeft[i];
+            final float originY = atlasY[i] - spriteTop[i];
+            if (icons[index] != null) {
+                mAtlasCanvas.drawBitmap(icons[index], originX + iconLeft[i], originY + iconTop[index], mBlitPaint);
+            }
+            mTextPaint.setColor(colors[index]);
+            mTextPaint.setAlpha(255);
+            mAtlasCanvas.drawText(descs[index], originX, originY, mTextPaint);
+        }
+        PLog.i("label atlas built : " + count + " labels in " + atlasWidth + "x" + atlasHeight);
+    }
+
+    //-----------------------------------------draw-----------------------------------------
+
+    /**
+     * @param side {@link #SIDE_LEFT}或者{@link #SIDE_RIGHT}，标签当前（包含旋转）在圆心的哪一侧
+     * @return false代表该标签没有sprite，需要直接绘制
+     */
+    boolean draw(Canvas canvas, int index, int side, float textStartX, float textStartY, int alpha) {
+        if (mAtlas == null || isDirty || index < 0 || index >= count) {
+            return false;
+        }
+        final int sprite = index * 2 + (icons[index] == null ? SIDE_LEFT : side);
+        if (atlasX[sprite] < 0) return false;
+        mSrc.set(atlasX[sprite], atlasY[sprite], atlasX[sprite] + spriteWidth[sprite], atlasY[sprite] + spriteHeight[sprite]);
+        mDst.set(textStartX + spriteLeft[sprite],
+                textStartY + spriteTop[sprite],
+                textStartX + spriteLeft[sprite] + spriteWidth[sprite],
+                textStartY + spriteTop[sprite] + spriteHeight[sprite]);
+        mBlitPaint.setAlpha(alpha);
+        canvas.drawBitmap(mAtlas, mSrc, mDst, mBlitPaint);
+        return true;
+    }
+
+    void release() {
+        //硬件加速下上一帧的显示列表可能仍然引用该位图，不主动recycle
+        mAtlas = null;
+        mAtlasCanvas = null;
+        isDirty = true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (descs != null && descs.length >= size) return;
+        int newSize = Math.max(size, descs == null ? 16 : descs.length << 1);
+        descs = new String[newSize];
+        icons = new Bitmap[newSize];
+        colors = new int[newSize];
+        iconTop = new float[newSize];
+        final int spriteSize = newSize * 2;
+        spriteLeft = new int[spriteSize];
+        spriteTop = new int[spriteSize];
+        spriteWidth = new int[spriteSize];
+        spriteHeight = new int[spriteSize];
+        iconLeft = new float[spriteSize];
+        atlasX = new int[spriteSize];
+        atlasY = new int[spriteSize];
+    }
+}
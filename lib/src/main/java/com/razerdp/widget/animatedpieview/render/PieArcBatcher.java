@@ -0,0 +1,162 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>扇形合批器，把相邻的同色扇形或者弧长不足1px的扇形合并成一次drawArc，使绘制次数只与屏幕分辨率相关，而与数据量无关
+ * <p>
+ * <h3>EN:</h3>Merges consecutive slices which share the same color, or which are narrower than one pixel,
+ * into a single arc so that the draw call count is bounded by the screen resolution instead of the data size.
+ */
+final class PieArcBatcher {
+
+    private static final float MIN_ARC_PIXEL = 1f;
+
+    //每一批的绘制参数，下标一一对应
+    private PieInfoWrapper[] batchPaintOwners;
+    private float[] batchFromAngles;
+    private float[] batchSweepAngles;
+    private int batchCount;
+
+    //上一次合批的条件，条件不变则无需重新计算
+    private int lastSize = -1;
+    private float lastRadius = -1;
+    private float lastSplitAngle;
+    private PieInfoWrapper lastBreakerA;
+    private PieInfoWrapper lastBreakerB;
+    private PieInfoWrapper lastBreakerC;
+    private PieSelection lastSelection;
+    private int lastSelectionVersion;
+
+    PieArcBatcher() {
+        batchPaintOwners = new PieInfoWrapper[16];
+        batchFromAngles = new float[16];
+        batchSweepAngles = new float[16];
+    }
+
+    void reset() {
+        Arrays.fill(batchPaintOwners, null);
+        batchCount = 0;
+        lastSize = -1;
+        lastRadius = -1;
+        lastBreakerA = null;
+        lastBreakerB = null;
+        lastBreakerC = null;
+        lastSelection = null;
+    }
+
+    /**
+     * 计算合批，breaker所在的扇形不参与合并（比如点击浮起的扇形，它们的透明度和其他扇形不一样）
+     */
+    void batch(List<PieInfoWrapper> wrappers,
+               float radius,
+               float splitAngle,
+               PieInfoWrapper breakerA,
+               PieInfoWrapper breakerB,
+               PieInfoWrapper breakerC) {
+        batch(wrappers, radius, splitAngle, breakerA, breakerB, breakerC, null);
+    }
+
+    /**
+     * @param selection 多选模式下，选中或者还在落下的扇形同样不参与合并
+     */
+    void batch(List<PieInfoWrapper> wrappers,
+               float radius,
+               float splitAngle,
+               PieInfoWrapper breakerA,
+               PieInfoWrapper breakerB,
+               PieInfoWrapper breakerC,
+               PieSelection selection) {
+        final int size = wrappers == null ? 0 : wrappers.size();
+        if (size == lastSize
+                && radius == lastRadius
+                && splitAngle == lastSplitAngle
+                && breakerA == lastBreakerA
+                && breakerB == lastBreakerB
+                && breakerC == lastBreakerC
+                && selection == lastSelection
+                && (selection == null || selection.getVersion() == lastSelectionVersion)) {
+            return;
+        }
+        lastSize = size;
+        lastRadius = radius;
+        lastSplitAngle = splitAngle;
+        lastBreakerA = breakerA;
+        lastBreakerB = breakerB;
+        lastBreakerC = breakerC;
+        lastSelection = selection;
+        lastSelectionVersion = selection == null ? 0 : selection.getVersion();
+
+        batchCount = 0;
+        if (size == 0) return;
+        ensureCapacity(size);
+
+        PieInfoWrapper runLast = null;
+        boolean runLastBreaker = false;
+        float runArcLength = 0;
+        boolean runSubPixel = false;
+        for (int i = 0; i < size; i++) {
+            PieInfoWrapper wrapper = wrappers.get(i);
+            boolean isBreaker = wrapper == breakerA || wrapper == breakerB || wrapper == breakerC
+                    || (selection != null && selection.isFloating(wrapper.getIndex()));
+            boolean merge = runLast != null
+                    && !isBreaker
+                    && !runLastBreaker
+                    && runLast.getNextWrapper() == wrapper
+                    && canMerge(batchPaintOwners[batchCount - 1], runSubPixel, runArcLength, wrapper, splitAngle);
+            if (merge) {
+                batchSweepAngles[batchCount - 1] += wrapper.getSweepAngle();
+                runArcLength += wrapper.getArcLength();
+                runSubPixel = runSubPixel && wrapper.isSubPixel();
+            } else {
+                batchPaintOwners[batchCount] = wrapper;
+                batchFromAngles[batchCount] = wrapper.getFromAngle();
+                batchSweepAngles[batchCount] = wrapper.getSweepAngle();
+                batchCount++;
+                runArcLength = wrapper.getArcLength();
+                runSubPixel = wrapper.isSubPixel();
+            }
+            runLast = wrapper;
+            runLastBreaker = isBreaker;
+        }
+        if (PLog.isDebuggable()) {
+            PLog.d("batch arcs : " + size + " -> " + batchCount);
+        }
+    }
+
+    private boolean canMerge(PieInfoWrapper paintOwner, boolean runSubPixel, float runArcLength, PieInfoWrapper wrapper, float splitAngle) {
+        //不足1px的扇形互相合并，直到累计满1px
+        if (runSubPixel && wrapper.isSubPixel()) {
+            return runArcLength < MIN_ARC_PIXEL;
+        }
+        //同色扇形在没有分割角度的情况下合并后画面完全一致
+        return splitAngle <= 0 && paintOwner.getDrawPaint().getColor() == wrapper.getDrawPaint().getColor();
+    }
+
+    private void ensureCapacity(int size) {
+        if (batchPaintOwners.length >= size) return;
+        int newSize = Math.max(size, batchPaintOwners.length << 1);
+        batchPaintOwners = Arrays.copyOf(batchPaintOwners, newSize);
+        batchFromAngles = Arrays.copyOf(batchFromAngles, newSize);
+        batchSweepAngles = Arrays.copyOf(batchSweepAngles, newSize);
+    }
+
+    int getBatchCount() {
+        return batchCount;
+    }
+
+    PieInfoWrapper getPaintOwner(int index) {
+        return batchPaintOwners[index];
+    }
+
+    float getFromAngle(int index) {
+        return batchFromAngles[index];
+    }
+
+    float getSweepAngle(int index) {
+        return batchSweepAngles[index];
+    }
+}
@@ -1,6 +1,7 @@
 package com.razerdp.widget.animatedpieview.render;
 
 import android.animation.ValueAnimator;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -8,22 +9,43 @@ import android.graphics.Path;
 import android.graphics.PathMeasure;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
 import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 import android.view.animation.Transformation;
 
 import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
 import com.razerdp.widget.animatedpieview.IPieView;
+import com.razerdp.widget.animatedpieview.PieLayoutPrefetcher;
 import com.razerdp.widget.animatedpieview.data.IPieInfo;
+import com.razerdp.widget.animatedpieview.data.PieColumns;
 import com.razerdp.widget.animatedpieview.data.PieOption;
+import com.razerdp.widget.animatedpieview.data.SimplePieInfo;
+import com.razerdp.widget.animatedpieview.manager.PieIconCache;
+import com.razerdp.widget.animatedpieview.snapshot.PieSnapshot;
+import com.razerdp.widget.animatedpieview.snapshot.PieSnapshotWriter;
+import com.razerdp.widget.animatedpieview.snapshot.PieTimeline;
 import com.razerdp.widget.animatedpieview.utils.AnimationCallbackUtils;
+import com.razerdp.widget.animatedpieview.utils.DegreeUtil;
 import com.razerdp.widget.animatedpieview.utils.PLog;
+import com.razerdp.widget.animatedpieview.utils.PieTrace;
 import com.razerdp.widget.animatedpieview.utils.Util;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,6 +54,39 @@ import java.util.List;
  */
 public class PieChartRender extends BaseRender implements ITouchRender {
 
+    //drawCachedPie的绘制范围
+    private static final int CACHED_ALL = 0;
+    //不受点击影响的扇形
+    private static final int CACHED_UNAFFECTED = 1;
+    //正在浮起或者落下的扇形
+    private static final int CACHED_AFFECTED = 2;
+
+    //drawLabel的绘制部分
+    private static final int LABEL_PART_ALL = 0;
+    //只绘制指示点和指示线，跟随扇形的透明度
+    private static final int LABEL_PART_GUIDE = 1;
+    //只绘制文字和图标
+    private static final int LABEL_PART_TEXT = 2;
+
+    /**
+     * <h3>CN:</h3>扇形数据和选中状态的监听，用于图例等与甜甜圈联动的组件
+     * <p>
+     * <h3>EN:</h3>Listener of slices and their selection, used by components bound to the pie such as the legend.
+     */
+    public interface OnSliceListener {
+        /**
+         * 扇形重新准备完成或者描述文字发生变化，在渲染线程回调
+         */
+        void onSlicesChanged();
+
+        /**
+         * 选中状态变化
+         *
+         * @param index 扇形下标，-1代表批量变化
+         */
+        void onSliceSelected(int index, boolean selected);
+    }
+
     enum DrawMode {
         DRAW,
         TOUCH
@@ -55,7 +110,8 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
     }
 
-    private List<PieInfoWrapper> mDataWrappers;
+    //prepare时整体替换，其他线程拿到的列表不会再被修改
+    private volatile List<PieInfoWrapper> mDataWrappers;
     private List<PieInfoWrapper> mCachedDrawWrappers;
     private PathMeasure mPathMeasure;
     private AnimatedPieViewConfig mConfig;
@@ -71,6 +127,53 @@ public class PieChartRender extends BaseRender implements ITouchRender {
     //-----------------------------------------other-----------------------------------------
     private TouchHelper mTouchHelper;
     private RenderAnimation mRenderAnimation;
+    private PieArcBatcher mArcBatcher;
+    private LabelAtlas mLabelAtlas;
+    private FloatShadowCache mFloatShadowCache;
+    private TouchBaseLayer mTouchBaseLayer;
+    private Paint mBaseLayerPaint;
+    //正在绘制点击模式的底层缓存
+    private boolean mBaseLayerPass;
+    //底层缓存分层绘制时drawLabel的绘制部分
+    private int mLabelPart = LABEL_PART_ALL;
+    private PieLayoutVisitor.LabelLayout mLabelLayout;
+    private QualityGovernor mQualityGovernor;
+    private int mQualityLevel = QualityGovernor.LEVEL_FULL;
+    //当前帧绘制的文字数量，只用于埋点计数
+    private int mVisibleLabelCount;
+    private boolean mAntiAliasApplied = true;
+    private PieLodPyramid mLodPyramid;
+    private PieSelection mSelection;
+    private SelectEventDispatcher mSelectEventDispatcher;
+    @AnimatedPieViewConfig.SelectionMode
+    private int mSelectionMode;
+    private AnimatedPieViewConfig.Fingerprint mFingerprint;
+    private double mSum;
+    //等待加载的快照，只在下一次prepare中使用
+    private volatile PieSnapshot mPendingSnapshot;
+    //当前数据来自的快照，布局变化后失效
+    private PieSnapshot mSnapshot;
+    //半径与快照一致，可以直接使用快照中的文字位置
+    private boolean mSnapshotLayoutValid;
+    private float[] mSnapshotLabel;
+    //等待加载的时间轴，只在下一次prepare中使用
+    private volatile PieTimeline mPendingTimeline;
+    //当前播放的时间轴，为null时数据来自config或者快照
+    private PieTimeline mTimeline;
+    private float mTimelinePosition;
+    //当前描述文字所在的步骤
+    private int mTimelineStep = -1;
+    //所有步骤中最宽的描述，-1为未测量。自动大小按它计算半径，播放和拖动时半径保持不变
+    private int mTimelineDescTextLength = -1;
+    private ValueAnimator mTimelineAnimator;
+    //播放被onPause暂停，onResume只恢复这种情况
+    private boolean mTimelinePausedByLifecycle;
+    //暂停时动画已经播放的时间，-1代表没有暂停
+    private long mPausedPlayTime = -1;
+    private volatile OnSliceListener mOnSliceListener;
+    private PieIconCache.OnIconLoadListener mIconLoadListener;
+    //没有界面的渲染在调用线程同步加载图标，不会收到图标回调
+    private boolean mHeadless;
     private volatile boolean animHasStart;
 
     public PieChartRender(IPieView iPieView) {
@@ -80,7 +183,38 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         mPathMeasure = new PathMeasure();
         pieBounds = new RectF();
         mTouchHelper = new TouchHelper();
+        mArcBatcher = new PieArcBatcher();
+        mLabelAtlas = new LabelAtlas();
+        mFloatShadowCache = new FloatShadowCache();
+        mTouchBaseLayer = new TouchBaseLayer();
+        mBaseLayerPaint = new Paint();
+        mLabelLayout = new PieLayoutVisitor.LabelLayout();
+        mQualityGovernor = new QualityGovernor();
+        mLodPyramid = new PieLodPyramid();
+        mSelection = new PieSelection();
+        mSelectEventDispatcher = new SelectEventDispatcher(iPieView);
         pieRadius = 0;
+        final Runnable iconLoadedAction = new Runnable() {
+            @Override
+            public void run() {
+                if (!isPrepared() || mConfig == null) return;
+                //图标尺寸会影响文字区域的宽度
+                measureDescText();
+                mTouchBaseLayer.invalidate();
+                if (mConfig.isAutoSize() && !isInAnimating) {
+                    pieRadius = 0;
+                }
+                callInvalidate();
+            }
+        };
+        mIconLoadListener = new PieIconCache.OnIconLoadListener() {
+            @Override
+            public void onIconLoaded() {
+                //图标在主线程回调，切换到渲染线程处理
+                mIPieView.removeRenderAction(iconLoadedAction);
+                mIPieView.postRenderAction(iconLoadedAction);
+            }
+        };
     }
 
     @Override
@@ -91,15 +225,25 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         isInAnimating = false;
         pieRadius = 0;
 
-        mDataWrappers = mDataWrappers == null ? new ArrayList<PieInfoWrapper>() : mDataWrappers;
-        mDataWrappers.clear();
+        //不能原地清空，触摸和动画可能还在遍历旧的列表
+        mDataWrappers = new ArrayList<>();
 
         mCachedDrawWrappers = mCachedDrawWrappers == null ? new ArrayList<PieInfoWrapper>() : mCachedDrawWrappers;
         mCachedDrawWrappers.clear();
 
+        mArcBatcher.reset();
+        mFloatShadowCache.clear();
+        mTouchBaseLayer.invalidate();
+        mLodPyramid.setDirty();
+        mSnapshot = null;
+        mSnapshotLayoutValid = false;
+        mTimelinePausedByLifecycle = false;
+        if (mTimelineAnimator != null) mTimelineAnimator.cancel();
+
         mDrawingPie = null;
         mRenderAnimation = null;
-        mIPieView.getPieView().clearAnimation();
+        mPausedPlayTime = -1;
+        mIPieView.clearRenderAnimation();
     }
 
     @Override
@@ -112,35 +256,458 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         setDrawMode(DrawMode.DRAW);
         mTouchHelper.prepare();
         prepareAnim();
+        prepareLayout(mConfig);
+        return true;
+    }
+
+    /**
+     * 准备画质、选择状态、数据和布局，不创建动画和手势。
+     * 本地单元测试中android.jar只返回默认值，动画和手势无法创建，测试直接调用它来驱动绘制路径
+     */
+    @VisibleForTesting
+    void prepareLayout(AnimatedPieViewConfig config) {
+        mConfig = config;
+        mQualityGovernor.reset(mIPieView.getViewContext(), mConfig.isAdaptiveQuality());
+        //新的画笔默认开启抗锯齿
+        mQualityLevel = QualityGovernor.LEVEL_FULL;
+        mAntiAliasApplied = true;
+        mSelectionMode = mConfig.getSelectionMode();
+        //只读取一次发布的数据，指纹、行和列都来自同一次发布
+        final AnimatedPieViewConfig.PublishedDatas published = mConfig.getPublishedDatas();
+        final AnimatedPieViewConfig.Fingerprint fingerprint = mConfig.fingerprint(published);
+        final List<Pair<IPieInfo, Boolean>> datas = published.getDatas();
+        final PieSnapshot snapshot = mPendingSnapshot;
+        mPendingSnapshot = null;
+        final PieTimeline timeline = mPendingTimeline;
+        mPendingTimeline = null;
+        mTimeline = null;
+        if (timeline != null) {
+            prepareTimeline(timeline);
+            mFingerprint = fingerprint;
+            notifySlicesChanged();
+            return;
+        }
+        if (snapshot != null) {
+            final long configHash = snapshot.getConfigHash();
+            if (configHash == 0 || configHash == fingerprint.getLayoutHash()) {
+                prepareSnapshot(snapshot, published);
+                mFingerprint = fingerprint;
+                notifySlicesChanged();
+                return;
+            }
+            Log.w(TAG, "onPrepare: snapshot was laid out with another config,use the datas of config instead");
+        }
         //wrap datas and calculate sum value
         //包裹数据并且计算总和
+        final PieColumns columns = published.getColumns();
+        final int size = columns != null ? columns.size() : datas.size();
         double sum = 0;
         PieInfoWrapper preWrapper = null;
-        for (Pair<IPieInfo, Boolean> info : mConfig.getDatas()) {
-            sum += Math.abs(info.first.getValue());
-            PieInfoWrapper wrapper = new PieInfoWrapper(info.first);
-            wrapper.setAutoDesc(info.second);
+        final List<PieInfoWrapper> wrappers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            PieInfoWrapper wrapper;
+            if (columns != null) {
+                //按列的数据直接读取数组，不经过IPieInfo
+                wrapper = new PieInfoWrapper(columns, i);
+                wrapper.setAutoDesc(columns.isAutoDesc());
+            } else {
+                Pair<IPieInfo, Boolean> info = datas.get(i);
+                wrapper = new PieInfoWrapper(info.first);
+                wrapper.setAutoDesc(info.second);
+                wrapper.setIndex(i);
+            }
+            sum += Math.abs(wrapper.getValue());
             //简单的形成一个链表
             if (preWrapper != null) {
                 preWrapper.setNextWrapper(wrapper);
                 wrapper.setPreWrapper(preWrapper);
             }
             preWrapper = wrapper;
-            mDataWrappers.add(wrapper);
+            wrappers.add(wrapper);
         }
 
-        //calculate degree for each pieInfoWrapper
-        //计算每个wrapper的角度
-        float lastAngle = mConfig.getStartAngle();
+        mDataWrappers = wrappers;
+        mSum = sum;
+        mSelection.reset(mDataWrappers.size());
+
         for (PieInfoWrapper dataWrapper : mDataWrappers) {
             dataWrapper.prepare(mConfig);
-            lastAngle = dataWrapper.calculateDegree(lastAngle, sum, mConfig);
-            int textWidth = mPieManager.measureTextBounds(dataWrapper.getDesc(), (int) mConfig.getTextSize()).width();
-            int textHeight = mPieManager.measureTextBounds(dataWrapper.getDesc(), (int) mConfig.getTextSize()).height();
+        }
+        calculateDegrees();
+        measureDescText();
+        mFingerprint = fingerprint;
+        notifySlicesChanged();
+    }
+
+    /**
+     * 直接使用快照中的数据、角度和文字宽度，不遍历config的数据，也不计算角度和测量文字
+     */
+    private void prepareSnapshot(PieSnapshot snapshot, AnimatedPieViewConfig.PublishedDatas published) {
+        final int count = snapshot.getSliceCount();
+        //config的数据与快照一一对应时（例如预取的布局）沿用config的数据，选中回调拿到的依然是外部的对象
+        final List<Pair<IPieInfo, Boolean>> configDatas = published.getDatas();
+        final PieColumns columns = published.getColumns();
+        final boolean useColumns = columns != null && isSnapshotOf(snapshot, columns);
+        final List<Pair<IPieInfo, Boolean>> datas = columns == null && isSnapshotOf(snapshot, configDatas) ? configDatas : null;
+        final List<PieInfoWrapper> wrappers = new ArrayList<>(count);
+        PieInfoWrapper preWrapper = null;
+        for (int i = 0; i < count; i++) {
+            //描述需要解码字符串，每个扇形只读取一次
+            final String desc = snapshot.getDesc(i);
+            PieInfoWrapper wrapper;
+            if (useColumns) {
+                wrapper = new PieInfoWrapper(columns, i);
+            } else {
+                wrapper = new PieInfoWrapper(datas == null
+                        ? new SimplePieInfo(snapshot.getValue(i), snapshot.getColor(i), desc)
+                        : datas.get(i).first);
+                wrapper.setIndex(i);
+            }
+            wrapper.restoreDegree(snapshot.getFromAngle(i), snapshot.getSweepAngle(i), desc);
+            //0代表快照中没有记录
+            wrapper.setTextWidth(snapshot.getTextWidth(i));
+            if (preWrapper != null) {
+                preWrapper.setNextWrapper(wrapper);
+                wrapper.setPreWrapper(preWrapper);
+            }
+            preWrapper = wrapper;
+            wrapper.prepare(mConfig);
+            wrappers.add(wrapper);
+        }
+        mDataWrappers = wrappers;
+        mSum = snapshot.getSum();
+        mSelection.reset(count);
+        maxDescTextLength = snapshot.getMaxDescTextLength();
+        mLabelAtlas.setDirty();
+        mSnapshot = snapshot;
+        if (mSnapshotLabel == null) mSnapshotLabel = new float[8];
+    }
+
+    private static boolean isSnapshotOf(PieSnapshot snapshot, PieColumns columns) {
+        if (columns.size() != snapshot.getSliceCount()) return false;
+        for (int i = 0, count = columns.size(); i < count; i++) {
+            if (Double.compare(columns.getValue(i), snapshot.getValue(i)) != 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSnapshotOf(PieSnapshot snapshot, List<Pair<IPieInfo, Boolean>> datas) {
+        if (datas == null || datas.size() != snapshot.getSliceCount()) return false;
+        for (int i = 0, count = datas.size(); i < count; i++) {
+            if (Double.compare(datas.get(i).first.getValue(), snapshot.getValue(i)) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 每个分类对应一个扇形，角度和数值在{@link #applyTimeline(float)}中按照当前位置插值
+     */
+    private void prepareTimeline(PieTimeline timeline) {
+        final int count = timeline.getCategoryCount();
+        final List<PieInfoWrapper> wrappers = new ArrayList<>(count);
+        PieInfoWrapper preWrapper = null;
+        for (int i = 0; i < count; i++) {
+            PieInfoWrapper wrapper = new PieInfoWrapper(new SimplePieInfo(0, timeline.getColor(i), null));
+            wrapper.setIndex(i);
+            if (preWrapper != null) {
+                preWrapper.setNextWrapper(wrapper);
+                wrapper.setPreWrapper(preWrapper);
+            }
+            preWrapper = wrapper;
+            wrapper.prepare(mConfig);
+            wrappers.add(wrapper);
+        }
+        mDataWrappers = wrappers;
+        mSelection.reset(count);
+        mTimeline = timeline;
+        mTimelineStep = -1;
+        mTimelineDescTextLength = -1;
+        applyTimeline(mTimelinePosition);
+    }
+
+    /**
+     * 按照位置插值每个扇形的数值和角度，描述文字取最近的一步，只有跨过步骤时才重新测量
+     */
+    private void applyTimeline(float position) {
+        final PieTimeline timeline = mTimeline;
+        mTimelinePosition = timeline.clampPosition(position);
+        final int step = timeline.getNearestStep(mTimelinePosition);
+        final boolean stepChanged = step != mTimelineStep;
+        mTimelineStep = step;
+        double sum = 0;
+        for (PieInfoWrapper wrapper : mDataWrappers) {
+            final int category = wrapper.getIndex();
+            final double value = timeline.getValue(category, mTimelinePosition);
+            SimplePieInfo info = (SimplePieInfo) wrapper.getPieInfo();
+            info.setValue((float) value);
+            if (stepChanged) {
+                //最近的一步缺少该分类时不显示文字
+                final String desc = timeline.getDesc(category, step);
+                info.setDesc(desc == null ? "" : desc);
+            }
+            sum += Math.abs(value);
+            wrapper.restoreDegree(timeline.getFromAngle(category, mTimelinePosition),
+                    timeline.getSweepAngle(category, mTimelinePosition),
+                    info.getDesc());
+            if (pieRadius > 0) {
+                wrapper.measureArcLength(pieRadius);
+            }
+        }
+        mSum = sum;
+        mArcBatcher.reset();
+        mLodPyramid.setDirty();
+        mTouchBaseLayer.invalidate();
+        if (stepChanged) {
+            //最大文字宽度已经包含所有步骤，不需要重新计算半径
+            measureDescText();
+            notifySlicesChanged();
+        }
+    }
+
+    /**
+     * @return 时间轴所有步骤中最宽的描述文字
+     */
+    private int measureTimelineDescText(PieTimeline timeline) {
+        int maxLength = 0;
+        for (int step = 0, stepCount = timeline.getStepCount(); step < stepCount; step++) {
+            for (int category = 0, count = timeline.getCategoryCount(); category < count; category++) {
+                final String desc = timeline.getDesc(category, step);
+                if (TextUtils.isEmpty(desc)) continue;
+                maxLength = Math.max(maxLength, mPieManager.measureTextBounds(desc, (int) mConfig.getTextSize()).width());
+            }
+        }
+        return maxLength;
+    }
+
+    /**
+     * <h3>CN:</h3>使用时间轴准备甜甜圈，每个分类对应一个扇形，初始停在position的位置。config只提供样式和动画等配置
+     * <p>
+     * <h3>EN:</h3>Prepare the pie with a timeline, one slice per category, starting at position.
+     * Config only provides the style and animation options.
+     *
+     * @param position 时间轴位置，范围[0, stepCount - 1]，小数部分为两步之间的插值
+     */
+    public void prepare(PieTimeline timeline, float position) {
+        mPendingTimeline = timeline;
+        mTimelinePosition = position;
+        prepare();
+    }
+
+    /**
+     * <h3>CN:</h3>拖动到时间轴的某个位置，会停止正在进行的播放
+     * <p>
+     * <h3>EN:</h3>Scrub to a position of the timeline.Playback in progress will be stopped.
+     */
+    public void seekTimeline(float position) {
+        stopTimeline();
+        setTimelinePosition(position);
+    }
+
+    /**
+     * <h3>CN:</h3>从当前位置播放到时间轴的最后一步
+     * <p>
+     * <h3>EN:</h3>Play from the current position to the last step of the timeline.
+     *
+     * @param stepDuration 每一步的时长
+     */
+    public void playTimeline(long stepDuration) {
+        final PieTimeline timeline = mTimeline != null ? mTimeline : mPendingTimeline;
+        if (timeline == null) return;
+        final float from = timeline.clampPosition(mTimelinePosition);
+        final float to = timeline.getStepCount() - 1;
+        if (from >= to) return;
+        if (mTimelineAnimator == null) {
+            mTimelineAnimator = ValueAnimator.ofFloat(0, 1);
+            mTimelineAnimator.setInterpolator(new LinearInterpolator());
+            mTimelineAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    final boolean traced = PieTrace.begin(PieTrace.SECTION_ANIM_TICK);
+                    try {
+                        setTimelinePosition((float) animation.getAnimatedValue());
+                    } finally {
+                        PieTrace.end(traced);
+                    }
+                }
+            });
+        }
+        mTimelineAnimator.cancel();
+        mTimelinePausedByLifecycle = false;
+        mTimelineAnimator.setFloatValues(from, to);
+        mTimelineAnimator.setDuration((long) ((to - from) * Math.max(0, stepDuration)));
+        mTimelineAnimator.start();
+    }
+
+    public void stopTimeline() {
+        mTimelinePausedByLifecycle = false;
+        if (mTimelineAnimator != null) mTimelineAnimator.cancel();
+    }
+
+    public boolean isTimelinePlaying() {
+        return mTimelineAnimator != null && mTimelineAnimator.isRunning();
+    }
+
+    public float getTimelinePosition() {
+        return mTimelinePosition;
+    }
+
+    private void setTimelinePosition(float position) {
+        mTimelinePosition = position;
+        //还没有准备完成时只记录位置，准备时使用
+        if (!isPrepared() || mTimeline == null) return;
+        applyTimeline(position);
+        callInvalidate();
+    }
+
+    /**
+     * <h3>CN:</h3>使用快照中的数据和布局准备甜甜圈，跳过数据遍历、角度计算和文字测量。
+     * 快照的config指纹与当前config不一致时会放弃快照，使用config的数据
+     * <p>
+     * <h3>EN:</h3>Prepare the pie with the datas and layout of a snapshot, skipping the data walk, angle calculation and text measuring.
+     * The snapshot is discarded in favor of the datas of config if it was laid out with another config.
+     */
+    public void prepare(PieSnapshot snapshot) {
+        mPendingSnapshot = snapshot;
+        prepare();
+    }
+
+    /**
+     * <h3>CN:</h3>将当前的数据、角度和最终帧的文字位置写入快照，下次可以通过{@link #prepare(PieSnapshot)}直接加载
+     * <p>
+     * <h3>EN:</h3>Write the datas, angles and final-frame label positions into a snapshot which can be loaded later by {@link #prepare(PieSnapshot)}.
+     *
+     * @return false if not prepared
+     */
+    public boolean writeSnapshot(OutputStream outputStream) throws IOException {
+        if (!isPrepared() || mConfig == null || outputStream == null) return false;
+        final float width = mPieManager.getDrawWidth();
+        final float height = mPieManager.getDrawHeight();
+        measurePieRadius(width, height);
+        PieSnapshotWriter writer = new PieSnapshotWriter((int) width, (int) height, mConfig.getStartAngle())
+                .pieRadius(pieRadius)
+                .maxDescTextLength(maxDescTextLength)
+                .configHash(mConfig.fingerprint().getLayoutHash());
+        PieLayoutVisitor.LabelLayout label = new PieLayoutVisitor.LabelLayout();
+        for (PieInfoWrapper wrapper : mDataWrappers) {
+            final int index = writer.addSlice(wrapper.getValue(), wrapper.getDrawPaint().getColor(), wrapper.getDesc());
+            writer.angles(index, wrapper.getFromAngle(), wrapper.getSweepAngle());
+            //快照不保存图标，带图标的文字位置在加载后会不一致
+            if (!mConfig.isDrawText() || wrapper.isSubPixel() || wrapper.getPieOption() != null) continue;
+            measureLabelLayout(wrapper, wrapper.getMiddleAngle(), 0, label);
+            Rect textBounds = mPieManager.measureTextBounds(label.desc, (int) mConfig.getTextSize());
+            writer.textBounds(index, textBounds.width(), textBounds.height());
+            writer.label(index, label.pointX, label.pointY, label.lineX1, label.lineY1, label.lineX2, label.lineY2, label.textX, label.textY);
+        }
+        writer.writeTo(outputStream);
+        return true;
+    }
+
+    /**
+     * <h3>CN:</h3>对比config的结构指纹，只刷新发生变化的部分，如果没有任何变化则什么都不做
+     * <p>
+     * <h3>EN:</h3>Compare the fingerprint of config and refresh only what has changed.Nothing will happen if nothing changed.
+     */
+    public void update() {
+        AnimatedPieViewConfig config = mIPieView.getConfig();
+        if (config == null) return;
+        final AnimatedPieViewConfig.PublishedDatas published = config.getPublishedDatas();
+        AnimatedPieViewConfig.Fingerprint fingerprint = config.fingerprint(published);
+        final int changes = fingerprint.diff(mFingerprint);
+        PLog.i("config changes = " + changes);
+        if (changes == AnimatedPieViewConfig.CHANGE_NONE) {
+            mConfig = config;
+            return;
+        }
+        if (!isPrepared()
+                || isInAnimating
+                || (changes & AnimatedPieViewConfig.CHANGE_DATA) != 0
+                //入场动画的开关、时长和插值器变化时重新准备，否则开启动画后mRenderAnimation为空
+                || (changes & AnimatedPieViewConfig.CHANGE_PIE_ANIMATION) != 0
+                || (mTimeline == null && mDataWrappers.size() != published.getDatas().size())) {
+            //指纹在prepare之前生成。prepare填充的自动描述不计入指纹，之后没有变化的start(config)依然得到CHANGE_NONE
+            mFingerprint = fingerprint;
+            //适配器预取过布局时直接加载
+            prepare(PieLayoutPrefetcher.getPrefetched(fingerprint));
+            return;
+        }
+        mConfig = config;
+        if ((changes & (AnimatedPieViewConfig.CHANGE_GEOMETRY | AnimatedPieViewConfig.CHANGE_PAINT | AnimatedPieViewConfig.CHANGE_TEXT)) != 0) {
+            for (PieInfoWrapper dataWrapper : mDataWrappers) {
+                dataWrapper.preparePaint(mConfig);
+            }
+            mArcBatcher.reset();
+            mFloatShadowCache.clear();
+            mTouchBaseLayer.invalidate();
+            //图集中的文字颜色来自画笔
+            mLabelAtlas.setDirty();
+        }
+        if ((changes & (AnimatedPieViewConfig.CHANGE_GEOMETRY | AnimatedPieViewConfig.CHANGE_TEXT)) != 0) {
+            //快照中的文字位置不再可信
+            mSnapshot = null;
+            mSnapshotLayoutValid = false;
+            mTimelineDescTextLength = -1;
+        }
+        if ((changes & AnimatedPieViewConfig.CHANGE_GEOMETRY) != 0) {
+            calculateDegrees();
+            mLodPyramid.setDirty();
+            measureDescText();
+            pieRadius = 0;
+        } else if ((changes & AnimatedPieViewConfig.CHANGE_TEXT) != 0) {
+            for (PieInfoWrapper dataWrapper : mDataWrappers) {
+                dataWrapper.calculateDesc(mSum, mConfig, !mHeadless);
+            }
+            measureDescText();
+            notifySlicesChanged();
+            if (mConfig.isAutoSize()) {
+                //自动大小由文字宽度决定
+                pieRadius = 0;
+            }
+        }
+        if ((changes & AnimatedPieViewConfig.CHANGE_ANIMATION) != 0) {
+            mTouchHelper.applyConfig();
+            mQualityGovernor.reset(mIPieView.getViewContext(), mConfig.isAdaptiveQuality());
+            if (mSelectionMode != mConfig.getSelectionMode()) {
+                //切换选择模式时清空所有选中状态
+                mSelectionMode = mConfig.getSelectionMode();
+                mTouchHelper.clearSelection();
+            }
+        }
+        mFingerprint = mConfig.fingerprint(published);
+        callInvalidate();
+    }
+
+    //calculate degree for each pieInfoWrapper
+    //计算每个wrapper的角度
+    private void calculateDegrees() {
+        if (mTimeline != null) {
+            //时间轴的角度已经预先计算好
+            applyTimeline(mTimelinePosition);
+            return;
+        }
+        float lastAngle = mConfig.getStartAngle();
+        for (PieInfoWrapper dataWrapper : mDataWrappers) {
+            lastAngle = dataWrapper.calculateDegree(lastAngle, mSum, mConfig, !mHeadless);
+        }
+    }
+
+    private void measureDescText() {
+        maxDescTextLength = 0;
+        mLabelAtlas.setDirty();
+        for (PieInfoWrapper dataWrapper : mDataWrappers) {
+            dataWrapper.invalidateLabelMetrics();
+            final String desc = dataWrapper.getDesc();
+            Rect textBounds = mPieManager.measureTextBounds(desc, (int) mConfig.getTextSize());
+            int textWidth = textBounds.width();
+            int textHeight = textBounds.height();
+            dataWrapper.setTextWidth(textWidth);
             int labelWidth = 0;
             int labelHeight = 0;
             int labelPadding = 0;
-            Bitmap label = dataWrapper.getIcon(textWidth, textHeight);
+            Bitmap label = getIcon(mIPieView.getViewContext().getResources(), dataWrapper, textWidth, textHeight);
+            if (!TextUtils.isEmpty(desc)) {
+                //指示线文字与这里测量的一致，绘制时直接使用
+                dataWrapper.setLabelMetrics(desc, mConfig.getTextSize(), textBounds, label);
+            }
             if (label != null) {
                 if (dataWrapper.getPieOption() != null) {
                     labelPadding = dataWrapper.getPieOption().getLabelPadding();
@@ -152,15 +719,60 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             maxDescTextLength = Math.max(maxDescTextLength, textWidth);
             PLog.i("desc >> " + dataWrapper.getDesc() + "  maxDesTextSize >> " + maxDescTextLength);
         }
+        if (mTimeline != null) {
+            if (mTimelineDescTextLength < 0) {
+                mTimelineDescTextLength = measureTimelineDescText(mTimeline);
+            }
+            maxDescTextLength = Math.max(maxDescTextLength, mTimelineDescTextLength);
+        }
+    }
 
-        return true;
+    private static String getLabelDesc(PieInfoWrapper wrapper) {
+        return TextUtils.isEmpty(wrapper.getDesc()) ? "null" : wrapper.getDesc();
+    }
+
+    /**
+     * 确保扇形缓存了指示线文字的边界和图标，旋转时每一帧都会计算文字位置，不能每次都重新测量
+     */
+    private void ensureLabelMetrics(PieInfoWrapper wrapper) {
+        final String desc = getLabelDesc(wrapper);
+        final float textSize = mConfig.getTextSize();
+        if (wrapper.isLabelMetricsValid(desc, textSize)) return;
+        Rect textBounds = mPieManager.measureTextBounds(desc, (int) textSize);
+        Bitmap icon = getIcon(mIPieView.getViewContext().getResources(), wrapper, textBounds.width(), textBounds.height());
+        wrapper.setLabelMetrics(desc, textSize, textBounds, icon);
+    }
+
+    private Bitmap getIcon(Resources res, PieInfoWrapper wrapper, int textWidth, int textHeight) {
+        if (mHeadless) {
+            return wrapper.getIconSync(res, textWidth, textHeight);
+        }
+        return wrapper.getIcon(res, textWidth, textHeight, mIconLoadListener);
+    }
+
+    /**
+     * <h3>CN:</h3>没有界面的渲染器（导出、预取），必须开启：
+     * <ul>
+     * <li>在调用线程同步加载图标。这类宿主同步执行所有任务，异步的图标回调会在主线程直接修改正在导出的布局</li>
+     * <li>自动填充的描述不写回调用者的SimplePieInfo。这类渲染器在工作线程运行，写回会与界面线程的读取产生竞争</li>
+     * </ul>
+     * <p>
+     * <h3>EN:</h3>Headless renders(export, prefetch) must turn this on:icons are loaded synchronously on the calling thread,
+     * because such hosts run every action inline and an async icon callback would change the layout being exported
+     * from the main thread.Auto descriptions are not written back into the caller's SimplePieInfo either,
+     * since these renders run on worker threads and the UI thread reads the same objects.
+     */
+    public void setHeadless(boolean headless) {
+        mHeadless = headless;
     }
 
     private void prepareAnim() {
         if (mConfig.isAnimatePie()) {
             mRenderAnimation = new RenderAnimation();
             mRenderAnimation.setInterpolator(mConfig.getAnimationInterpolator());
-            mRenderAnimation.setDuration(mConfig.getDuration());
+            //跟随系统的动画时长缩放，缩放为0时直接显示最后一帧
+            final float durationScale = QualityGovernor.getAnimatorDurationScale(mIPieView.getViewContext());
+            mRenderAnimation.setDuration((long) (mConfig.getDuration() * Math.max(0, durationScale)));
             mRenderAnimation.setAnimationListener(new AnimationCallbackUtils.SimpleAnimationListener() {
                 @Override
                 public void onAnimationStart(Animation animation) {
@@ -171,6 +783,15 @@ public class PieChartRender extends BaseRender implements ITouchRender {
                 @Override
                 public void onAnimationEnd(Animation animation) {
                     isInAnimating = false;
+                    //暂停时清除动画也会回调，此时不是真正结束
+                    if (mPausedPlayTime < 0) {
+                        //插值器越过1时不会有interpolatedTime == 1的一帧
+                        cacheAllWrappers();
+                    }
+                    if (mQualityLevel != QualityGovernor.LEVEL_FULL) {
+                        //以完整画质重绘最后一帧
+                        callInvalidate();
+                    }
                 }
             });
         }
@@ -196,6 +817,19 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         canvas.translate(centerX, centerY);
 
         measurePieRadius(width, height);
+        ensureLabelAtlas();
+        applyQualityLevel(mQualityGovernor.onFrame(isInAnimating || mTouchHelper.isAnimating()));
+
+        mVisibleLabelCount = 0;
+        renderFrame(canvas);
+        PieTrace.counter(PieTrace.COUNTER_VISIBLE_LABELS, mVisibleLabelCount);
+    }
+
+    private void renderFrame(Canvas canvas) {
+        if (mTouchHelper.isZoomed()) {
+            renderZoom(canvas);
+            return;
+        }
 
         switch (mDrawMode) {
             case DRAW:
@@ -207,11 +841,22 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         }
     }
 
+    private void applyQualityLevel(int level) {
+        mQualityLevel = level;
+        final boolean antiAlias = level < QualityGovernor.LEVEL_NO_ANTI_ALIAS;
+        if (antiAlias == mAntiAliasApplied) return;
+        mAntiAliasApplied = antiAlias;
+        for (PieInfoWrapper dataWrapper : mDataWrappers) {
+            //触摸画笔和半透明画笔都从绘制画笔复制
+            dataWrapper.setAntiAlias(antiAlias);
+        }
+    }
+
     private void renderDraw(Canvas canvas) {
         if (mConfig.isAnimatePie()) {
             if (mRenderAnimation != null && !isInAnimating && !animHasStart) {
                 animHasStart = true;
-                mIPieView.getPieView().startAnimation(mRenderAnimation);
+                mIPieView.startRenderAnimation(mRenderAnimation);
                 return;
             }
             renderAnimaDraw(canvas);
@@ -220,13 +865,193 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         }
     }
 
+    /**
+     * 放大状态下只绘制可见角度范围内的桶，开销与可见的桶数相关而与数据量无关
+     */
+    private void renderZoom(Canvas canvas) {
+        ensureLodPyramid();
+        if (mLodPyramid.getSize() == 0) return;
+        final float zoom = mTouchHelper.zoom;
+        final float center = mTouchHelper.zoomCenter;
+        final float visibleFrom = center - 180 / zoom;
+        final float visibleTo = center + 180 / zoom;
+        final int first = mLodPyramid.indexAtAngle(visibleFrom);
+        final int last = mLodPyramid.indexAtAngle(visibleTo);
+        //每个像素最多一个桶
+        final int budget = Math.max(1, (int) (2 * Math.PI * pieRadius));
+        final int level = mLodPyramid.chooseLevel(last - first + 1, budget);
+        final int bucketSize = mLodPyramid.getBucketSize(level);
+        final int firstBucket = first / bucketSize;
+        final int lastBucket = last / bucketSize;
+        //分割角度只作用于原始扇形
+        final float splitAngle = level == 0 ? mConfig.getSplitAngle() : 0;
+
+        boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW_ARCS);
+        canvas.save();
+        canvas.rotate(mTouchHelper.rotation);
+        PieInfoWrapper pendingOwner = null;
+        float pendingFrom = 0;
+        float pendingTo = 0;
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            final int start = bucket * bucketSize;
+            final int end = Math.min(start + bucketSize, mLodPyramid.getSize());
+            final float from = Math.max(visibleFrom, mLodPyramid.angleAt(start));
+            final float to = Math.min(visibleTo, mLodPyramid.angleAt(end));
+            if (to <= from) continue;
+            PieInfoWrapper owner = mDataWrappers.get(mLodPyramid.dominantOf(level, bucket));
+            //相邻的同色桶合并绘制
+            if (pendingOwner != null && splitAngle <= 0 && pendingOwner.getDrawPaint().getColor() == owner.getDrawPaint().getColor()) {
+                pendingTo = to;
+                continue;
+            }
+            drawZoomArc(canvas, pendingOwner, pendingFrom, pendingTo, splitAngle);
+            pendingOwner = owner;
+            pendingFrom = from;
+            pendingTo = to;
+        }
+        drawZoomArc(canvas, pendingOwner, pendingFrom, pendingTo, splitAngle);
+
+        //选中的扇形，与未放大时一致，多选时遍历所有选中或者还在落下的扇形
+        if (isMultiSelection()) {
+            for (int i = mSelection.nextFloating(first); i >= 0 && i <= last; i = mSelection.nextFloating(i + 1)) {
+                drawZoomTouchArc(canvas, mDataWrappers.get(i), mSelection.getFloatTime(i), visibleFrom, visibleTo, splitAngle);
+            }
+        } else {
+            drawZoomTouchArc(canvas, mTouchHelper.lastFloatWrapper, mTouchHelper.floatDownTime, visibleFrom, visibleTo, splitAngle);
+            drawZoomTouchArc(canvas, mTouchHelper.floatingWrapper, mTouchHelper.floatUpTime, visibleFrom, visibleTo, splitAngle);
+        }
+        canvas.restore();
+        PieTrace.end(traced);
+
+        if (!mConfig.isDrawText() || mQualityLevel >= QualityGovernor.LEVEL_NO_LABEL) return;
+        traced = PieTrace.begin(PieTrace.SECTION_DRAW_LABELS);
+        //只有桶内绝大部分是同一个扇形，并且放大后足够放下文字时才绘制文字
+        final float minLabelAngle = (float) Math.toDegrees(mConfig.getTextSize() / Math.max(1, pieRadius));
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            final int start = bucket * bucketSize;
+            final int end = Math.min(start + bucketSize, mLodPyramid.getSize());
+            final int dominant = mLodPyramid.dominantOf(level, bucket);
+            if (mLodPyramid.valueOf(dominant, dominant + 1) < mLodPyramid.valueOf(start, end) * 0.9) continue;
+            PieInfoWrapper owner = mDataWrappers.get(dominant);
+            final float from = Math.max(visibleFrom, owner.getFromAngle());
+            final float to = Math.min(visibleTo, owner.getToAngle());
+            if ((to - from) * zoom < minLabelAngle) continue;
+            final float middleAngle = mTouchHelper.toZoomAngle((from + to) / 2) + mTouchHelper.rotation;
+            drawLabel(canvas, owner, measureLabelLayout(owner, middleAngle, 0, mLabelLayout), 1);
+        }
+        PieTrace.end(traced);
+    }
+
+    private void drawZoomTouchArc(Canvas canvas, PieInfoWrapper wrapper, float timeSet, float visibleFrom, float visibleTo, float splitAngle) {
+        if (wrapper == null || timeSet <= 0) return;
+        final float from = Math.max(visibleFrom, wrapper.getFromAngle());
+        final float to = Math.min(visibleTo, wrapper.getToAngle());
+        if (to <= from) return;
+        Paint touchPaint = mTouchHelper.prepareTouchPaint(wrapper);
+        touchPaint.setStrokeWidth(mConfig.getStrokeWidth() + (10 * timeSet));
+        mTouchHelper.setTouchBounds(timeSet);
+        canvas.drawArc(mTouchHelper.touchBounds,
+                mTouchHelper.toZoomAngle(from),
+                (to - from) * mTouchHelper.zoom - splitAngle,
+                !mConfig.isStrokeMode(),
+                touchPaint);
+    }
+
+    private void drawZoomArc(Canvas canvas, PieInfoWrapper owner, float from, float to, float splitAngle) {
+        if (owner == null) return;
+        Paint paint = owner.getAlphaDrawPaint();
+        applyAlphaToPaint(owner, paint);
+        canvas.drawArc(pieBounds,
+                mTouchHelper.toZoomAngle(from),
+                (to - from) * mTouchHelper.zoom - splitAngle,
+                !mConfig.isStrokeMode(),
+                paint);
+    }
+
+    private void ensureLodPyramid() {
+        if (mLodPyramid.isDirty()) {
+            mLodPyramid.build(mDataWrappers, mConfig.getStartAngle());
+        }
+    }
+
     private void renderTouch(Canvas canvas) {
-        drawCachedPie(canvas, mTouchHelper.sameClick ? mTouchHelper.lastFloatWrapper : mTouchHelper.floatingWrapper);
+        if (isMultiSelection()) {
+            renderMultiSelect(canvas);
+            return;
+        }
+        final PieInfoWrapper excluded = mTouchHelper.sameClick ? mTouchHelper.lastFloatWrapper : mTouchHelper.floatingWrapper;
+        if (!drawTouchBaseLayer(canvas, excluded)) {
+            drawCachedPie(canvas, excluded);
+        }
         renderTouchDraw(canvas, mTouchHelper.lastFloatWrapper, mTouchHelper.floatDownTime);
-        PLog.i("lastFloatWrapper id = " + (mTouchHelper.lastFloatWrapper == null ? "null" : mTouchHelper.lastFloatWrapper.getId()) + "  downTime = " + mTouchHelper.floatDownTime);
         renderTouchDraw(canvas, mTouchHelper.floatingWrapper, mTouchHelper.floatUpTime);
-        PLog.d("floatingWrapper id = " + (mTouchHelper.floatingWrapper == null ? "null" : mTouchHelper.floatingWrapper.getId()) + "  upTime = " + mTouchHelper.floatUpTime);
+        //每一帧都会执行，关闭日志时不拼接字符串
+        if (PLog.isDebuggable()) {
+            PLog.i("lastFloatWrapper id = " + (mTouchHelper.lastFloatWrapper == null ? "null" : mTouchHelper.lastFloatWrapper.getId()) + "  downTime = " + mTouchHelper.floatDownTime);
+            PLog.d("floatingWrapper id = " + (mTouchHelper.floatingWrapper == null ? "null" : mTouchHelper.floatingWrapper.getId()) + "  upTime = " + mTouchHelper.floatUpTime);
+        }
+    }
+
+    /**
+     * 使用底层缓存绘制不受点击影响的扇形，再单独绘制浮起和落下的扇形在原位置的部分及其文字
+     *
+     * @return 无法使用缓存时返回false
+     */
+    private boolean drawTouchBaseLayer(Canvas canvas, PieInfoWrapper excluded) {
+        //拖动旋转时每一帧的角度都不同，缓存没有意义
+        if (mTouchHelper.isRotating() || Util.isListEmpty(mCachedDrawWrappers)) return false;
+        final PieInfoWrapper floatingWrapper = mTouchHelper.floatingWrapper;
+        final PieInfoWrapper lastFloatWrapper = mTouchHelper.lastFloatWrapper;
+        //未选中扇形的文字不跟随透明度变化，这种情况下文字单独缓存在不透明的文字层，指示点和指示线仍然与扇形一起缓存
+        final boolean splitLabels = mConfig.getFocusAlphaType() == AnimatedPieViewConfig.FOCUS_WITH_ALPHA_REV;
+        if (!mTouchBaseLayer.isValid(floatingWrapper, lastFloatWrapper, mTouchHelper.rotation, pieRadius, mQualityLevel)) {
+            Canvas layerCanvas = mTouchBaseLayer.begin((int) mPieManager.getDrawWidth(),
+                    (int) mPieManager.getDrawHeight(),
+                    floatingWrapper,
+                    lastFloatWrapper,
+                    mTouchHelper.rotation,
+                    pieRadius,
+                    mQualityLevel);
+            if (layerCanvas == null) return false;
+            mBaseLayerPass = true;
+            try {
+                mLabelPart = splitLabels ? LABEL_PART_GUIDE : LABEL_PART_ALL;
+                drawCachedPie(layerCanvas, excluded, CACHED_UNAFFECTED);
+                mTouchBaseLayer.end();
+                if (splitLabels && mConfig.isDrawText()) {
+                    Canvas labelCanvas = mTouchBaseLayer.beginLabels();
+                    if (labelCanvas == null) {
+                        mTouchBaseLayer.invalidate();
+                        return false;
+                    }
+                    mLabelPart = LABEL_PART_TEXT;
+                    drawCachedLabels(labelCanvas, CACHED_UNAFFECTED);
+                    mTouchBaseLayer.endLabels();
+                }
+            } finally {
+                mBaseLayerPass = false;
+                mLabelPart = LABEL_PART_ALL;
+            }
+        }
+        //未选中的扇形透明度一致
+        mBaseLayerPaint.setAlpha(255);
+        applyAlphaToPaint(null, mBaseLayerPaint);
+        mTouchBaseLayer.draw(canvas, mBaseLayerPaint.getAlpha());
+        mTouchBaseLayer.drawLabels(canvas);
+        drawCachedPie(canvas, excluded, CACHED_AFFECTED);
+        return true;
+    }
 
+    private boolean isTouchAffected(PieInfoWrapper wrapper) {
+        return wrapper == mTouchHelper.floatingWrapper || wrapper == mTouchHelper.lastFloatWrapper;
+    }
+
+    private void renderMultiSelect(Canvas canvas) {
+        drawCachedPie(canvas, null);
+        //只遍历选中或者还在落下的扇形
+        for (int i = mSelection.nextFloating(0); i >= 0; i = mSelection.nextFloating(i + 1)) {
+            renderTouchDraw(canvas, mDataWrappers.get(i), mSelection.getFloatTime(i));
+        }
     }
 
     private void renderNormalDraw(Canvas canvas) {
@@ -240,12 +1065,15 @@ public class PieChartRender extends BaseRender implements ITouchRender {
     private void renderAnimaDraw(Canvas canvas) {
         if (mDrawingPie != null) {
             drawCachedPie(canvas, mDrawingPie);
+            canvas.save();
+            canvas.rotate(mTouchHelper.rotation);
             canvas.drawArc(pieBounds,
                     mDrawingPie.getFromAngle(),
                     animAngle - mDrawingPie.getFromAngle() - mConfig.getSplitAngle(),
                     !mConfig.isStrokeMode(),
                     mDrawingPie.getDrawPaint());
-            if (mConfig.isDrawText() && animAngle >= mDrawingPie.getMiddleAngle() && animAngle <= mDrawingPie.getToAngle()) {
+            canvas.restore();
+            if (mConfig.isDrawText() && !mDrawingPie.isSubPixel() && animAngle >= mDrawingPie.getMiddleAngle() && animAngle <= mDrawingPie.getToAngle()) {
                 drawText(canvas, mDrawingPie);
             }
         }
@@ -253,61 +1081,223 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
     private void renderTouchDraw(Canvas canvas, PieInfoWrapper wrapper, float timeSet) {
         if (wrapper == null) return;
-        mTouchHelper.setTouchBounds(timeSet);
+        final boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW_TOUCH);
+        try {
+            renderTouchDrawInternal(canvas, wrapper, timeSet);
+        } finally {
+            PieTrace.end(traced);
+        }
+    }
+
+    private void renderTouchDrawInternal(Canvas canvas, PieInfoWrapper wrapper, float timeSet) {
+        final boolean useCenter = !mConfig.isStrokeMode();
+        final float fullFromAngle = wrapper.getFromAngle() - mConfig.getFloatExpandAngle();
+        final float fullSweepAngle = wrapper.getSweepAngle() + mConfig.getFloatExpandAngle() * 2 - mConfig.getSplitAngle();
         Paint touchPaint = mTouchHelper.prepareTouchPaint(wrapper);
-        touchPaint.setShadowLayer(mConfig.getFloatShadowRadius() * timeSet, 0, 0, touchPaint.getColor());
-        touchPaint.setStrokeWidth(mConfig.getStrokeWidth() + (10 * timeSet));
         applyAlphaToPaint(wrapper, touchPaint);
+
+        //阴影按照完全浮起的状态预先模糊，动画期间只缩放和调整透明度
+        touchPaint.setStrokeWidth(mConfig.getStrokeWidth() + 10);
+        mTouchHelper.setTouchBounds(mTouchHelper.fullTouchBounds, 1);
+        final float fullRadius = mTouchHelper.fullTouchBounds.width() / 2 + (useCenter ? 0 : touchPaint.getStrokeWidth() / 2);
+        touchPaint.setStrokeWidth(mConfig.getStrokeWidth() + (10 * timeSet));
+        mTouchHelper.setTouchBounds(timeSet);
+        final float radius = mTouchHelper.touchBounds.width() / 2 + (useCenter ? 0 : touchPaint.getStrokeWidth() / 2);
+        canvas.save();
+        canvas.rotate(mTouchHelper.rotation);
+        //阴影缓存只有两个槽位，多选时不绘制阴影
+        if (mQualityGovernor.isShadowEnabled(mQualityLevel) && !isMultiSelection()) {
+            mFloatShadowCache.draw(canvas,
+                    wrapper,
+                    touchPaint,
+                    mTouchHelper.fullTouchBounds,
+                    fullFromAngle,
+                    fullSweepAngle,
+                    useCenter,
+                    mConfig.getFloatShadowRadius(),
+                    fullRadius > 0 ? radius / fullRadius : 1,
+                    timeSet);
+        }
+
         canvas.drawArc(mTouchHelper.touchBounds,
                 wrapper.getFromAngle() - (mConfig.getFloatExpandAngle() * timeSet),
                 wrapper.getSweepAngle() + (mConfig.getFloatExpandAngle() * 2 * timeSet) - mConfig.getSplitAngle(),
                 !mConfig.isStrokeMode(),
                 touchPaint);
+        canvas.restore();
     }
 
 
     private void drawCachedPie(Canvas canvas, PieInfoWrapper excluded) {
+        drawCachedPie(canvas, excluded, CACHED_ALL);
+    }
+
+    /**
+     * @param filter {@link #CACHED_ALL}、{@link #CACHED_UNAFFECTED}或者{@link #CACHED_AFFECTED}
+     */
+    private void drawCachedPie(Canvas canvas, PieInfoWrapper excluded, int filter) {
         if (!Util.isListEmpty(mCachedDrawWrappers)) {
-            for (PieInfoWrapper cachedDrawWrapper : mCachedDrawWrappers) {
-                if (mConfig.isDrawText()) {
-                    drawText(canvas, cachedDrawWrapper);
+            //相邻的同色或者不足1px的扇形合并成一次绘制
+            mArcBatcher.batch(mCachedDrawWrappers,
+                    pieRadius,
+                    mConfig.getSplitAngle(),
+                    excluded,
+                    mTouchHelper.floatingWrapper,
+                    mTouchHelper.lastFloatWrapper,
+                    isMultiSelection() ? mSelection : null);
+            final int batchCount = mArcBatcher.getBatchCount();
+            boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW_ARCS);
+            //旋转只作用于扇形，文字始终保持水平
+            canvas.save();
+            canvas.rotate(mTouchHelper.rotation);
+            for (int i = 0; i < batchCount; i++) {
+                PieInfoWrapper paintOwner = mArcBatcher.getPaintOwner(i);
+                if (paintOwner.equals(excluded) || !acceptCached(paintOwner, filter)) {
+                    continue;
                 }
-                Paint paint = cachedDrawWrapper.getAlphaDrawPaint();
-                applyAlphaToPaint(cachedDrawWrapper, paint);
-                if (cachedDrawWrapper.equals(excluded)) {
+                if (mDrawMode == DrawMode.TOUCH && isMultiSelection() && mSelection.isFloating(paintOwner.getIndex())) {
+                    //浮起的扇形单独绘制
                     continue;
                 }
+                Paint paint = paintOwner.getAlphaDrawPaint();
+                applyAlphaToPaint(paintOwner, paint);
                 canvas.drawArc(pieBounds,
-                        cachedDrawWrapper.getFromAngle(),
-                        cachedDrawWrapper.getSweepAngle() - mConfig.getSplitAngle(),
+                        mArcBatcher.getFromAngle(i),
+                        mArcBatcher.getSweepAngle(i) - mConfig.getSplitAngle(),
                         !mConfig.isStrokeMode(),
                         paint);
             }
+            canvas.restore();
+            PieTrace.end(traced);
+            if (mConfig.isDrawText()) {
+                drawCachedLabels(canvas, filter);
+            }
+        }
+    }
+
+    private void drawCachedLabels(Canvas canvas, int filter) {
+        final boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW_LABELS);
+        try {
+            if (filter == CACHED_AFFECTED) {
+                //只有两个扇形，不需要遍历
+                drawCachedText(canvas, mTouchHelper.lastFloatWrapper);
+                if (mTouchHelper.floatingWrapper != mTouchHelper.lastFloatWrapper) {
+                    drawCachedText(canvas, mTouchHelper.floatingWrapper);
+                }
+                return;
+            }
+            for (PieInfoWrapper cachedDrawWrapper : mCachedDrawWrappers) {
+                if (!acceptCached(cachedDrawWrapper, filter)) continue;
+                drawCachedText(canvas, cachedDrawWrapper);
+            }
+        } finally {
+            PieTrace.end(traced);
+        }
+    }
+
+    private void drawCachedText(Canvas canvas, PieInfoWrapper wrapper) {
+        //不足1px的扇形不绘制指示点和文字
+        if (wrapper == null || wrapper.isSubPixel()) return;
+        drawText(canvas, wrapper);
+    }
+
+    private boolean acceptCached(PieInfoWrapper wrapper, int filter) {
+        switch (filter) {
+            case CACHED_UNAFFECTED:
+                return !isTouchAffected(wrapper);
+            case CACHED_AFFECTED:
+                return isTouchAffected(wrapper);
+            case CACHED_ALL:
+            default:
+                return true;
         }
     }
 
     private void drawText(Canvas canvas, PieInfoWrapper wrapper) {
-        if (wrapper == null) return;
+        if (wrapper == null || mQualityLevel >= QualityGovernor.LEVEL_NO_LABEL) return;
 
         //根据touch扩大量修正指示线和描述文字的位置
-        float fixPos = (wrapper.equals(mTouchHelper.floatingWrapper) ? getFixTextPos(wrapper) : 0) + (wrapper.equals(mTouchHelper.lastFloatWrapper) ? getFixTextPos(wrapper) : 0);
+        float fixPos = isMultiSelection()
+                ? getFixTextPos(wrapper)
+                : (wrapper.equals(mTouchHelper.floatingWrapper) ? getFixTextPos(wrapper) : 0) + (wrapper.equals(mTouchHelper.lastFloatWrapper) ? getFixTextPos(wrapper) : 0);
+        PieLayoutVisitor.LabelLayout layout;
+        if (fixPos == 0 && mTouchHelper.rotation == 0 && restoreLabelLayout(wrapper, mLabelLayout)) {
+            //快照中记录了最终帧的位置，省去文字测量
+            layout = mLabelLayout;
+        } else {
+            //旋转后只需要用缓存的中线角度重新计算指示线方向
+            layout = measureLabelLayout(wrapper, wrapper.getMiddleAngle() + mTouchHelper.rotation, fixPos, mLabelLayout);
+        }
+        drawLabel(canvas, wrapper, layout, angleToProgress(animAngle, wrapper));
+    }
+
+    private void drawLabel(Canvas canvas, PieInfoWrapper wrapper, PieLayoutVisitor.LabelLayout layout, float progress) {
+        if (mLabelPart != LABEL_PART_TEXT) {
+            mVisibleLabelCount++;
+        }
+        Paint paint = wrapper.getAlphaDrawPaint();
+        if (mQualityLevel < QualityGovernor.LEVEL_NO_GUIDE_LINE && mLabelPart != LABEL_PART_TEXT) {
+            //画点
+            if (progress > 0.5) {
+                applyAlphaToPaint(wrapper, paint);
+                paint.setStyle(Paint.Style.FILL);
+                canvas.drawCircle(layout.pointX, layout.pointY, layout.pointRadius, paint);
+            }
+
+            //画线
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(layout.lineWidth);
+            paint.setStrokeJoin(Paint.Join.ROUND);
+
+            Path path = wrapper.getLinePath();
+            Path measurePathDst = wrapper.getLinePathMeasure();
+            path.moveTo(layout.pointX, layout.pointY);
+            path.lineTo(layout.lineX1, layout.lineY1);
+            path.lineTo(layout.lineX2, layout.lineY2);
+            mPathMeasure.nextContour();
+            mPathMeasure.setPath(path, false);
+            mPathMeasure.getSegment(0, progress * mPathMeasure.getLength(), measurePathDst, true);
+            canvas.drawPath(measurePathDst, paint);
+        }
+        if (mLabelPart == LABEL_PART_GUIDE) return;
+
+        paint.setStyle(Paint.Style.FILL);
+        paint.setTextSize(layout.textSize);
+        paint.setAlpha((int) (255 * progress));
 
+        //图集模式下文字和图标作为一张贴图绘制
+        if (mConfig.isLabelAtlas() && mLabelAtlas.draw(canvas,
+                wrapper.getIndex(),
+                calculateLineGravity(layout.pointX, layout.pointY).xDirection == 1 ? LabelAtlas.SIDE_RIGHT : LabelAtlas.SIDE_LEFT,
+                layout.textX,
+                layout.textY,
+                (int) (255 * progress))) {
+            return;
+        }
+
+        if (layout.icon != null) {
+            canvas.drawBitmap(layout.icon, layout.iconX, layout.iconY, wrapper.getIconPaint());
+        }
+
+        //画文字
+        canvas.drawText(layout.desc, layout.textX, layout.textY, paint);
+    }
+
+    /**
+     * 计算指示点、指示线、文字和图标的位置（以圆心为原点）
+     *
+     * @param middleAngle 指示点所在的屏幕角度（包含旋转）
+     * @param fixPos      点击浮起时的位置修正量
+     */
+    private PieLayoutVisitor.LabelLayout measureLabelLayout(PieInfoWrapper wrapper, float middleAngle, float fixPos, PieLayoutVisitor.LabelLayout out) {
         final float pointMargins = fixPos
                 + pieRadius
                 + mConfig.getGuideLineMarginStart()
                 + (mConfig.isStrokeMode() ? mConfig.getStrokeWidth() / 2 : 0);
-        float cx = (float) (pointMargins * Math.cos(Math.toRadians(wrapper.getMiddleAngle())));
-        float cy = (float) (pointMargins * Math.sin(Math.toRadians(wrapper.getMiddleAngle())));
-
-        //画点
-        Paint paint = wrapper.getAlphaDrawPaint();
-        if (angleToProgress(animAngle, wrapper) > 0.5) {
-            applyAlphaToPaint(wrapper, paint);
-            paint.setStyle(Paint.Style.FILL);
-            canvas.drawCircle(cx, cy, mConfig.getGuidePointRadius(), paint);
-        }
+        final double pointAngle = Math.toRadians(middleAngle);
+        float cx = (float) (pointMargins * Math.cos(pointAngle));
+        float cy = (float) (pointMargins * Math.sin(pointAngle));
 
-        //画线
         float guideLineEndX1 = -1;
         float guideLineEndY1 = -1;
 
@@ -315,19 +1305,18 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         float guideLineEndY2 = -1;
 
 
-        String desc = TextUtils.isEmpty(wrapper.getDesc()) ? "null" : wrapper.getDesc();
-        Rect textBounds = mPieManager.measureTextBounds(desc, (int) mConfig.getTextSize());
+        ensureLabelMetrics(wrapper);
+        final String desc = getLabelDesc(wrapper);
+        Rect textBounds = wrapper.getLabelBounds();
         int textBoundsWidth = textBounds.width();
         int textBoundsHeight = textBounds.height();
 
         //label
-        Bitmap icon = wrapper.getIcon(textBoundsWidth, textBoundsHeight);
+        Bitmap icon = wrapper.getLabelIcon();
         int labelWidth = 0;
-        int labelHeight = 0;
         int labelPadding = 0;
         if (icon != null) {
             labelWidth = icon.getWidth();
-            labelHeight = icon.getHeight();
             labelPadding = Math.max(0, wrapper.getPieOption() == null ? 0 : wrapper.getPieOption().getLabelPadding());
         }
 
@@ -378,44 +1367,123 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         }
         guideLineEndY2 = guideLineEndY1;
 
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(mConfig.getGuideLineWidth());
-        paint.setStrokeJoin(Paint.Join.ROUND);
-
-        Path path = wrapper.getLinePath();
-        Path measurePathDst = wrapper.getLinePathMeasure();
-        path.moveTo(cx, cy);
-        path.lineTo(guideLineEndX1, guideLineEndY1);
-        path.lineTo(guideLineEndX2, guideLineEndY2);
-        mPathMeasure.nextContour();
-        mPathMeasure.setPath(path, false);
-        float progress = angleToProgress(animAngle, wrapper);
-        mPathMeasure.getSegment(0, progress * mPathMeasure.getLength(), measurePathDst, true);
-        canvas.drawPath(measurePathDst, paint);
-
-        paint.setStyle(Paint.Style.FILL);
-        paint.setTextSize(mConfig.getTextSize());
-        paint.setAlpha((int) (255 * progress));
-
         float textStartX = calculateTextStartX(guideLineEndX1, guideLineEndX2, direction, textBoundsWidth);
         float textStartY = calculateTextStartY(guideLineEndY1, guideLineEndY2, direction, textBoundsHeight);
 
+        out.icon = null;
         if (icon != null) {
             textStartX = fitTextStartXWithLabel(textStartX, textBoundsWidth, labelWidth, direction, wrapper.getPieOption());
-            float iconLeft;
-            float iconTop;
-            iconLeft = calculateLabelX(wrapper.getPieOption(), labelWidth, textStartX, direction, textBoundsWidth);
-            iconTop = textStartY - textBoundsHeight;
+            float iconLeft = calculateLabelX(wrapper.getPieOption(), labelWidth, textStartX, direction, textBoundsWidth);
+            float iconTop = textStartY - textBoundsHeight;
             if (iconLeft != -1 && iconTop != -1) {
-                canvas.drawBitmap(icon, iconLeft, iconTop, wrapper.getIconPaint());
+                out.icon = icon;
+                out.iconX = iconLeft;
+                out.iconY = iconTop;
             }
         }
 
-        //画文字
-        canvas.drawText(desc, textStartX, textStartY, paint);
+        out.info = wrapper.getPieInfo();
+        out.desc = desc;
+        out.color = wrapper.getDrawPaint().getColor();
+        out.textSize = mConfig.getTextSize();
+        out.pointX = cx;
+        out.pointY = cy;
+        out.pointRadius = mConfig.getGuidePointRadius();
+        out.lineX1 = guideLineEndX1;
+        out.lineY1 = guideLineEndY1;
+        out.lineX2 = guideLineEndX2;
+        out.lineY2 = guideLineEndY2;
+        out.lineWidth = mConfig.getGuideLineWidth();
+        out.textX = textStartX;
+        out.textY = textStartY;
+        return out;
+    }
 
+    /**
+     * 从快照中读取最终帧的指示线和文字位置
+     *
+     * @return 快照不可用或者没有记录该扇形时返回false
+     */
+    private boolean restoreLabelLayout(PieInfoWrapper wrapper, PieLayoutVisitor.LabelLayout out) {
+        if (!mSnapshotLayoutValid || mSnapshot == null || !mSnapshot.getLabel(wrapper.getIndex(), mSnapshotLabel)) {
+            return false;
+        }
+        out.icon = null;
+        out.info = wrapper.getPieInfo();
+        out.desc = getLabelDesc(wrapper);
+        out.color = wrapper.getDrawPaint().getColor();
+        out.textSize = mConfig.getTextSize();
+        out.pointX = mSnapshotLabel[0];
+        out.pointY = mSnapshotLabel[1];
+        out.pointRadius = mConfig.getGuidePointRadius();
+        out.lineX1 = mSnapshotLabel[2];
+        out.lineY1 = mSnapshotLabel[3];
+        out.lineX2 = mSnapshotLabel[4];
+        out.lineY2 = mSnapshotLabel[5];
+        out.lineWidth = mConfig.getGuideLineWidth();
+        out.textX = mSnapshotLabel[6];
+        out.textY = mSnapshotLabel[7];
+        return true;
+    }
+
+    /**
+     * <h3>CN:</h3>遍历最终帧（不包含点击浮起效果）的扇形和文字布局，用于导出等场景
+     * <p>
+     * <h3>EN:</h3>Walk the slice and label layout of the final frame(without touch effects), e.g. for exporting.
+     *
+     * @return false if not prepared
+     */
+    public boolean visitLayout(PieLayoutVisitor visitor) {
+        if (!isPrepared() || mConfig == null || visitor == null) return false;
+        final float width = mPieManager.getDrawWidth();
+        final float height = mPieManager.getDrawHeight();
+        measurePieRadius(width, height);
+        visitor.onLayoutStart(width, height);
+        PieLayoutVisitor.SliceLayout slice = new PieLayoutVisitor.SliceLayout();
+        for (PieInfoWrapper wrapper : mDataWrappers) {
+            slice.info = wrapper.getPieInfo();
+            slice.bounds.set(pieBounds);
+            slice.fromAngle = wrapper.getFromAngle() + mTouchHelper.rotation;
+            slice.sweepAngle = wrapper.getSweepAngle() - mConfig.getSplitAngle();
+            slice.color = wrapper.getDrawPaint().getColor();
+            slice.strokeMode = mConfig.isStrokeMode();
+            slice.strokeWidth = mConfig.getStrokeWidth();
+            visitor.onSlice(slice);
+        }
+        if (mConfig.isDrawText()) {
+            PieLayoutVisitor.LabelLayout label = new PieLayoutVisitor.LabelLayout();
+            for (PieInfoWrapper wrapper : mDataWrappers) {
+                if (wrapper.isSubPixel()) continue;
+                visitor.onLabel(measureLabelLayout(wrapper, wrapper.getMiddleAngle() + mTouchHelper.rotation, 0, label));
+            }
+        }
+        visitor.onLayoutEnd();
+        return true;
     }
 
+    /**
+     * 文字、字号或者字体变化后重新构建标签图集
+     */
+    private void ensureLabelAtlas() {
+        if (!mConfig.isDrawText() || !mConfig.isLabelAtlas() || Util.isListEmpty(mDataWrappers)) return;
+        final Typeface typeface = mDataWrappers.get(0).getDrawPaint().getTypeface();
+        if (!mLabelAtlas.isDirty(mConfig.getTextSize(), typeface)) return;
+        mLabelAtlas.begin(mDataWrappers.size(), mConfig.getTextSize(), typeface);
+        for (PieInfoWrapper wrapper : mDataWrappers) {
+            ensureLabelMetrics(wrapper);
+            Rect textBounds = wrapper.getLabelBounds();
+            Bitmap icon = wrapper.getLabelIcon();
+            float iconXLeft = 0;
+            float iconXRight = 0;
+            if (icon != null) {
+                //与drawText一致，以文字基线起点为原点计算图标位置；旋转后标签可能换到另一侧，两侧都需要
+                iconXLeft = calculateLabelX(wrapper.getPieOption(), icon.getWidth(), 0, LineDirection.CENTER_LEFT, textBounds.width());
+                iconXRight = calculateLabelX(wrapper.getPieOption(), icon.getWidth(), 0, LineDirection.CENTER_RIGHT, textBounds.width());
+            }
+            mLabelAtlas.add(wrapper.getIndex(), getLabelDesc(wrapper), wrapper.getDrawPaint().getColor(), textBounds, icon, iconXLeft, iconXRight);
+        }
+        mLabelAtlas.end();
+    }
 
     private float fitTextStartXWithLabel(float textStartX, int textBoundsWidth, int labelWidth, LineDirection direction, PieOption pieOption) {
         if (pieOption != null) {
@@ -527,6 +1595,9 @@ public class PieChartRender extends BaseRender implements ITouchRender {
     private float getFixTextPos(PieInfoWrapper wrapper) {
         if (wrapper == null) return 0;
         final float scaleSizeInTouch = !mConfig.isStrokeMode() ? mConfig.getFloatExpandSize() : 10;
+        if (isMultiSelection()) {
+            return mDrawMode == DrawMode.TOUCH ? scaleSizeInTouch * mSelection.getFloatTime(wrapper.getIndex()) : 0;
+        }
         boolean up = wrapper.equals(mTouchHelper.floatingWrapper);
         return up ? scaleSizeInTouch * mTouchHelper.floatUpTime : scaleSizeInTouch * mTouchHelper.floatDownTime;
     }
@@ -535,10 +1606,15 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
     private void applyAlphaToPaint(PieInfoWrapper target, Paint paint) {
         if (paint == null) return;
-        if (mDrawMode == DrawMode.DRAW) {
+        if (mDrawMode == DrawMode.DRAW || mBaseLayerPass) {
+            //底层缓存以不透明绘制，贴图时统一应用透明度
             paint.setAlpha(255);
             return;
         }
+        if (isMultiSelection()) {
+            applyMultiSelectAlpha(target, paint);
+            return;
+        }
 
         //如果点的是同一个，则需要特殊处理
         boolean selected = false;
@@ -580,14 +1656,97 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
     @Override
     public void onDestroy() {
+        mSelectEventDispatcher.cancel();
+        stopTimeline();
+    }
+
+    //-----------------------------------------pause & resume-----------------------------------------
 
+    @Override
+    protected void onPause() {
+        if (mRenderAnimation != null && isInAnimating) {
+            //记录已经播放的时间，clearAnimation会回调onAnimationEnd
+            mPausedPlayTime = Math.max(0, AnimationUtils.currentAnimationTimeMillis() - mRenderAnimation.getStartTime());
+            mIPieView.clearRenderAnimation();
+            isInAnimating = false;
+            PLog.i("pause render animation at " + mPausedPlayTime + "ms");
+        }
+        mTouchHelper.pause();
+        if (mTimelineAnimator != null && mTimelineAnimator.isRunning() && !mTimelinePausedByLifecycle) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                mTimelineAnimator.pause();
+                mTimelinePausedByLifecycle = true;
+            } else {
+                //停在当前位置，可以再次播放
+                mTimelineAnimator.cancel();
+            }
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        if (mPausedPlayTime >= 0 && mRenderAnimation != null && mConfig != null) {
+            if (mConfig.getResumeMode() == AnimatedPieViewConfig.RESUME_JUMP_TO_END) {
+                finishRenderAnimation();
+            } else {
+                mIPieView.resumeRenderAnimation(mRenderAnimation);
+                mRenderAnimation.setStartTime(AnimationUtils.currentAnimationTimeMillis() - mPausedPlayTime);
+            }
+            PLog.i("resume render animation from " + mPausedPlayTime + "ms");
+            mPausedPlayTime = -1;
+        }
+        mTouchHelper.resume();
+        if (mTimelinePausedByLifecycle) {
+            mTimelinePausedByLifecycle = false;
+            if (mTimelineAnimator != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                mTimelineAnimator.resume();
+            }
+        }
+        callInvalidate();
+    }
+
+    /**
+     * 直接跳到动画最后一帧
+     */
+    private void finishRenderAnimation() {
+        if (Util.isListEmpty(mDataWrappers)) return;
+        PieInfoWrapper lastWrapper = mDataWrappers.get(mDataWrappers.size() - 1);
+        cacheAllWrappers();
+        mDrawingPie = lastWrapper;
+        animAngle = lastWrapper.getToAngle();
+    }
+
+    /**
+     * 入场动画结束后缓存所有扇形，触摸模式只绘制缓存中的扇形，最后一个扇形也必须在缓存中
+     */
+    private void cacheAllWrappers() {
+        for (PieInfoWrapper dataWrapper : mDataWrappers) {
+            if (!dataWrapper.isCached()) {
+                dataWrapper.setCached(true);
+                mCachedDrawWrappers.add(dataWrapper);
+            }
+        }
+    }
+
+    @Override
+    public void releaseCache() {
+        //图标由PieIconCache统一管理，这里不需要释放
+        mArcBatcher.reset();
+        mFloatShadowCache.clear();
+        mTouchBaseLayer.release();
+        mLabelAtlas.release();
     }
 
     //-----------------------------------------touch-----------------------------------------
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        return mTouchHelper.handleTouch(event);
+        final boolean traced = PieTrace.begin(PieTrace.SECTION_TOUCH);
+        try {
+            return mTouchHelper.handleTouch(event);
+        } finally {
+            PieTrace.end(traced);
+        }
     }
 
     @Override
@@ -617,6 +1776,179 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         callInvalidate();
     }
 
+    private void applyMultiSelectAlpha(PieInfoWrapper target, Paint paint) {
+        final float floatTime = mSelection.getFloatTime(target.getIndex());
+        final float alphaCut = 255 - mConfig.getFocusAlpha();
+        switch (mConfig.getFocusAlphaType()) {
+            case AnimatedPieViewConfig.FOCUS_WITH_ALPHA:
+                paint.setAlpha((int) (255 - alphaCut * floatTime));
+                break;
+            case AnimatedPieViewConfig.FOCUS_WITH_ALPHA_REV:
+                //有选中时未选中的扇形变淡
+                paint.setAlpha((int) (255 - alphaCut * mTouchHelper.selectionFocusTime * (1 - floatTime)));
+                break;
+            case AnimatedPieViewConfig.FOCUS_WITHOUT_ALPHA:
+            default:
+                paint.setAlpha(255);
+                break;
+        }
+    }
+
+    private boolean isMultiSelection() {
+        return mSelectionMode == AnimatedPieViewConfig.SELECTION_MULTIPLE;
+    }
+
+    //-----------------------------------------selection-----------------------------------------
+
+    /**
+     * <h3>CN:</h3>多选模式下设置扇形的选中状态
+     * <p>
+     * <h3>EN:</h3>Select or deselect a slice in {@link AnimatedPieViewConfig#SELECTION_MULTIPLE} mode.
+     *
+     * @param index 扇形在数据中的下标
+     */
+    public void setSelected(int index, boolean selected) {
+        if (!canChangeSelection()) return;
+        mSelection.setSelected(index, selected);
+        onSelectionChanged();
+    }
+
+    /**
+     * <h3>CN:</h3>多选模式下选中[from, to)范围内的扇形
+     * <p>
+     * <h3>EN:</h3>Select slices in [from, to) in {@link AnimatedPieViewConfig#SELECTION_MULTIPLE} mode.
+     */
+    public void selectRange(int from, int to) {
+        if (!canChangeSelection()) return;
+        mSelection.setRange(from, to, true);
+        onSelectionChanged();
+    }
+
+    public void selectAll() {
+        if (!canChangeSelection()) return;
+        mSelection.selectAll();
+        onSelectionChanged();
+    }
+
+    public void clearSelection() {
+        if (!canChangeSelection()) return;
+        mSelection.clear();
+        onSelectionChanged();
+    }
+
+    public boolean isSelected(int index) {
+        return isMultiSelection() && mSelection.isSelected(index);
+    }
+
+    public int getSelectedCount() {
+        return isMultiSelection() ? mSelection.getSelectedCount() : 0;
+    }
+
+    /**
+     * <h3>CN:</h3>是否会接受新的触摸，与触摸处理对ACTION_DOWN的判断一致，可以在渲染线程之外调用
+     * <p>
+     * <h3>EN:</h3>Whether a new touch will be accepted, matching how touch handling treats ACTION_DOWN.Can be called off the render thread.
+     */
+    public boolean isTouchable() {
+        AnimatedPieViewConfig config = mIPieView.getConfig();
+        return config != null && config.isCanTouch() && !isInAnimating;
+    }
+
+    private boolean canChangeSelection() {
+        return isPrepared() && mConfig != null && isMultiSelection() && !isInAnimating;
+    }
+
+    private void onSelectionChanged() {
+        setDrawMode(DrawMode.TOUCH);
+        mTouchHelper.startSelectionTicker();
+        notifySliceSelected(-1, true);
+    }
+
+    //-----------------------------------------slices-----------------------------------------
+
+    public void setOnSliceListener(OnSliceListener onSliceListener) {
+        mOnSliceListener = onSliceListener;
+    }
+
+    private void notifySlicesChanged() {
+        PieTrace.counter(PieTrace.COUNTER_SLICES, mDataWrappers.size());
+        OnSliceListener listener = mOnSliceListener;
+        if (listener != null) listener.onSlicesChanged();
+    }
+
+    private void notifySliceSelected(int index, boolean selected) {
+        OnSliceListener listener = mOnSliceListener;
+        if (listener != null) listener.onSliceSelected(index, selected);
+    }
+
+    /**
+     * <h3>CN:</h3>按照下标选中扇形，效果与点击扇形一致（单选时浮起或者落下，多选时切换选中状态），并且会回调选中监听
+     * <p>
+     * <h3>EN:</h3>Select a slice by index with the same effect as tapping it(float up/down in single mode, toggle in multi mode),
+     * select listeners are notified as well.
+     *
+     * @return false if the pie is not ready or the index is out of range
+     */
+    public boolean toggleSlice(int index) {
+        final List<PieInfoWrapper> wrappers = mDataWrappers;
+        if (!isPrepared() || mConfig == null || isInAnimating || index < 0 || index >= wrappers.size()) return false;
+        mTouchHelper.toggle(wrappers.get(index));
+        return true;
+    }
+
+    public int getSliceCount() {
+        return isPrepared() ? mDataWrappers.size() : 0;
+    }
+
+    public IPieInfo getSliceInfo(int index) {
+        return mDataWrappers.get(index).getPieInfo();
+    }
+
+    /**
+     * @return 甜甜圈实际显示的描述（自动描述时为格式化后的百分比）
+     */
+    public String getSliceDesc(int index) {
+        return mDataWrappers.get(index).getDesc();
+    }
+
+    public int getSliceColor(int index) {
+        return mDataWrappers.get(index).getColor();
+    }
+
+    /**
+     * @return 按照config字号测量的描述宽度，0代表没有测量过
+     */
+    public int getSliceTextWidth(int index) {
+        return mDataWrappers.get(index).getTextWidth();
+    }
+
+    /**
+     * @return 单选模式下当前浮起的扇形下标，没有则返回-1
+     */
+    public int getFloatingIndex() {
+        PieInfoWrapper floatingWrapper = mTouchHelper.floatingWrapper;
+        return floatingWrapper == null || isMultiSelection() ? -1 : floatingWrapper.getIndex();
+    }
+
+    /**
+     * 不经过动画和手势直接设置单选模式下浮起、落下的扇形和旋转角度，供单元测试驱动点击模式的绘制
+     *
+     * @param floatingIndex  浮起的扇形下标，-1代表没有
+     * @param lastFloatIndex 落下的扇形下标，-1代表没有
+     * @param floatUpTime    浮起动画的进度，落下的进度与之相反
+     */
+    @VisibleForTesting
+    void setTouchState(int floatingIndex, int lastFloatIndex, float floatUpTime, float rotation) {
+        cacheAllWrappers();
+        setDrawMode(DrawMode.TOUCH);
+        mTouchHelper.floatingWrapper = floatingIndex < 0 ? null : mDataWrappers.get(floatingIndex);
+        mTouchHelper.lastFloatWrapper = lastFloatIndex < 0 ? null : mDataWrappers.get(lastFloatIndex);
+        mTouchHelper.sameClick = false;
+        mTouchHelper.floatUpTime = floatUpTime;
+        mTouchHelper.floatDownTime = 1 - floatUpTime;
+        mTouchHelper.rotation = rotation;
+    }
+
     private void setDrawMode(DrawMode drawMode) {
         if (drawMode == DrawMode.TOUCH && isInAnimating) return;
         mDrawMode = drawMode;
@@ -627,6 +1959,33 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             pieBounds.set(-pieRadius, -pieRadius, pieRadius, pieRadius);
             return;
         }
+        final boolean traced = PieTrace.begin(PieTrace.SECTION_MEASURE_RADIUS);
+        try {
+            measurePieRadiusWithSnapshot(width, height);
+        } finally {
+            PieTrace.end(traced);
+        }
+    }
+
+    private void measurePieRadiusWithSnapshot(float width, float height) {
+        if (mSnapshot != null
+                && mSnapshot.getPieRadius() > 0
+                && mSnapshot.getWidth() == (int) width
+                && mSnapshot.getHeight() == (int) height) {
+            //绘制区域与快照一致，沿用快照的半径
+            pieRadius = mSnapshot.getPieRadius();
+            pieBounds.set(-pieRadius, -pieRadius, pieRadius, pieRadius);
+            mSnapshotLayoutValid = true;
+        } else {
+            measurePieRadiusInternal(width, height);
+            mSnapshotLayoutValid = false;
+        }
+        for (PieInfoWrapper dataWrapper : mDataWrappers) {
+            dataWrapper.measureArcLength(pieRadius);
+        }
+    }
+
+    private void measurePieRadiusInternal(float width, float height) {
         final float minSize = Math.min(width / 2, height / 2);
         //最低0.5的最小高宽值
         float minPieRadius = minSize / 4;
@@ -686,11 +2045,22 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             if (mConfig == null) {
                 throw new NullPointerException("viewConfig为空");
             }
-            PLog.i("interpolatedTime = " + interpolatedTime);
+            if (PLog.isDebuggable()) {
+                PLog.i("interpolatedTime = " + interpolatedTime);
+            }
             if (interpolatedTime >= 0.0f && interpolatedTime <= 1.0f) {
-                float angle = 360 * interpolatedTime + mConfig.getStartAngle();
-                PieInfoWrapper info = findPieinfoWithAngle(angle);
-                setCurPie(info == null ? lastFoundWrapper : info, angle);
+                final boolean traced = PieTrace.begin(PieTrace.SECTION_ANIM_TICK);
+                try {
+                    float angle = 360 * interpolatedTime + mConfig.getStartAngle();
+                    PieInfoWrapper info = findPieinfoWithAngle(angle);
+                    setCurPie(info == null ? lastFoundWrapper : info, angle);
+                    if (interpolatedTime >= 1.0f) {
+                        //动画时长缩放为0或者很短时只有最后一帧，中间的扇形来不及缓存
+                        cacheAllWrappers();
+                    }
+                } finally {
+                    PieTrace.end(traced);
+                }
             }
         }
 
@@ -716,6 +2086,8 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         private float centerY;
 
         private RectF touchBounds;
+        //完全浮起时的区域
+        private RectF fullTouchBounds;
         private PieInfoWrapper floatingWrapper;
         private ValueAnimator floatUpAnim;
         private float floatUpTime;
@@ -732,6 +2104,30 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
         private PieInfoWrapper lastTouchWrapper;
 
+        //-----------------------------------------rotate-----------------------------------------
+        //绘制时的旋转角度，点击时按相反方向映射
+        private float rotation;
+        private ValueAnimator rotateAnim;
+        private VelocityTracker velocityTracker;
+        private boolean dragging;
+        private float lastTouchAngle;
+        private int touchSlop;
+        private int minFlingVelocity;
+
+        //-----------------------------------------zoom-----------------------------------------
+        //放大倍数，以及放大区域中心的角度（甜甜圈自身的坐标系）
+        private float zoom = 1;
+        private float zoomCenter;
+        private ScaleGestureDetector scaleDetector;
+        private boolean scaling;
+
+        //-----------------------------------------multi selection-----------------------------------------
+        //所有扇形的浮起进度由同一个计时器推进
+        private ValueAnimator selectionTicker;
+        private long lastTickTime;
+        //未选中扇形变淡的进度
+        private float selectionFocusTime;
+
         TouchHelper() {
             this(25);
         }
@@ -739,6 +2135,7 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         TouchHelper(int expandClickRange) {
             this.expandClickRange = expandClickRange;
             touchBounds = new RectF();
+            fullTouchBounds = new RectF();
         }
 
         void reset() {
@@ -760,6 +2157,25 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             touchX = -1;
             touchY = -1;
             sameClick = false;
+
+            if (rotateAnim != null) {
+                rotateAnim.cancel();
+                rotateAnim.removeAllUpdateListeners();
+            }
+            rotation = 0;
+            dragging = false;
+            zoom = 1;
+            scaling = false;
+
+            if (selectionTicker != null) {
+                selectionTicker.cancel();
+                selectionTicker.removeAllUpdateListeners();
+            }
+            selectionFocusTime = 0;
+            if (velocityTracker != null) {
+                velocityTracker.recycle();
+                velocityTracker = null;
+            }
         }
 
         void prepare() {
@@ -768,7 +2184,6 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             mTouchPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
             floatUpAnim = ValueAnimator.ofFloat(0, 1);
-            floatUpAnim.setDuration(mConfig.getFloatUpDuration());
             floatUpAnim.setInterpolator(new DecelerateInterpolator());
             floatUpAnim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                 @Override
@@ -779,7 +2194,6 @@ public class PieChartRender extends BaseRender implements ITouchRender {
             });
 
             floatDownAnim = ValueAnimator.ofFloat(1, 0);
-            floatDownAnim.setDuration(mConfig.getFloatDownDuration());
             floatDownAnim.setInterpolator(new DecelerateInterpolator());
             floatDownAnim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                 @Override
@@ -788,6 +2202,96 @@ public class PieChartRender extends BaseRender implements ITouchRender {
                     callInvalidate();
                 }
             });
+            rotateAnim = ValueAnimator.ofFloat(0, 1);
+            rotateAnim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    rotation = (float) animation.getAnimatedValue();
+                    callInvalidate();
+                }
+            });
+            selectionTicker = ValueAnimator.ofFloat(0, 1);
+            selectionTicker.setDuration(1000);
+            selectionTicker.setRepeatCount(ValueAnimator.INFINITE);
+            selectionTicker.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    final boolean traced = PieTrace.begin(PieTrace.SECTION_ANIM_TICK);
+                    try {
+                        tickSelection();
+                    } finally {
+                        PieTrace.end(traced);
+                    }
+                }
+            });
+            ViewConfiguration viewConfiguration = ViewConfiguration.get(mIPieView.getViewContext());
+            touchSlop = viewConfiguration.getScaledTouchSlop();
+            minFlingVelocity = viewConfiguration.getScaledMinimumFlingVelocity();
+            scaleDetector = new ScaleGestureDetector(mIPieView.getViewContext(), new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                private float focusAngle;
+
+                @Override
+                public boolean onScaleBegin(ScaleGestureDetector detector) {
+                    scaling = true;
+                    dragging = false;
+                    disallowParentIntercept();
+                    ensureLodPyramid();
+                    //以双指中心下的扇形为锚点缩放
+                    focusAngle = getTouchAngle(detector.getFocusX(), detector.getFocusY()) - rotation;
+                    return true;
+                }
+
+                @Override
+                public boolean onScale(ScaleGestureDetector detector) {
+                    setZoom(zoom * detector.getScaleFactor(), focusAngle);
+                    return true;
+                }
+            });
+            applyConfig();
+        }
+
+        void pause() {
+            if (floatUpAnim == null || floatDownAnim == null) return;
+            final boolean canPause = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    && mConfig != null
+                    && mConfig.getResumeMode() == AnimatedPieViewConfig.RESUME_CONTINUE;
+            //旋转和多选没有暂停的必要，直接转到终点
+            if (rotateAnim != null && rotateAnim.isRunning()) rotateAnim.end();
+            if (selectionTicker != null && selectionTicker.isRunning()) finishSelection();
+            if (canPause) {
+                floatUpAnim.pause();
+                floatDownAnim.pause();
+            } else {
+                if (floatUpAnim.isRunning()) floatUpAnim.end();
+                if (floatDownAnim.isRunning()) floatDownAnim.end();
+            }
+        }
+
+        void resume() {
+            if (floatUpAnim == null || floatDownAnim == null) return;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                floatUpAnim.resume();
+                floatDownAnim.resume();
+            }
+        }
+
+        /**
+         * @return 是否正在拖动或者惯性旋转
+         */
+        boolean isRotating() {
+            return dragging || (rotateAnim != null && rotateAnim.isRunning());
+        }
+
+        boolean isAnimating() {
+            return (floatUpAnim != null && floatUpAnim.isRunning())
+                    || (floatDownAnim != null && floatDownAnim.isRunning())
+                    || (rotateAnim != null && rotateAnim.isRunning())
+                    || (selectionTicker != null && selectionTicker.isRunning());
+        }
+
+        void applyConfig() {
+            floatUpAnim.setDuration(mConfig.getFloatUpDuration());
+            floatDownAnim.setDuration(mConfig.getFloatDownDuration());
         }
 
         private void setCenter() {
@@ -822,8 +2326,13 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         }
 
         PieInfoWrapper findWrapper(float x, float y) {
-            //得到角度
-            double touchAngle = Math.toDegrees(Math.atan2(y - centerY, x - centerX));
+            if (isZoomed()) {
+                //放大状态下通过前缀和二分查找
+                final int index = mLodPyramid.indexAtAngle(fromZoomAngle(getTouchAngle(x, y) - rotation));
+                return index < 0 ? null : mDataWrappers.get(index);
+            }
+            //得到角度，并按绘制时的旋转反向映射回甜甜圈自身的坐标系
+            double touchAngle = (getTouchAngle(x, y) - rotation) % 360;
             if (touchAngle < 0) {
                 touchAngle += 360.0f;
             }
@@ -841,6 +2350,10 @@ public class PieChartRender extends BaseRender implements ITouchRender {
         }
 
         void setTouchBounds(float timeSet) {
+            setTouchBounds(touchBounds, timeSet);
+        }
+
+        void setTouchBounds(RectF touchBounds, float timeSet) {
             final float scaleSizeInTouch = !mConfig.isStrokeMode() ? mConfig.getFloatExpandSize() : 0;
             touchBounds.set(pieBounds.left - scaleSizeInTouch * timeSet,
                     pieBounds.top - scaleSizeInTouch * timeSet,
@@ -850,43 +2363,337 @@ public class PieChartRender extends BaseRender implements ITouchRender {
 
         boolean handleTouch(MotionEvent event) {
             if (mConfig == null || !mConfig.isCanTouch() || isInAnimating) return false;
+            final boolean rotatable = mConfig.isRotatable();
+            if (rotatable) {
+                if (velocityTracker == null) velocityTracker = VelocityTracker.obtain();
+                velocityTracker.addMovement(event);
+            }
+            if (mConfig.isZoomable()) {
+                scaleDetector.onTouchEvent(event);
+                if (scaleDetector.isInProgress()) return true;
+            }
             switch (event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     touchX = event.getX();
                     touchY = event.getY();
+                    scaling = false;
+                    if (rotatable) {
+                        //按下时停止惯性旋转
+                        if (rotateAnim.isRunning()) rotateAnim.cancel();
+                    }
+                    dragging = false;
                     return true;
-                case MotionEvent.ACTION_UP:
-                    PieInfoWrapper touchWrapper = pointToPieInfoWrapper(touchX, touchY);
-                    if (touchWrapper == null) return false;
-                    setDrawMode(DrawMode.TOUCH);
-                    if (touchWrapper.equals(floatingWrapper)) {
-                        //如果点的是当前正在浮起的wrapper，则移到上一个，当前的置空
-                        lastFloatWrapper = touchWrapper;
-                        floatingWrapper = null;
-                        sameClick = true;
-                    } else {
-                        lastFloatWrapper = floatingWrapper;
-                        floatingWrapper = touchWrapper;
-                        sameClick = false;
+                case MotionEvent.ACTION_MOVE:
+                    //放大状态下拖动为平移
+                    if (scaling || (!rotatable && !isZoomed())) return scaling;
+                    if (!dragging) {
+                        if (Math.hypot(event.getX() - touchX, event.getY() - touchY) < touchSlop) return true;
+                        dragging = true;
+                        lastTouchAngle = getTouchAngle(touchX, touchY);
+                        disallowParentIntercept();
                     }
-
-                    if (mConfig.isAnimTouch()) {
-                        floatUpAnim.start();
-                        floatDownAnim.start();
+                    final float touchAngle = getTouchAngle(event.getX(), event.getY());
+                    float delta = touchAngle - lastTouchAngle;
+                    //跨过±180时取最短的方向
+                    if (delta > 180) delta -= 360;
+                    if (delta < -180) delta += 360;
+                    lastTouchAngle = touchAngle;
+                    if (isZoomed()) {
+                        //平移时内容跟随手指：c' = c - delta / (z - 1)
+                        zoomCenter -= delta / (zoom - 1);
+                        clampZoomCenter();
                     } else {
-                        floatUpTime = 1;
-                        floatDownTime = 1;
-                        callInvalidate();
+                        rotation += delta;
                     }
-
-                    if (mConfig.getSelectListener() != null) {
-                        mConfig.getSelectListener().onSelectPie(touchWrapper.getPieInfo(), touchWrapper.equals(floatingWrapper));
+                    callInvalidate();
+                    return true;
+                case MotionEvent.ACTION_CANCEL:
+                    if (dragging) {
+                        dragging = false;
+                        settle();
                     }
-
+                    recycleVelocityTracker();
+                    return false;
+                case MotionEvent.ACTION_UP:
+                    if (scaling) {
+                        //双指缩放结束的抬手不作为点击
+                        scaling = false;
+                        dragging = false;
+                        recycleVelocityTracker();
+                        return true;
+                    }
+                    if (dragging) {
+                        dragging = false;
+                        //平移不需要惯性和吸附
+                        if (!isZoomed()) {
+                            fling(event.getX(), event.getY());
+                        }
+                        recycleVelocityTracker();
+                        return true;
+                    }
+                    recycleVelocityTracker();
+                    PieInfoWrapper touchWrapper = pointToPieInfoWrapper(touchX, touchY);
+                    if (touchWrapper == null) return false;
+                    toggle(touchWrapper);
                     return true;
             }
 
             return false;
         }
+
+        /**
+         * 与点击扇形的效果一致：单选时浮起或者落下，多选时切换选中状态
+         */
+        void toggle(PieInfoWrapper touchWrapper) {
+            setDrawMode(DrawMode.TOUCH);
+            if (isMultiSelection()) {
+                final boolean selected = mSelection.toggle(touchWrapper.getIndex());
+                startSelectionTicker();
+                mSelectEventDispatcher.dispatch(mConfig, touchWrapper.getPieInfo(), selected);
+                notifySliceSelected(touchWrapper.getIndex(), selected);
+                return;
+            }
+            if (touchWrapper.equals(floatingWrapper)) {
+                //如果点的是当前正在浮起的wrapper，则移到上一个，当前的置空
+                lastFloatWrapper = touchWrapper;
+                floatingWrapper = null;
+                sameClick = true;
+            } else {
+                lastFloatWrapper = floatingWrapper;
+                floatingWrapper = touchWrapper;
+                sameClick = false;
+            }
+
+            if (mConfig.isAnimTouch()) {
+                floatUpAnim.start();
+                floatDownAnim.start();
+            } else {
+                floatUpTime = 1;
+                floatDownTime = 1;
+                callInvalidate();
+            }
+
+            if (mConfig.isRotatable()) {
+                settle();
+            }
+
+            //回调可能很耗时，按照config交给分发管线处理
+            mSelectEventDispatcher.dispatch(mConfig, touchWrapper.getPieInfo(), touchWrapper.equals(floatingWrapper));
+            notifySliceSelected(touchWrapper.getIndex(), touchWrapper.equals(floatingWrapper));
+        }
+
+        boolean isZoomed() {
+            return zoom > 1;
+        }
+
+        /**
+         * 甜甜圈坐标系的角度映射到放大后的绘制角度
+         */
+        float toZoomAngle(float angle) {
+            return zoomCenter + (angle - zoomCenter) * zoom;
+        }
+
+        /**
+         * 绘制角度（不包含旋转）映射回甜甜圈坐标系
+         */
+        float fromZoomAngle(float angle) {
+            //取距离放大中心最近的等价角度
+            float offset = (angle - zoomCenter) % 360;
+            if (offset > 180) offset -= 360;
+            if (offset < -180) offset += 360;
+            return zoomCenter + offset / zoom;
+        }
+
+        /**
+         * 缩放并保持锚点角度下的内容不动
+         *
+         * @param anchorAngle 锚点的绘制角度（不包含旋转）
+         */
+        private void setZoom(float newZoom, float anchorAngle) {
+            newZoom = Math.max(1, Math.min(mConfig.getMaxZoom(), newZoom));
+            if (newZoom == zoom) return;
+            if (newZoom > 1) {
+                //锚点下的内容角度在缩放前后保持不变：c' + (anchor - c') * z' = screen
+                float anchor;
+                if (isZoomed()) {
+                    anchor = fromZoomAngle(anchorAngle);
+                } else {
+                    final float startAngle = mConfig.getStartAngle();
+                    anchor = startAngle + DegreeUtil.limitDegreeInTo360(anchorAngle - startAngle);
+                }
+                float offset = (anchorAngle - anchor) % 360;
+                if (offset > 180) offset -= 360;
+                if (offset < -180) offset += 360;
+                final float screen = anchor + offset;
+                zoomCenter = (anchor * newZoom - screen) / (newZoom - 1);
+            }
+            zoom = newZoom;
+            clampZoomCenter();
+            callInvalidate();
+        }
+
+        /**
+         * 保证可见范围不超过甜甜圈的起止角度
+         */
+        private void clampZoomCenter() {
+            final float startAngle = mConfig.getStartAngle();
+            final float halfRange = 180 / zoom;
+            zoomCenter = Math.max(startAngle + halfRange, Math.min(startAngle + 360 - halfRange, zoomCenter));
+        }
+
+        void startSelectionTicker() {
+            if (!mConfig.isAnimTouch()) {
+                finishSelection();
+                return;
+            }
+            if (!selectionTicker.isRunning()) {
+                lastTickTime = 0;
+                selectionTicker.start();
+            }
+        }
+
+        private void tickSelection() {
+            final long now = AnimationUtils.currentAnimationTimeMillis();
+            final long elapsed = lastTickTime == 0 ? 0 : now - lastTickTime;
+            lastTickTime = now;
+            final float upDelta = elapsed / (float) Math.max(1, mConfig.getFloatUpDuration());
+            final float downDelta = elapsed / (float) Math.max(1, mConfig.getFloatDownDuration());
+            final boolean running = mSelection.step(upDelta, downDelta);
+            final boolean focused = mSelection.hasSelection();
+            selectionFocusTime = focused
+                    ? Math.min(1, selectionFocusTime + upDelta)
+                    : Math.max(0, selectionFocusTime - downDelta);
+            if (!running && selectionFocusTime == (focused ? 1 : 0)) {
+                selectionTicker.cancel();
+            }
+            callInvalidate();
+        }
+
+        private void finishSelection() {
+            if (selectionTicker.isRunning()) selectionTicker.cancel();
+            mSelection.finish();
+            selectionFocusTime = mSelection.hasSelection() ? 1 : 0;
+            callInvalidate();
+        }
+
+        void clearSelection() {
+            if (selectionTicker != null && selectionTicker.isRunning()) selectionTicker.cancel();
+            mSelection.reset(mDataWrappers.size());
+            selectionFocusTime = 0;
+            floatingWrapper = null;
+            lastFloatWrapper = null;
+            setDrawMode(DrawMode.DRAW);
+        }
+
+        private float getTouchAngle(float x, float y) {
+            return (float) Math.toDegrees(Math.atan2(y - centerY, x - centerX));
+        }
+
+        private void disallowParentIntercept() {
+            View pieView = mIPieView.getPieView();
+            if (pieView != null && pieView.getParent() != null) {
+                pieView.getParent().requestDisallowInterceptTouchEvent(true);
+            }
+        }
+
+        private void recycleVelocityTracker() {
+            if (velocityTracker != null) {
+                velocityTracker.recycle();
+                velocityTracker = null;
+            }
+        }
+
+        /**
+         * 按照抬手时的角速度惯性旋转，如果有选中的扇形则让它停在吸附角度
+         */
+        private void fling(float x, float y) {
+            if (velocityTracker == null) {
+                settle();
+                return;
+            }
+            velocityTracker.computeCurrentVelocity(1000);
+            final float vx = velocityTracker.getXVelocity();
+            final float vy = velocityTracker.getYVelocity();
+            final float dx = x - centerX;
+            final float dy = y - centerY;
+            final float distancePow = dx * dx + dy * dy;
+            if (Math.hypot(vx, vy) < minFlingVelocity || distancePow == 0) {
+                settle();
+                return;
+            }
+            //切向速度换算成角速度（度/秒）
+            final double velocity = Math.toDegrees((dx * vy - dy * vx) / distancePow);
+            if (Math.abs(velocity) <= FlingInterpolator.MIN_VELOCITY) {
+                settle();
+                return;
+            }
+            final double duration = Math.min(FlingInterpolator.MAX_DURATION,
+                    Math.log(Math.abs(velocity) / FlingInterpolator.MIN_VELOCITY) / FlingInterpolator.FRICTION);
+            final double distance = velocity / FlingInterpolator.FRICTION * (1 - Math.exp(-FlingInterpolator.FRICTION * duration));
+            float target = rotation + (float) distance;
+            if (isSnapEnabled()) {
+                target = snapRotation(floatingWrapper, target);
+            }
+            rotateTo(target, (long) (duration * 1000), new FlingInterpolator(duration));
+        }
+
+        /**
+         * 把选中的扇形转到吸附角度
+         */
+        private void settle() {
+            if (!isSnapEnabled()) return;
+            final float target = snapRotation(floatingWrapper, rotation);
+            if (!mConfig.isAnimTouch()) {
+                rotation = target;
+                callInvalidate();
+                return;
+            }
+            rotateTo(target, mConfig.getFloatUpDuration(), new DecelerateInterpolator());
+        }
+
+        private boolean isSnapEnabled() {
+            return floatingWrapper != null && !isZoomed() && !Float.isNaN(mConfig.getSnapAngle());
+        }
+
+        /**
+         * @return 使扇形中线落在吸附角度、并且最接近near的旋转角度
+         */
+        private float snapRotation(PieInfoWrapper wrapper, float near) {
+            final float base = mConfig.getSnapAngle() - wrapper.getMiddleAngle();
+            return base + 360 * Math.round((near - base) / 360);
+        }
+
+        private void rotateTo(float target, long duration, Interpolator interpolator) {
+            if (rotateAnim.isRunning()) rotateAnim.cancel();
+            if (target == rotation) return;
+            rotateAnim.setFloatValues(rotation, target);
+            rotateAnim.setDuration(duration);
+            rotateAnim.setInterpolator(interpolator);
+            rotateAnim.start();
+        }
+    }
+
+    /**
+     * 惯性旋转的插值器，角速度按照e^(-kt)衰减，并归一化到[0,1]，这样吸附调整终点后减速曲线依然连续
+     */
+    private static final class FlingInterpolator implements Interpolator {
+        //摩擦系数（1/秒）
+        static final double FRICTION = 2.2;
+        //低于该角速度（度/秒）视为停止
+        static final double MIN_VELOCITY = 20;
+        static final double MAX_DURATION = 4;
+
+        private final double decay;
+        private final double scale;
+
+        FlingInterpolator(double duration) {
+            decay = FRICTION * duration;
+            scale = 1 - Math.exp(-decay);
+        }
+
+        @Override
+        public float getInterpolation(float input) {
+            return scale <= 0 ? input : (float) ((1 - Math.exp(-decay * input)) / scale);
+        }
     }
 }
@@ -0,0 +1,519 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.animation.ValueAnimator;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.Pair;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+
+import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
+import com.razerdp.widget.animatedpieview.data.IPieInfo;
+import com.razerdp.widget.animatedpieview.utils.DegreeUtil;
+import com.razerdp.widget.animatedpieview.utils.PLog;
+import com.razerdp.widget.animatedpieview.utils.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>网格渲染器，在一次onDraw中绘制多个甜甜圈。所有扇形数据展开到共享的原始类型数组中，
+ * 所有甜甜圈共用一个动画计时器和一个点击索引
+ * <p>
+ * <h3>EN:</h3>Grid render which draws many pies in a single onDraw.Slices of all pies are flattened into shared primitive arrays,
+ * and all pies share one animation ticker and one hit-test index.
+ * <p>
+ * 为了控制开销，网格中的甜甜圈只绘制扇形（不绘制指示线和文字），选中的扇形直接以浮起状态绘制
+ */
+public final class PieGridRender {
+    private static final String TAG = "PieGridRender";
+
+    private static final float MIN_ARC_PIXEL = 1f;
+    //描边模式下选中扇形增加的宽度，与PieChartRender一致
+    private static final int TOUCH_STROKE_EXPAND = 10;
+    //可见区域上下各多绘制一行，小幅滚动时不需要重绘
+    private static final int VIEWPORT_EXTRA_ROWS = 1;
+
+    private final View mHost;
+    private final List<AnimatedPieViewConfig> mConfigs;
+    private final Paint mPaint;
+    private final RectF mBounds;
+
+    //-----------------------------------------layout-----------------------------------------
+    private int columnCount = 3;
+    private int cellSpacing;
+    private int cellSize;
+    private int contentWidth;
+    private int contentLeft;
+    private int contentTop;
+
+    //-----------------------------------------viewport-----------------------------------------
+    //硬件加速时canvas的裁剪区域总是整个View，可见区域由宿主根据滚动位置设置（View坐标）
+    private boolean hasViewport;
+    private int viewportTop;
+    private int viewportBottom;
+    //上一次绘制的行范围
+    private int drawnFirstRow = -1;
+    private int drawnLastRow = -1;
+
+    //-----------------------------------------slices-----------------------------------------
+    //第i个甜甜圈的扇形下标范围为[cellSliceStart[i], cellSliceStart[i + 1])
+    private int[] cellSliceStart;
+    //相对于startAngle的累计结束角度，用于二分查找
+    private float[] sliceEnd;
+    private float[] sliceSweep;
+    private int[] sliceColor;
+    private IPieInfo[] sliceInfo;
+
+    //合并后的绘制批次，下标范围为[cellBatchStart[i], cellBatchStart[i + 1])
+    private int[] cellBatchStart;
+    private float[] batchFrom;
+    private float[] batchSweep;
+    private int[] batchColor;
+    private float[] cellRadius;
+    //单元格太小时描边宽度会被缩小
+    private float[] cellStrokeWidth;
+    private boolean isBatchDirty = true;
+
+    //-----------------------------------------anim-----------------------------------------
+    private ValueAnimator mTicker;
+    private long maxDuration;
+    private float elapsed = Float.MAX_VALUE;
+
+    //-----------------------------------------touch-----------------------------------------
+    private int selectedCell = -1;
+    private int selectedSlice = -1;
+    private int touchDownCell = -1;
+
+    public PieGridRender(View host) {
+        mHost = host;
+        mConfigs = new ArrayList<>();
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
+        mBounds = new RectF();
+        cellSliceStart = new int[1];
+        cellBatchStart = new int[1];
+        sliceEnd = new float[0];
+        sliceSweep = new float[0];
+        sliceColor = new int[0];
+        sliceInfo = new IPieInfo[0];
+        cellRadius = new float[0];
+        cellStrokeWidth = new float[0];
+    }
+
+    //-----------------------------------------config-----------------------------------------
+
+    public void setColumnCount(int columnCount) {
+        this.columnCount = Math.max(1, columnCount);
+        isBatchDirty = true;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public void setCellSpacing(int cellSpacing) {
+        this.cellSpacing = Math.max(0, cellSpacing);
+        isBatchDirty = true;
+    }
+
+    public int getCellCount() {
+        return mConfigs.size();
+    }
+
+    public int getRowCount() {
+        return (mConfigs.size() + columnCount - 1) / columnCount;
+    }
+
+    /**
+     * 根据可用宽度计算内容高度（单元格为正方形）
+     */
+    public int measureContentHeight(int contentWidth) {
+        final int rows = getRowCount();
+        if (rows == 0) return 0;
+        final int size = (contentWidth - cellSpacing * (columnCount - 1)) / columnCount;
+        return size * rows + cellSpacing * (rows - 1);
+    }
+
+    public void setConfigs(List<AnimatedPieViewConfig> configs) {
+        mConfigs.clear();
+        if (!Util.isListEmpty(configs)) {
+            mConfigs.addAll(configs);
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>展开所有config的数据，如果需要则播放动画
+     * <p>
+     * <h3>EN:</h3>Flatten datas of all configs and play the animation if needed.
+     */
+    public void prepare() {
+        cancelTicker();
+        selectedCell = -1;
+        selectedSlice = -1;
+        final int cellCount = mConfigs.size();
+        int sliceCount = 0;
+        //每个config只读取一次已发布的数据，避免两次读取之间数据被替换
+        final List<List<Pair<IPieInfo, Boolean>>> cellDatas = new ArrayList<>(cellCount);
+        for (AnimatedPieViewConfig config : mConfigs) {
+            List<Pair<IPieInfo, Boolean>> datas = config.getDatas();
+            cellDatas.add(datas);
+            sliceCount += datas.size();
+        }
+        cellSliceStart = new int[cellCount + 1];
+        cellBatchStart = new int[cellCount + 1];
+        cellRadius = new float[cellCount];
+        cellStrokeWidth = new float[cellCount];
+        sliceEnd = new float[sliceCount];
+        sliceSweep = new float[sliceCount];
+        sliceColor = new int[sliceCount];
+        sliceInfo = new IPieInfo[sliceCount];
+        batchFrom = new float[sliceCount];
+        batchSweep = new float[sliceCount];
+        batchColor = new int[sliceCount];
+
+        int index = 0;
+        maxDuration = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            AnimatedPieViewConfig config = mConfigs.get(cell);
+            cellSliceStart[cell] = index;
+            final List<Pair<IPieInfo, Boolean>> datas = cellDatas.get(cell);
+            double sum = 0;
+            for (int i = 0; i < datas.size(); i++) {
+                sum += Math.abs(datas.get(i).first.getValue());
+            }
+            float lastAngle = 0;
+            for (int i = 0; i < datas.size(); i++) {
+                IPieInfo info = datas.get(i).first;
+                float sweep = sum <= 0 ? 0 : (float) (360f * (Math.abs(info.getValue()) / sum));
+                lastAngle += sweep;
+                sliceInfo[index] = info;
+                sliceColor[index] = info.getColor();
+                sliceSweep[index] = sweep;
+                sliceEnd[index] = lastAngle;
+                index++;
+            }
+            if (config.isAnimatePie()) {
+                maxDuration = Math.max(maxDuration, config.getDuration());
+            }
+        }
+        cellSliceStart[cellCount] = index;
+        isBatchDirty = true;
+        PLog.i(TAG + " prepared " + cellCount + " pies with " + sliceCount + " slices");
+        startTicker();
+    }
+
+    /**
+     * <h3>CN:</h3>设置可见区域（View坐标），绘制时只绘制与可见区域相交的行。
+     * 硬件加速时外层容器滚动不会重新调用onDraw，返回true表示可见的行超出了上一次绘制的范围，宿主需要重绘
+     * <p>
+     * <h3>EN:</h3>Set the visible area(view coordinates), only rows intersecting it are drawn.
+     * Scrolling a parent does not call onDraw again under hardware acceleration, so true is returned when the visible rows
+     * go beyond the rows drawn last time and the host should invalidate.
+     */
+    public boolean setViewport(int top, int bottom) {
+        hasViewport = true;
+        viewportTop = top;
+        viewportBottom = bottom;
+        if (isBatchDirty || cellSize <= 0) return true;
+        return getFirstVisibleRow(0) < drawnFirstRow || getLastVisibleRow(0) > drawnLastRow;
+    }
+
+    /**
+     * 宿主不在屏幕上时无法得知可见区域，绘制所有的行
+     */
+    public void clearViewport() {
+        hasViewport = false;
+    }
+
+    private int getFirstVisibleRow(int extraRows) {
+        if (!hasViewport) return 0;
+        return Math.max(0, (viewportTop - contentTop) / (cellSize + cellSpacing) - extraRows);
+    }
+
+    private int getLastVisibleRow(int extraRows) {
+        if (!hasViewport) return getRowCount() - 1;
+        return Math.min(getRowCount() - 1, (viewportBottom - contentTop) / (cellSize + cellSpacing) + extraRows);
+    }
+
+    public void onSizeChanged(int width, int height, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        contentWidth = width - paddingLeft - paddingRight;
+        contentLeft = paddingLeft;
+        contentTop = paddingTop;
+        isBatchDirty = true;
+    }
+
+    //-----------------------------------------batch-----------------------------------------
+
+    /**
+     * 按照单元格大小计算半径，并把相邻的同色扇形或者不足1px的扇形合并成一批
+     */
+    private void buildBatches() {
+        isBatchDirty = false;
+        cellSize = Math.max(0, (contentWidth - cellSpacing * (columnCount - 1)) / columnCount);
+        final int cellCount = mConfigs.size();
+        int batchIndex = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            AnimatedPieViewConfig config = mConfigs.get(cell);
+            cellBatchStart[cell] = batchIndex;
+            final float strokeWidth = calculateStrokeWidth(config);
+            final float radius = calculateRadius(config, strokeWidth);
+            cellStrokeWidth[cell] = strokeWidth;
+            cellRadius[cell] = radius;
+            final float splitAngle = config.getSplitAngle();
+            final int start = cellSliceStart[cell];
+            final int end = cellSliceStart[cell + 1];
+            float runArcLength = 0;
+            boolean runSubPixel = false;
+            for (int i = start; i < end; i++) {
+                final float arcLength = (float) (Math.toRadians(sliceSweep[i]) * radius);
+                final boolean subPixel = arcLength < MIN_ARC_PIXEL;
+                boolean merge = false;
+                if (i > start) {
+                    if (runSubPixel && subPixel) {
+                        merge = runArcLength < MIN_ARC_PIXEL;
+                    } else {
+                        merge = splitAngle <= 0 && batchColor[batchIndex - 1] == sliceColor[i];
+                    }
+                }
+                if (merge) {
+                    batchSweep[batchIndex - 1] += sliceSweep[i];
+                    runArcLength += arcLength;
+                    runSubPixel = runSubPixel && subPixel;
+                } else {
+                    batchFrom[batchIndex] = sliceEnd[i] - sliceSweep[i];
+                    batchSweep[batchIndex] = sliceSweep[i];
+                    batchColor[batchIndex] = sliceColor[i];
+                    batchIndex++;
+                    runArcLength = arcLength;
+                    runSubPixel = subPixel;
+                }
+            }
+        }
+        cellBatchStart[cellCount] = batchIndex;
+        PLog.d(TAG + " batch arcs : " + sliceEnd.length + " -> " + batchIndex);
+    }
+
+    /**
+     * 描边宽度不超过单元格的一半（减去浮起的宽度），保证圆环的内径不小于0
+     */
+    private float calculateStrokeWidth(AnimatedPieViewConfig config) {
+        if (!config.isStrokeMode()) return config.getStrokeWidth();
+        final float maxStrokeWidth = Math.max(1, cellSize / 2f - TOUCH_STROKE_EXPAND / 2f);
+        return Math.max(1, Math.min(config.getStrokeWidth(), maxStrokeWidth));
+    }
+
+    private float calculateRadius(AnimatedPieViewConfig config, float strokeWidth) {
+        //给选中时的浮起留出空间
+        final boolean strokeMode = config.isStrokeMode();
+        final float floatSpace = strokeMode ? (strokeWidth + TOUCH_STROKE_EXPAND) / 2f : config.getFloatExpandSize();
+        //描边模式下半径至少为描边宽度的一半，填充模式下至少1px
+        final float minRadius = strokeMode ? strokeWidth / 2f : Math.min(1, cellSize / 2f);
+        final float maxRadius = Math.max(minRadius, cellSize / 2f - floatSpace);
+        float radius = maxRadius;
+        if (config.getPieRadius() > 0) {
+            radius = Math.min(maxRadius, config.getPieRadius());
+        } else if (config.getPieRadiusRatio() > 0) {
+            radius = maxRadius * config.getPieRadiusRatio();
+        }
+        return Math.max(minRadius, radius);
+    }
+
+    //-----------------------------------------draw-----------------------------------------
+
+    public void draw(Canvas canvas) {
+        //还没有prepare
+        if (mConfigs.isEmpty() || cellSliceStart.length != mConfigs.size() + 1) return;
+        if (isBatchDirty) {
+            buildBatches();
+        }
+        if (cellSize <= 0) return;
+        final int cellCount = mConfigs.size();
+        //只绘制可见区域内的单元格
+        final int firstRow = getFirstVisibleRow(VIEWPORT_EXTRA_ROWS);
+        final int lastRow = getLastVisibleRow(VIEWPORT_EXTRA_ROWS);
+        drawnFirstRow = firstRow;
+        drawnLastRow = lastRow;
+        final int from = Math.min(cellCount, firstRow * columnCount);
+        final int to = Math.min(cellCount, (lastRow + 1) * columnCount);
+        for (int cell = from; cell < to; cell++) {
+            drawCell(canvas, cell);
+        }
+    }
+
+    private void drawCell(Canvas canvas, int cell) {
+        AnimatedPieViewConfig config = mConfigs.get(cell);
+        final float radius = cellRadius[cell];
+        if (radius <= 0) return;
+        final float centerX = getCellCenterX(cell);
+        final float centerY = getCellCenterY(cell);
+        final boolean strokeMode = config.isStrokeMode();
+        final float startAngle = config.getStartAngle();
+        final float splitAngle = config.getSplitAngle();
+        final float progressAngle = 360f * getCellProgress(config);
+
+        mPaint.setStyle(strokeMode ? Paint.Style.STROKE : Paint.Style.FILL);
+        mPaint.setStrokeWidth(cellStrokeWidth[cell]);
+        mBounds.set(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        final int end = cellBatchStart[cell + 1];
+        for (int i = cellBatchStart[cell]; i < end; i++) {
+            final float batchStart = batchFrom[i];
+            if (batchStart >= progressAngle) break;
+            final float sweep = Math.min(batchSweep[i], progressAngle - batchStart) - splitAngle;
+            if (sweep <= 0) continue;
+            mPaint.setColor(batchColor[i]);
+            canvas.drawArc(mBounds, startAngle + batchStart, sweep, !strokeMode, mPaint);
+        }
+
+        //选中的扇形以浮起状态覆盖绘制
+        if (cell == selectedCell && selectedSlice >= 0 && progressAngle >= 360f) {
+            final float expandAngle = config.getFloatExpandAngle();
+            final float expandSize = strokeMode ? 0 : config.getFloatExpandSize();
+            mPaint.setColor(sliceColor[selectedSlice]);
+            mPaint.setStrokeWidth(cellStrokeWidth[cell] + TOUCH_STROKE_EXPAND);
+            mBounds.inset(-expandSize, -expandSize);
+            canvas.drawArc(mBounds,
+                    startAngle + sliceEnd[selectedSlice] - sliceSweep[selectedSlice] - expandAngle,
+                    sliceSweep[selectedSlice] + expandAngle * 2 - splitAngle,
+                    !strokeMode,
+                    mPaint);
+        }
+    }
+
+    private float getCellCenterX(int cell) {
+        return contentLeft + (cell % columnCount) * (cellSize + cellSpacing) + cellSize / 2f;
+    }
+
+    private float getCellCenterY(int cell) {
+        return contentTop + (cell / columnCount) * (cellSize + cellSpacing) + cellSize / 2f;
+    }
+
+    //-----------------------------------------anim-----------------------------------------
+
+    private float getCellProgress(AnimatedPieViewConfig config) {
+        if (!config.isAnimatePie() || config.getDuration() <= 0) return 1;
+        final float input = Math.min(1f, elapsed / config.getDuration());
+        Interpolator interpolator = config.getAnimationInterpolator();
+        return interpolator == null ? input : interpolator.getInterpolation(input);
+    }
+
+    private void startTicker() {
+        if (maxDuration <= 0) {
+            elapsed = Float.MAX_VALUE;
+            mHost.invalidate();
+            return;
+        }
+        elapsed = 0;
+        //一个计时器驱动所有甜甜圈，每个甜甜圈按照自己的时长和插值器换算进度
+        mTicker = ValueAnimator.ofFloat(0, maxDuration);
+        mTicker.setDuration(maxDuration);
+        mTicker.setInterpolator(new LinearInterpolator());
+        mTicker.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                elapsed = (float) animation.getAnimatedValue();
+                mHost.invalidate();
+            }
+        });
+        mTicker.start();
+    }
+
+    private void cancelTicker() {
+        if (mTicker != null) {
+            mTicker.removeAllUpdateListeners();
+            mTicker.cancel();
+            mTicker = null;
+        }
+    }
+
+    public boolean isAnimating() {
+        return mTicker != null && mTicker.isRunning();
+    }
+
+    /**
+     * 直接跳到动画最后一帧（比如宿主不可见的时候）
+     */
+    public void finishAnimation() {
+        cancelTicker();
+        elapsed = Float.MAX_VALUE;
+        mHost.invalidate();
+    }
+
+    //-----------------------------------------touch-----------------------------------------
+
+    public boolean onTouchEvent(MotionEvent event) {
+        if (isAnimating() || isBatchDirty || cellSize <= 0) return false;
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                touchDownCell = findCell(event.getX(), event.getY());
+                return touchDownCell >= 0 && mConfigs.get(touchDownCell).isCanTouch();
+            case MotionEvent.ACTION_UP:
+                final int cell = findCell(event.getX(), event.getY());
+                if (cell < 0 || cell != touchDownCell) return false;
+                final int slice = findSlice(cell, event.getX(), event.getY());
+                if (slice < 0) return false;
+                final boolean isFloatUp = !(cell == selectedCell && slice == selectedSlice);
+                selectedCell = isFloatUp ? cell : -1;
+                selectedSlice = isFloatUp ? slice : -1;
+                mHost.invalidate();
+                AnimatedPieViewConfig config = mConfigs.get(cell);
+                if (config.getSelectListener() != null) {
+                    config.getSelectListener().onSelectPie(sliceInfo[slice], isFloatUp);
+                }
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 通过行列直接计算所在的单元格
+     */
+    private int findCell(float x, float y) {
+        final float localX = x - contentLeft;
+        final float localY = y - contentTop;
+        if (localX < 0 || localY < 0) return -1;
+        final int step = cellSize + cellSpacing;
+        final int column = (int) (localX / step);
+        final int row = (int) (localY / step);
+        //落在间隔里
+        if (column >= columnCount || localX - column * step > cellSize || localY - row * step > cellSize) return -1;
+        final int cell = row * columnCount + column;
+        return cell < mConfigs.size() ? cell : -1;
+    }
+
+    /**
+     * 在单元格的累计角度中二分查找所在的扇形
+     */
+    private int findSlice(int cell, float x, float y) {
+        AnimatedPieViewConfig config = mConfigs.get(cell);
+        final float dx = x - getCellCenterX(cell);
+        final float dy = y - getCellCenterY(cell);
+        final double distance = Math.sqrt(dx * dx + dy * dy);
+        final float radius = cellRadius[cell];
+        if (config.isStrokeMode()) {
+            final float halfStroke = cellStrokeWidth[cell] / 2f;
+            if (distance < radius - halfStroke || distance > radius + halfStroke) return -1;
+        } else if (distance > radius) {
+            return -1;
+        }
+        final float angle = DegreeUtil.limitDegreeInTo360(Math.toDegrees(Math.atan2(dy, dx)) - config.getStartAngle());
+        int low = cellSliceStart[cell];
+        int high = cellSliceStart[cell + 1] - 1;
+        if (low > high) return -1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sliceEnd[mid] < angle) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void onDestroy() {
+        cancelTicker();
+    }
+}
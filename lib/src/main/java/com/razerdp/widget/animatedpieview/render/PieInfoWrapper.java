@@ -1,15 +1,18 @@
 package com.razerdp.widget.animatedpieview.render;
 
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
 import android.text.TextUtils;
 
 import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
 import com.razerdp.widget.animatedpieview.data.IPieInfo;
+import com.razerdp.widget.animatedpieview.data.PieColumns;
 import com.razerdp.widget.animatedpieview.data.PieOption;
 import com.razerdp.widget.animatedpieview.data.SimplePieInfo;
+import com.razerdp.widget.animatedpieview.manager.PieIconCache;
 import com.razerdp.widget.animatedpieview.utils.DegreeUtil;
 import com.razerdp.widget.animatedpieview.utils.PLog;
 
@@ -24,8 +27,13 @@ final class PieInfoWrapper implements Serializable {
     private static final long serialVersionUID = -8551831728967624659L;
 
     private final String id;
+    //在数据中的下标
+    private int index;
     private volatile boolean hasCached;
-    private final IPieInfo mPieInfo;
+    //按行的数据，按列的数据只在需要时创建
+    private IPieInfo mPieInfo;
+    //按列的数据，直接读取数组
+    private final PieColumns mColumns;
 
     //============= 绘制设置 =============
     private Paint mDrawPaint;
@@ -34,13 +42,21 @@ final class PieInfoWrapper implements Serializable {
     private Paint mIconPaint;
     private Path mLinePath;
     private Path mLinePathMeasure;
-    private Bitmap icon;
     //============= 参数 =============
     private float fromAngle;
     private float sweepAngle;
     private float toAngle;
     private boolean autoDesc;
     private String desc;
+    //屏幕上的弧长（px）
+    private float arcLength;
+    //描述文字的宽度（不包含图标），由渲染器测量后缓存
+    private int textWidth;
+    //指示线文字（描述为空时为"null"）的边界和图标，按文字和字号缓存，旋转时不再重复测量
+    private String labelDesc;
+    private float labelTextSize;
+    private Rect labelBounds;
+    private Bitmap labelIcon;
 
     //============= 节点 =============
     private PieInfoWrapper preWrapper;
@@ -52,12 +68,33 @@ final class PieInfoWrapper implements Serializable {
         }
         id = generateId();
         mPieInfo = pieInfo;
+        mColumns = null;
+    }
+
+    /**
+     * 按列的数据，index同时也是扇形的下标
+     */
+    PieInfoWrapper(PieColumns columns, int index) {
+        if (columns == null) {
+            throw new NullPointerException("columns must not be null");
+        }
+        id = generateId();
+        mColumns = columns;
+        this.index = index;
     }
 
     String getId() {
         return id;
     }
 
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
 
     PieInfoWrapper prepare(AnimatedPieViewConfig config) {
         hasCached = false;
@@ -72,22 +109,54 @@ final class PieInfoWrapper implements Serializable {
         if (mLinePath == null) mLinePath = new Path();
         if (mLinePathMeasure == null) mLinePathMeasure = new Path();
 
+        preparePaint(config);
+
+        mLinePath.reset();
+        return this;
+    }
+
+    /**
+     * 只刷新画笔（颜色、样式、字体大小），不影响缓存状态
+     */
+    void preparePaint(AnimatedPieViewConfig config) {
         mDrawPaint.setStyle(config.isStrokeMode() ? Paint.Style.STROKE : Paint.Style.FILL);
         mDrawPaint.setStrokeWidth(config.getStrokeWidth());
-        mDrawPaint.setColor(mPieInfo.getColor());
+        mDrawPaint.setColor(getColor());
         mAlphaDrawPaint.set(mDrawPaint);
 
         mTexPaint.setStyle(Paint.Style.FILL);
         mTexPaint.setTextSize(config.getTextSize());
+    }
 
-        mLinePath.reset();
-        return this;
+    /**
+     * 开关抗锯齿和抖动，画质调节时使用
+     */
+    void setAntiAlias(boolean antiAlias) {
+        if (mDrawPaint == null) return;
+        mDrawPaint.setAntiAlias(antiAlias);
+        mDrawPaint.setDither(antiAlias);
+        mTexPaint.setAntiAlias(antiAlias);
+        mTexPaint.setDither(antiAlias);
+        mIconPaint.setAntiAlias(antiAlias);
+        mIconPaint.setFilterBitmap(antiAlias);
     }
 
     public IPieInfo getPieInfo() {
+        if (mPieInfo == null) {
+            //只有选中回调、布局遍历等对外接口需要，按列的数据在这里才创建对象
+            mPieInfo = mColumns.getEntry(index);
+        }
         return mPieInfo;
     }
 
+    double getValue() {
+        return mColumns != null ? mColumns.getValue(index) : mPieInfo.getValue();
+    }
+
+    int getColor() {
+        return mColumns != null ? mColumns.getColor(index) : mPieInfo.getColor();
+    }
+
     public Paint getIconPaint() {
         return mIconPaint;
     }
@@ -140,49 +209,133 @@ final class PieInfoWrapper implements Serializable {
     }
 
     public PieOption getPieOption() {
-        return mPieInfo.getPieOpeion();
+        //按列的数据没有图标
+        return mColumns != null ? null : mPieInfo.getPieOpeion();
     }
 
-    public Bitmap getIcon(int textWidth, int textHeight) {
+    /**
+     * 从共享的图标缓存中获取适应文字大小的图标，未加载完成时返回null，加载完成后回调listener
+     */
+    public Bitmap getIcon(Resources res, int textWidth, int textHeight, PieIconCache.OnIconLoadListener l) {
         if (textWidth == 0 || textHeight == 0) return null;
-        if (icon != null) return icon;
-        if (mPieInfo.getPieOpeion() == null || mPieInfo.getPieOpeion().getLabelIcon() == null)
-            return null;
-        Bitmap mIcon = mPieInfo.getPieOpeion().getLabelIcon();
-        int iconWidth = mIcon.getWidth();
-        int iconHeight = mIcon.getHeight();
-        if (iconWidth > textWidth || iconHeight > textHeight) {
-            Matrix matrix = new Matrix();
-            float sX = 1.0f;
-            float sY = 1.0f;
-            if (iconWidth > textWidth) {
-                sX = (float) textWidth / iconWidth;
-            }
-            if (iconHeight > textHeight) {
-                sY = (float) textHeight / iconHeight;
-            }
-            float scale = Math.min(sX, sY);
-            matrix.postScale(scale, scale);
-            icon = Bitmap.createBitmap(mIcon, 0, 0, iconWidth, iconHeight, matrix, true);
-        }
-        return icon;
+        PieOption pieOption = getPieOption();
+        if (pieOption == null) return null;
+        return PieIconCache.getInstance().get(res, pieOption.getLabelIconSource(), textWidth, textHeight, l);
+    }
+
+    public Bitmap getIconSync(Resources res, int textWidth, int textHeight) {
+        if (textWidth == 0 || textHeight == 0) return null;
+        PieOption pieOption = getPieOption();
+        if (pieOption == null) return null;
+        return PieIconCache.getInstance().getSync(res, pieOption.getLabelIconSource(), textWidth, textHeight);
     }
 
     public float calculateDegree(float lastPieDegree, double sum, AnimatedPieViewConfig config) {
+        return calculateDegree(lastPieDegree, sum, config, true);
+    }
+
+    /**
+     * @param writeBackDesc 是否把自动填充的描述写回SimplePieInfo，见{@link #calculateDesc(double, AnimatedPieViewConfig, boolean)}
+     */
+    float calculateDegree(float lastPieDegree, double sum, AnimatedPieViewConfig config, boolean writeBackDesc) {
         fromAngle = lastPieDegree;
-        sweepAngle = (float) (360f * (Math.abs(mPieInfo.getValue()) / sum));
+        sweepAngle = (float) (360f * (Math.abs(getValue()) / sum));
         toAngle = fromAngle + sweepAngle;
+        calculateDesc(sum, config, writeBackDesc);
+        PLog.d("【calculate】 " + "{ \n" + "id = " + id + "\nfromAngle = " + fromAngle + "\nsweepAngle = " + sweepAngle + "\ntoAngle = " + toAngle + "\n desc = " + desc + "\n  }");
+        return toAngle;
+    }
+
+    /**
+     * 直接使用快照中的角度和描述，不再计算
+     */
+    void restoreDegree(float fromAngle, float sweepAngle, String desc) {
+        this.fromAngle = fromAngle;
+        this.sweepAngle = sweepAngle;
+        this.toAngle = fromAngle + sweepAngle;
+        this.desc = desc;
+        autoDesc = false;
+    }
+
+    public void calculateDesc(double sum, AnimatedPieViewConfig config) {
+        calculateDesc(sum, config, true);
+    }
+
+    /**
+     * @param writeBackDesc 是否把自动填充的描述写回SimplePieInfo。没有界面的渲染器（导出、预取）在工作线程使用调用者的数据对象，
+     *                      不能修改它们
+     */
+    void calculateDesc(double sum, AnimatedPieViewConfig config, boolean writeBackDesc) {
         if (autoDesc) {
             //自动填充描述auto
-            desc = String.format(config.getAutoDescStringFormat(), AnimatedPieViewConfig.sFormateRate.format((mPieInfo.getValue() / sum) * 100));
-            if (mPieInfo instanceof SimplePieInfo) {
+            desc = config.getAutoDescFormatter().format((getValue() / sum) * 100);
+            if (writeBackDesc && mPieInfo instanceof SimplePieInfo) {
                 ((SimplePieInfo) mPieInfo).setDesc(desc);
             }
         } else {
-            desc = mPieInfo.getDesc();
+            desc = mColumns != null ? mColumns.getDesc(index) : mPieInfo.getDesc();
         }
-        PLog.d("【calculate】 " + "{ \n" + "id = " + id + "\nfromAngle = " + fromAngle + "\nsweepAngle = " + sweepAngle + "\ntoAngle = " + toAngle + "\n desc = " + desc + "\n  }");
-        return toAngle;
+    }
+
+    /**
+     * 根据半径计算该扇形在屏幕上的弧长
+     *
+     * @param radius 甜甜圈半径
+     */
+    void measureArcLength(float radius) {
+        arcLength = (float) (Math.toRadians(Math.abs(sweepAngle)) * radius);
+    }
+
+    void setTextWidth(int textWidth) {
+        this.textWidth = textWidth;
+    }
+
+    int getTextWidth() {
+        return textWidth;
+    }
+
+    /**
+     * 缓存的文字是否仍然对应当前的描述（按引用比较，自动描述每次计算都会生成新的字符串）和字号
+     */
+    boolean isLabelMetricsValid(String labelDesc, float textSize) {
+        return this.labelDesc != null && this.labelDesc == labelDesc && labelTextSize == textSize;
+    }
+
+    void setLabelMetrics(String labelDesc, float textSize, Rect textBounds, Bitmap icon) {
+        if (labelBounds == null) {
+            labelBounds = new Rect();
+        }
+        labelBounds.set(textBounds);
+        labelIcon = icon;
+        labelTextSize = textSize;
+        this.labelDesc = labelDesc;
+    }
+
+    void invalidateLabelMetrics() {
+        labelDesc = null;
+        labelIcon = null;
+    }
+
+    /**
+     * 文字相对于基线起点的边界，只在{@link #isLabelMetricsValid(String, float)}为true时有效
+     */
+    Rect getLabelBounds() {
+        return labelBounds;
+    }
+
+    Bitmap getLabelIcon() {
+        return labelIcon;
+    }
+
+    float getArcLength() {
+        return arcLength;
+    }
+
+    /**
+     * 弧长不足1px时，单独绘制已经没有意义
+     */
+    boolean isSubPixel() {
+        return arcLength < 1f;
     }
 
     public boolean isCached() {
@@ -244,7 +397,9 @@ final class PieInfoWrapper implements Serializable {
         final float tAngle = DegreeUtil.limitDegreeInTo360(angle);
         float tStart = DegreeUtil.limitDegreeInTo360(fromAngle);
         float tEnd = DegreeUtil.limitDegreeInTo360(toAngle);
-        PLog.d("containsTouch  >>  tStart： " + tStart + "   tEnd： " + tEnd + "   tAngle： " + tAngle);
+        if (PLog.isDebuggable()) {
+            PLog.d("containsTouch  >>  tStart： " + tStart + "   tEnd： " + tEnd + "   tAngle： " + tAngle);
+        }
         boolean result;
         if (tEnd < tStart) {
             if (tAngle > 180) {
@@ -266,7 +421,7 @@ final class PieInfoWrapper implements Serializable {
     @Override
     public String toString() {
         return "{ \nid = " + id + '\n'
-                + "value =  " + getPieInfo().getValue() + '\n'
+                + "value =  " + getValue() + '\n'
                 + "fromAngle = " + fromAngle + '\n'
                 + "toAngle = " + toAngle + "\n  }";
     }
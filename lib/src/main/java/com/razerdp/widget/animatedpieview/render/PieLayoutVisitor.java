@@ -0,0 +1,162 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import com.razerdp.widget.animatedpieview.data.IPieInfo;
+
+/**
+ * <h3>CN:</h3>遍历甜甜圈最终帧的扇形和文字布局，坐标以甜甜圈圆心为原点。回调中的布局对象会被复用，请不要持有
+ * <p>
+ * <h3>EN:</h3>Visitor of the slice and label layout of the final frame.Coordinates are relative to the center of the pie.
+ * Layout objects passed to the callbacks are reused, do not keep them.
+ */
+public interface PieLayoutVisitor {
+
+    /**
+     * @param width  绘制区域宽度
+     * @param height 绘制区域高度
+     */
+    void onLayoutStart(float width, float height);
+
+    void onSlice(SliceLayout slice);
+
+    void onLabel(LabelLayout label);
+
+    void onLayoutEnd();
+
+    final class SliceLayout {
+        IPieInfo info;
+        final RectF bounds = new RectF();
+        float fromAngle;
+        float sweepAngle;
+        int color;
+        boolean strokeMode;
+        float strokeWidth;
+
+        public IPieInfo getInfo() {
+            return info;
+        }
+
+        public RectF getBounds() {
+            return bounds;
+        }
+
+        public float getFromAngle() {
+            return fromAngle;
+        }
+
+        /**
+         * 已经减去分割角度
+         */
+        public float getSweepAngle() {
+            return sweepAngle;
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public boolean isStrokeMode() {
+            return strokeMode;
+        }
+
+        public float getStrokeWidth() {
+            return strokeWidth;
+        }
+    }
+
+    final class LabelLayout {
+        IPieInfo info;
+        String desc;
+        int color;
+        float textSize;
+        //指示点
+        float pointX;
+        float pointY;
+        float pointRadius;
+        //指示线的拐点和终点
+        float lineX1;
+        float lineY1;
+        float lineX2;
+        float lineY2;
+        float lineWidth;
+        //文字基线起点
+        float textX;
+        float textY;
+        Bitmap icon;
+        float iconX;
+        float iconY;
+
+        public IPieInfo getInfo() {
+            return info;
+        }
+
+        public String getDesc() {
+            return desc;
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public float getTextSize() {
+            return textSize;
+        }
+
+        public float getPointX() {
+            return pointX;
+        }
+
+        public float getPointY() {
+            return pointY;
+        }
+
+        public float getPointRadius() {
+            return pointRadius;
+        }
+
+        public float getLineX1() {
+            return lineX1;
+        }
+
+        public float getLineY1() {
+            return lineY1;
+        }
+
+        public float getLineX2() {
+            return lineX2;
+        }
+
+        public float getLineY2() {
+            return lineY2;
+        }
+
+        public float getLineWidth() {
+            return lineWidth;
+        }
+
+        public float getTextX() {
+            return textX;
+        }
+
+        public float getTextY() {
+            return textY;
+        }
+
+        /**
+         * 没有图标或者图标还没有加载完成时为null
+         */
+        public Bitmap getIcon() {
+            return icon;
+        }
+
+        public float getIconX() {
+            return iconX;
+        }
+
+        public float getIconY() {
+            return iconY;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>扇形的多级聚合金字塔，用于放大查看大数据量的甜甜圈。第0级是原始扇形，第l级每个桶包含{@link #FANOUT}^l个相邻扇形，
+ * 并记录桶内最大的扇形作为代表。角度由数值的前缀和计算，任意区间的角度都是O(1)，根据角度查找扇形是O(log n)
+ * <p>
+ * <h3>EN:</h3>Multi-resolution aggregation pyramid of slices for zooming into huge pies.Level 0 holds the raw slices,
+ * each bucket of level l covers {@link #FANOUT}^l consecutive slices and keeps its largest slice as representative.
+ * Angles come from the prefix sum of values, so the angle of any range is O(1) and the slice under an angle is O(log n).
+ */
+final class PieLodPyramid {
+
+    static final int FANOUT = 4;
+
+    //prefix[i]为前i个扇形的数值（绝对值）之和
+    private double[] prefix = new double[1];
+    private int size;
+    private float startAngle;
+    //dominants[l - 1][b]为第l级第b个桶中最大扇形的下标
+    private int[][] dominants = new int[0][];
+    private boolean dirty = true;
+
+    void setDirty() {
+        dirty = true;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * O(n)，只在数据或者角度变化后执行一次
+     */
+    void build(List<PieInfoWrapper> wrappers, float startAngle) {
+        this.startAngle = startAngle;
+        size = wrappers.size();
+        if (prefix.length < size + 1) {
+            prefix = new double[size + 1];
+        }
+        prefix[0] = 0;
+        for (int i = 0; i < size; i++) {
+            prefix[i + 1] = prefix[i] + Math.abs(wrappers.get(i).getValue());
+        }
+
+        int levels = 0;
+        for (int count = size; count > 1; count = (count + FANOUT - 1) / FANOUT) {
+            levels++;
+        }
+        dominants = new int[levels][];
+        int childCount = size;
+        for (int level = 0; level < levels; level++) {
+            final int bucketCount = (childCount + FANOUT - 1) / FANOUT;
+            final int[] children = level == 0 ? null : dominants[level - 1];
+            final int[] current = new int[bucketCount];
+            for (int b = 0; b < bucketCount; b++) {
+                int best = -1;
+                double bestValue = -1;
+                final int end = Math.min((b + 1) * FANOUT, childCount);
+                for (int child = b * FANOUT; child < end; child++) {
+                    final int index = children == null ? child : children[child];
+                    final double value = prefix[index + 1] - prefix[index];
+                    if (value > bestValue) {
+                        bestValue = value;
+                        best = index;
+                    }
+                }
+                current[b] = best;
+            }
+            dominants[level] = current;
+            childCount = bucketCount;
+        }
+        dirty = false;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getLevelCount() {
+        return dominants.length + 1;
+    }
+
+    int getBucketSize(int level) {
+        int bucketSize = 1;
+        for (int i = 0; i < level; i++) {
+            bucketSize *= FANOUT;
+        }
+        return bucketSize;
+    }
+
+    /**
+     * @return 第index个扇形的起始角度，index == size时为终止角度
+     */
+    float angleAt(int index) {
+        final double sum = prefix[size];
+        return sum <= 0 ? startAngle : (float) (startAngle + 360 * prefix[index] / sum);
+    }
+
+    double valueOf(int start, int end) {
+        return prefix[end] - prefix[start];
+    }
+
+    /**
+     * 二分查找角度所在的扇形，角度范围为[startAngle, startAngle + 360]
+     */
+    int indexAtAngle(float angle) {
+        if (size == 0) return -1;
+        final double sum = prefix[size];
+        final double target = sum * (angle - startAngle) / 360;
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (prefix[mid] <= target) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param count  可见的原始扇形数量
+     * @param budget 最多绘制的桶数
+     * @return 桶数不超过budget的最精细的一级
+     */
+    int chooseLevel(int count, int budget) {
+        int level = 0;
+        int buckets = count;
+        while (buckets > budget && level < dominants.length) {
+            buckets = (buckets + FANOUT - 1) / FANOUT;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return 第level级第bucket个桶中最大扇形的下标
+     */
+    int dominantOf(int level, int bucket) {
+        return level == 0 ? bucket : dominants[level - 1][bucket];
+    }
+}
@@ -0,0 +1,205 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import java.util.Arrays;
+
+/**
+ * <h3>CN:</h3>多选模型，用位图记录选中的扇形下标，全选、清空和区间选择都只需要按字（64位）操作。
+ * 每个扇形的浮起进度保存在float数组中，由同一个计时器统一推进，只遍历正在动画的扇形
+ * <p>
+ * <h3>EN:</h3>Multi-selection model.Selected slice indices are kept in a bitset so that select-all,
+ * clear and range selection work on 64-bit words.The float progress of each slice lives in a float array
+ * and is advanced by a single ticker which only walks the slices that are animating.
+ */
+final class PieSelection {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    private long[] selected = new long[0];
+    //浮起进度还没有到达目标值的扇形
+    private long[] animating = new long[0];
+    //线性进度，0为未浮起，1为完全浮起
+    private float[] progress = new float[0];
+    private int size;
+    //每次位图变化都会递增，用于判断合批是否需要重新计算
+    private int version;
+
+    void reset(int size) {
+        this.size = size;
+        final int wordCount = wordCount(size);
+        if (selected.length < wordCount) {
+            selected = new long[wordCount];
+            animating = new long[wordCount];
+        } else {
+            Arrays.fill(selected, 0);
+            Arrays.fill(animating, 0);
+        }
+        if (progress.length < size) {
+            progress = new float[size];
+        } else {
+            Arrays.fill(progress, 0);
+        }
+        version++;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    boolean isSelected(int index) {
+        return index >= 0 && index < size && (selected[index >> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return 是否选中或者还没有完全落下
+     */
+    boolean isFloating(int index) {
+        final int word = index >> ADDRESS_BITS_PER_WORD;
+        return ((selected[word] | animating[word]) & (1L << index)) != 0;
+    }
+
+    boolean hasSelection() {
+        for (int i = 0, wordCount = wordCount(size); i < wordCount; i++) {
+            if (selected[i] != 0) return true;
+        }
+        return false;
+    }
+
+    int getSelectedCount() {
+        int count = 0;
+        for (int i = 0, wordCount = wordCount(size); i < wordCount; i++) {
+            count += Long.bitCount(selected[i]);
+        }
+        return count;
+    }
+
+    void setSelected(int index, boolean select) {
+        if (index < 0 || index >= size) return;
+        setRange(index, index + 1, select);
+    }
+
+    /**
+     * @return 切换后是否选中
+     */
+    boolean toggle(int index) {
+        final boolean select = !isSelected(index);
+        setSelected(index, select);
+        return select;
+    }
+
+    void selectAll() {
+        setRange(0, size, true);
+    }
+
+    void clear() {
+        setRange(0, size, false);
+    }
+
+    /**
+     * 选中或者取消选中[from, to)
+     */
+    void setRange(int from, int to, boolean select) {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        if (from >= to) return;
+        final int startWord = from >> ADDRESS_BITS_PER_WORD;
+        final int endWord = (to - 1) >> ADDRESS_BITS_PER_WORD;
+        final long firstWordMask = -1L << from;
+        final long lastWordMask = -1L >>> -to;
+        for (int i = startWord; i <= endWord; i++) {
+            long mask = -1L;
+            if (i == startWord) mask &= firstWordMask;
+            if (i == endWord) mask &= lastWordMask;
+            final long old = selected[i];
+            selected[i] = select ? old | mask : old & ~mask;
+            //状态变化的扇形开始动画
+            animating[i] |= old ^ selected[i];
+        }
+        version++;
+    }
+
+    /**
+     * @return 下一个选中或者还没有完全落下的扇形，没有则返回-1
+     */
+    int nextFloating(int from) {
+        if (from < 0 || from >= size) return -1;
+        int word = from >> ADDRESS_BITS_PER_WORD;
+        final int wordCount = wordCount(size);
+        long bits = (selected[word] | animating[word]) & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                final int index = (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits);
+                return index < size ? index : -1;
+            }
+            if (++word >= wordCount) return -1;
+            bits = selected[word] | animating[word];
+        }
+    }
+
+    boolean isAnimating() {
+        for (int i = 0, wordCount = wordCount(size); i < wordCount; i++) {
+            if (animating[i] != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 推进所有正在动画的扇形
+     *
+     * @param upDelta   本帧浮起的进度增量
+     * @param downDelta 本帧落下的进度增量
+     * @return 是否还有扇形在动画
+     */
+    boolean step(float upDelta, float downDelta) {
+        boolean running = false;
+        for (int word = 0, wordCount = wordCount(size); word < wordCount; word++) {
+            long bits = animating[word];
+            while (bits != 0) {
+                final long lowest = bits & -bits;
+                bits ^= lowest;
+                final int index = (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(lowest);
+                float value;
+                boolean done;
+                if ((selected[word] & lowest) != 0) {
+                    value = Math.min(1, progress[index] + upDelta);
+                    done = value >= 1;
+                } else {
+                    value = Math.max(0, progress[index] - downDelta);
+                    done = value <= 0;
+                }
+                progress[index] = value;
+                if (done) {
+                    animating[word] &= ~lowest;
+                    version++;
+                }
+            }
+            running |= animating[word] != 0;
+        }
+        return running;
+    }
+
+    /**
+     * 所有动画直接到达终点
+     */
+    void finish() {
+        step(1, 1);
+    }
+
+    /**
+     * @return 减速插值后的浮起进度
+     */
+    float getFloatTime(int index) {
+        final float value = progress[index];
+        if (isSelected(index)) {
+            return 1 - (1 - value) * (1 - value);
+        }
+        return value * value;
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) >> ADDRESS_BITS_PER_WORD;
+    }
+}
@@ -0,0 +1,130 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+/**
+ * <h3>CN:</h3>画质调节器，统计动画期间最近几帧的间隔，超出帧预算时逐级关闭抗锯齿、阴影、指示线和文字，
+ * 帧率恢复后逐级恢复。静止帧始终使用最高画质，每次动画都从最高画质开始
+ * <p>
+ * <h3>EN:</h3>Quality governor.It tracks the interval of recent frames while animating, steps down anti-aliasing,
+ * shadows, guide lines and labels when frames are over budget, and steps back up when they recover.
+ * Static frames are always drawn at full quality and every animation starts at full quality.
+ */
+final class QualityGovernor {
+
+    static final int LEVEL_FULL = 0;
+    //关闭抗锯齿和抖动
+    static final int LEVEL_NO_ANTI_ALIAS = 1;
+    //不绘制浮起阴影
+    static final int LEVEL_NO_SHADOW = 2;
+    //不绘制指示点和指示线
+    static final int LEVEL_NO_GUIDE_LINE = 3;
+    //不绘制文字
+    static final int LEVEL_NO_LABEL = 4;
+
+    private static final int FRAME_WINDOW = 8;
+    private static final long FRAME_BUDGET_NANOS = 16666667L;
+    //超过预算的20%才降级，避免来回抖动
+    private static final long DOWNGRADE_THRESHOLD_NANOS = FRAME_BUDGET_NANOS * 6 / 5;
+    //统计的是跟随vsync的帧间隔，不会低于帧预算，回到预算以内（允许5%的vsync抖动）即升级
+    private static final long UPGRADE_THRESHOLD_NANOS = FRAME_BUDGET_NANOS * 21 / 20;
+    //间隔过长说明中途停止过绘制，不计入统计
+    private static final long MAX_FRAME_NANOS = FRAME_BUDGET_NANOS * 8;
+
+    private final long[] frameNanos = new long[FRAME_WINDOW];
+    private int frameCount;
+    private int cursor;
+    private long lastFrameTime;
+
+    private boolean enabled;
+    private int level = LEVEL_FULL;
+    //省电模式下只关闭阴影。等级是累加的，不能通过提高最低等级实现，否则会连带关闭抗锯齿
+    private boolean powerSave;
+
+    void reset(Context context, boolean enabled) {
+        this.enabled = enabled;
+        powerSave = enabled && isPowerSaveMode(context);
+        level = LEVEL_FULL;
+        clearWindow();
+    }
+
+    /**
+     * @return 该等级下是否绘制浮起阴影
+     */
+    boolean isShadowEnabled(int level) {
+        return level < LEVEL_NO_SHADOW && !powerSave;
+    }
+
+    /**
+     * 每一帧开始时调用
+     *
+     * @param animating 当前是否处于动画中
+     * @return 本帧使用的画质等级
+     */
+    int onFrame(boolean animating) {
+        if (!enabled) return LEVEL_FULL;
+        if (!animating) {
+            //动画结束，降级不带到下一次动画
+            level = LEVEL_FULL;
+            clearWindow();
+            return LEVEL_FULL;
+        }
+        final long now = System.nanoTime();
+        final long interval = lastFrameTime == 0 ? 0 : now - lastFrameTime;
+        lastFrameTime = now;
+        if (interval <= 0 || interval > MAX_FRAME_NANOS) return level;
+
+        frameNanos[cursor] = interval;
+        cursor = (cursor + 1) % FRAME_WINDOW;
+        if (++frameCount < FRAME_WINDOW) return level;
+
+        long total = 0;
+        for (long frame : frameNanos) {
+            total += frame;
+        }
+        final long average = total / FRAME_WINDOW;
+        if (average > DOWNGRADE_THRESHOLD_NANOS && level < LEVEL_NO_LABEL) {
+            level++;
+            resetWindow();
+            PLog.i("quality level down to " + level + " , average frame = " + average / 1000 + "us");
+        } else if (average <= UPGRADE_THRESHOLD_NANOS && level > LEVEL_FULL) {
+            level--;
+            resetWindow();
+            PLog.i("quality level up to " + level + " , average frame = " + average / 1000 + "us");
+        }
+        return level;
+    }
+
+    private void clearWindow() {
+        lastFrameTime = 0;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        frameCount = 0;
+        cursor = 0;
+    }
+
+    private static boolean isPowerSaveMode(Context context) {
+        if (context == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) return false;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    /**
+     * 系统开发者选项中的动画时长缩放，0代表关闭动画
+     */
+    static float getAnimatorDurationScale(Context context) {
+        if (context == null || context.getContentResolver() == null) return 1f;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(context.getContentResolver(), Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        //noinspection deprecation
+        return Settings.System.getFloat(context.getContentResolver(), Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+    }
+}
@@ -0,0 +1,178 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Pair;
+import android.view.View;
+
+import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
+import com.razerdp.widget.animatedpieview.IPieView;
+import com.razerdp.widget.animatedpieview.callback.OnPieSelectBatchListener;
+import com.razerdp.widget.animatedpieview.callback.OnPieSelectListener;
+import com.razerdp.widget.animatedpieview.data.IPieInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <h3>CN:</h3>选中事件的分发管线。事件先按扇形合并（只保留最后一次的状态），再按照config指定的方式
+ * （同步、下一帧或者线程池）和节流间隔批量分发，避免耗时的监听阻塞点击动画
+ * <p>
+ * <h3>EN:</h3>Dispatch pipeline of select events.Events are coalesced per slice(latest wins), then delivered in batches
+ * synchronously, on the next frame or on an executor, throttled as configured,
+ * so that slow listeners never block the touch animation.
+ */
+final class SelectEventDispatcher {
+
+    private static volatile ExecutorService sDefaultExecutor;
+
+    private final IPieView mIPieView;
+    private final Handler mMainHandler;
+    private final Object mLock = new Object();
+    //等待分发的事件，同一个扇形只保留最后的状态
+    private final LinkedHashMap<IPieInfo, Boolean> mPending = new LinkedHashMap<>();
+    private boolean mScheduled;
+    private long mLastDispatchTime;
+    private volatile AnimatedPieViewConfig mConfig;
+
+    private final Runnable mFlushAction = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mDeliverAction = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    SelectEventDispatcher(IPieView iPieView) {
+        mIPieView = iPieView;
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    void dispatch(AnimatedPieViewConfig config, IPieInfo info, boolean isFloatUp) {
+        if (config == null || info == null) return;
+        if (config.getSelectListener() == null && config.getSelectBatchListener() == null) return;
+        mConfig = config;
+        if (config.getSelectDispatchMode() == AnimatedPieViewConfig.DISPATCH_SYNC && config.getSelectThrottle() <= 0) {
+            //与之前的行为一致，直接回调
+            notifyListeners(config, Collections.singletonList(Pair.create(info, isFloatUp)));
+            return;
+        }
+        final long delay;
+        synchronized (mLock) {
+            //已经存在的扇形保留首次变化的位置，只更新状态
+            mPending.put(info, isFloatUp);
+            if (mScheduled) return;
+            mScheduled = true;
+            delay = Math.max(0, mLastDispatchTime + config.getSelectThrottle() - SystemClock.uptimeMillis());
+        }
+        if (delay > 0) {
+            //节流：本次窗口结束后再分发
+            mMainHandler.postDelayed(mDeliverAction, delay);
+        } else {
+            deliver();
+        }
+    }
+
+    /**
+     * 丢弃还没有分发的事件
+     */
+    void cancel() {
+        mMainHandler.removeCallbacks(mDeliverAction);
+        View view = mIPieView.getPieView();
+        if (view != null) view.removeCallbacks(mFlushAction);
+        mMainHandler.removeCallbacks(mFlushAction);
+        synchronized (mLock) {
+            mPending.clear();
+            mScheduled = false;
+        }
+    }
+
+    private void deliver() {
+        final AnimatedPieViewConfig config = mConfig;
+        if (config == null) return;
+        switch (config.getSelectDispatchMode()) {
+            case AnimatedPieViewConfig.DISPATCH_NEXT_FRAME:
+                View view = mIPieView.getPieView();
+                if (view != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                    view.postOnAnimation(mFlushAction);
+                } else {
+                    mMainHandler.post(mFlushAction);
+                }
+                break;
+            case AnimatedPieViewConfig.DISPATCH_EXECUTOR:
+                Executor executor = config.getSelectDispatchExecutor();
+                (executor == null ? getDefaultExecutor() : executor).execute(mFlushAction);
+                break;
+            case AnimatedPieViewConfig.DISPATCH_SYNC:
+            default:
+                flush();
+                break;
+        }
+    }
+
+    private void flush() {
+        final AnimatedPieViewConfig config = mConfig;
+        List<Pair<IPieInfo, Boolean>> changes;
+        synchronized (mLock) {
+            mScheduled = false;
+            mLastDispatchTime = SystemClock.uptimeMillis();
+            if (mPending.isEmpty()) return;
+            changes = new ArrayList<>(mPending.size());
+            for (Map.Entry<IPieInfo, Boolean> entry : mPending.entrySet()) {
+                changes.add(Pair.create(entry.getKey(), entry.getValue()));
+            }
+            mPending.clear();
+        }
+        if (config != null) {
+            notifyListeners(config, changes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void notifyListeners(AnimatedPieViewConfig config, List<Pair<IPieInfo, Boolean>> changes) {
+        OnPieSelectBatchListener batchListener = config.getSelectBatchListener();
+        if (batchListener != null) {
+            batchListener.onSelectPies(changes);
+        }
+        OnPieSelectListener listener = config.getSelectListener();
+        if (listener != null) {
+            for (Pair<IPieInfo, Boolean> change : changes) {
+                listener.onSelectPie(change.first, change.second);
+            }
+        }
+    }
+
+    private static Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            synchronized (SelectEventDispatcher.class) {
+                if (sDefaultExecutor == null) {
+                    //单线程保证回调顺序
+                    sDefaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "AnimatedPieView-select");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return sDefaultExecutor;
+    }
+}
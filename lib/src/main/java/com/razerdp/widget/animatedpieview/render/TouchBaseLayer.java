@@ -0,0 +1,164 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.razerdp.widget.animatedpieview.utils.PLog;
+
+/**
+ * <h3>CN:</h3>点击模式的底层缓存。点击开始时把不受影响的扇形（以及它们的文字）绘制到一张位图上，
+ * 浮起/落下动画期间只需要贴图，再绘制浮起和落下的两个扇形。未选中扇形的透明度是统一的，贴图时整体应用。
+ * 文字不跟随透明度变化时（{@link com.razerdp.widget.animatedpieview.AnimatedPieViewConfig#FOCUS_WITH_ALPHA_REV}），
+ * 文字缓存在另一张不透明的位图上，在扇形之后贴图
+ * <p>
+ * <h3>EN:</h3>Base layer cache of touch mode.When a touch starts, slices which are not affected(and their labels) are drawn into a bitmap once,
+ * so float animations only blit it and draw the floating and the previously floating slices on top.
+ * Unselected slices share the same alpha, which is applied to the whole layer when blitting.
+ * If labels do not follow that alpha({@link com.razerdp.widget.animatedpieview.AnimatedPieViewConfig#FOCUS_WITH_ALPHA_REV}),
+ * they are cached in a separate opaque bitmap which is blitted after the slices.
+ */
+final class TouchBaseLayer {
+
+    private Bitmap mBitmap;
+    //文字层，只在文字与扇形透明度不同时使用
+    private Bitmap mLabelBitmap;
+    private boolean mHasLabels;
+    private final Canvas mCanvas;
+    private final Paint mPaint;
+
+    //缓存的条件
+    private PieInfoWrapper mFloatingWrapper;
+    private PieInfoWrapper mLastFloatWrapper;
+    private float mRotation;
+    private float mRadius;
+    private int mQualityLevel;
+    private boolean mValid;
+
+    TouchBaseLayer() {
+        mCanvas = new Canvas();
+        mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    }
+
+    boolean isValid(PieInfoWrapper floatingWrapper, PieInfoWrapper lastFloatWrapper, float rotation, float radius, int qualityLevel) {
+        return mValid
+                && mBitmap != null
+                && mFloatingWrapper == floatingWrapper
+                && mLastFloatWrapper == lastFloatWrapper
+                && mRotation == rotation
+                && mRadius == radius
+                && mQualityLevel == qualityLevel;
+    }
+
+    /**
+     * 开始重新绘制底层，原点已经移动到中心
+     *
+     * @return 内存不足时返回null
+     */
+    Canvas begin(int width, int height, PieInfoWrapper floatingWrapper, PieInfoWrapper lastFloatWrapper, float rotation, float radius, int qualityLevel) {
+        if (width <= 0 || height <= 0) return null;
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            release();
+            try {
+                mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError e) {
+                PLog.e("create touch base layer failed : " + e.getMessage());
+                return null;
+            }
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        mFloatingWrapper = floatingWrapper;
+        mLastFloatWrapper = lastFloatWrapper;
+        mRotation = rotation;
+        mRadius = radius;
+        mQualityLevel = qualityLevel;
+        mValid = true;
+        mHasLabels = false;
+        mCanvas.setBitmap(mBitmap);
+        mCanvas.save();
+        mCanvas.translate(width / 2f, height / 2f);
+        return mCanvas;
+    }
+
+    void end() {
+        mCanvas.restore();
+        mCanvas.setBitmap(null);
+    }
+
+    /**
+     * 在{@link #begin(int, int, PieInfoWrapper, PieInfoWrapper, float, float, int)}和{@link #end()}之后开始绘制文字层，原点已经移动到中心
+     *
+     * @return 内存不足时返回null
+     */
+    Canvas beginLabels() {
+        if (mBitmap == null) return null;
+        final int width = mBitmap.getWidth();
+        final int height = mBitmap.getHeight();
+        if (mLabelBitmap == null || mLabelBitmap.getWidth() != width || mLabelBitmap.getHeight() != height) {
+            releaseLabels();
+            try {
+                mLabelBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError e) {
+                PLog.e("create touch label layer failed : " + e.getMessage());
+                return null;
+            }
+        } else {
+            mLabelBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        mHasLabels = true;
+        mCanvas.setBitmap(mLabelBitmap);
+        mCanvas.save();
+        mCanvas.translate(width / 2f, height / 2f);
+        return mCanvas;
+    }
+
+    void endLabels() {
+        end();
+    }
+
+    /**
+     * 以中心为原点贴图
+     */
+    void draw(Canvas canvas, int alpha) {
+        if (mBitmap == null) return;
+        mPaint.setAlpha(alpha);
+        canvas.drawBitmap(mBitmap, -mBitmap.getWidth() / 2f, -mBitmap.getHeight() / 2f, mPaint);
+    }
+
+    /**
+     * 以中心为原点不透明地贴上文字层，本次缓存没有文字层时不绘制
+     */
+    void drawLabels(Canvas canvas) {
+        if (!mHasLabels || mLabelBitmap == null) return;
+        mPaint.setAlpha(255);
+        canvas.drawBitmap(mLabelBitmap, -mLabelBitmap.getWidth() / 2f, -mLabelBitmap.getHeight() / 2f, mPaint);
+    }
+
+    /**
+     * 画笔、文字等变化后使缓存失效，保留位图以便复用
+     */
+    void invalidate() {
+        mValid = false;
+        mFloatingWrapper = null;
+        mLastFloatWrapper = null;
+    }
+
+    void release() {
+        invalidate();
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        releaseLabels();
+    }
+
+    private void releaseLabels() {
+        mHasLabels = false;
+        if (mLabelBitmap != null) {
+            mLabelBitmap.recycle();
+            mLabelBitmap = null;
+        }
+    }
+}
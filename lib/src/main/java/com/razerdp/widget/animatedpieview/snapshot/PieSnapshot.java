@@ -0,0 +1,185 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * <h3>CN:</h3>只读的布局快照，所有字段都直接从（内存映射的）缓冲区按偏移读取，加载时只校验描述文字的范围，不会逐条解析扇形
+ * <p>
+ * <h3>EN:</h3>Read-only layout snapshot.Every field is read at its offset straight from the (memory-mapped) buffer,
+ * only the description ranges are validated on load and slices are never parsed up front.
+ *
+ * @see PieSnapshotWriter
+ */
+public class PieSnapshot {
+
+    private final ByteBuffer buffer;
+    private final int recordSize;
+    private final int sliceCount;
+    private final int stringTableOffset;
+
+    private PieSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (this.buffer.capacity() < PieSnapshotFormat.HEADER_SIZE
+                || this.buffer.getInt(0) != PieSnapshotFormat.MAGIC) {
+            throw new IOException("not a pie snapshot");
+        }
+        final short version = this.buffer.getShort(PieSnapshotFormat.OFFSET_VERSION);
+        if (version < 1 || version > PieSnapshotFormat.VERSION) {
+            throw new IOException("unsupported pie snapshot version : " + version);
+        }
+        //新版本只会在记录末尾追加字段，按header中的记录长度跳跃即可兼容
+        recordSize = this.buffer.getShort(PieSnapshotFormat.OFFSET_RECORD_SIZE) & 0xFFFF;
+        sliceCount = this.buffer.getInt(PieSnapshotFormat.OFFSET_SLICE_COUNT);
+        if (recordSize < PieSnapshotFormat.RECORD_SIZE || sliceCount < 0) {
+            throw new IOException("corrupted pie snapshot");
+        }
+        //按long计算，避免损坏的header使乘积溢出
+        final long recordsEnd = PieSnapshotFormat.HEADER_SIZE + (long) sliceCount * recordSize;
+        if (recordsEnd > this.buffer.capacity()) {
+            throw new IOException("truncated pie snapshot");
+        }
+        stringTableOffset = (int) recordsEnd;
+        //描述文字的范围来自文件，提前校验，损坏的快照在加载时就被拒绝而不是读取时越界
+        for (int i = 0; i < sliceCount; i++) {
+            final int offset = PieSnapshotFormat.HEADER_SIZE + i * recordSize;
+            final int descOffset = this.buffer.getInt(offset + PieSnapshotFormat.RECORD_DESC_OFFSET);
+            final int descLength = this.buffer.getInt(offset + PieSnapshotFormat.RECORD_DESC_LENGTH);
+            if (descLength <= 0) continue;
+            if (descOffset < 0 || (long) stringTableOffset + descOffset + descLength > this.buffer.capacity()) {
+                throw new IOException("corrupted pie snapshot , desc of slice " + i + " is out of range");
+            }
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>以只读方式映射快照文件
+     * <p>
+     * <h3>EN:</h3>Map the snapshot file read-only.
+     */
+    public static PieSnapshot map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            //映射在文件关闭后依然有效
+            return new PieSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public static PieSnapshot wrap(ByteBuffer buffer) throws IOException {
+        return new PieSnapshot(buffer);
+    }
+
+    /**
+     * @return 快照占用的字节数
+     */
+    public int getByteSize() {
+        return buffer.capacity();
+    }
+
+    public int getVersion() {
+        return buffer.getShort(PieSnapshotFormat.OFFSET_VERSION);
+    }
+
+    public int getWidth() {
+        return buffer.getInt(PieSnapshotFormat.OFFSET_WIDTH);
+    }
+
+    public int getHeight() {
+        return buffer.getInt(PieSnapshotFormat.OFFSET_HEIGHT);
+    }
+
+    public float getStartAngle() {
+        return buffer.getFloat(PieSnapshotFormat.OFFSET_START_ANGLE);
+    }
+
+    public float getPieRadius() {
+        return buffer.getFloat(PieSnapshotFormat.OFFSET_PIE_RADIUS);
+    }
+
+    public double getSum() {
+        return buffer.getDouble(PieSnapshotFormat.OFFSET_SUM);
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    public int getMaxDescTextLength() {
+        return buffer.getInt(PieSnapshotFormat.OFFSET_MAX_DESC_TEXT_LENGTH);
+    }
+
+    public long getConfigHash() {
+        return buffer.getLong(PieSnapshotFormat.OFFSET_CONFIG_HASH);
+    }
+
+    public double getValue(int index) {
+        return buffer.getDouble(recordOffset(index) + PieSnapshotFormat.RECORD_VALUE);
+    }
+
+    public float getFromAngle(int index) {
+        return buffer.getFloat(recordOffset(index) + PieSnapshotFormat.RECORD_FROM_ANGLE);
+    }
+
+    public float getSweepAngle(int index) {
+        return buffer.getFloat(recordOffset(index) + PieSnapshotFormat.RECORD_SWEEP_ANGLE);
+    }
+
+    public int getColor(int index) {
+        return buffer.getInt(recordOffset(index) + PieSnapshotFormat.RECORD_COLOR);
+    }
+
+    public String getDesc(int index) {
+        final int offset = recordOffset(index);
+        final int length = buffer.getInt(offset + PieSnapshotFormat.RECORD_DESC_LENGTH);
+        if (length <= 0) return null;
+        final int start = stringTableOffset + buffer.getInt(offset + PieSnapshotFormat.RECORD_DESC_OFFSET);
+        byte[] bytes = new byte[length];
+        ByteBuffer strings = buffer.duplicate();
+        strings.position(start);
+        strings.get(bytes);
+        return new String(bytes, PieSnapshotWriter.UTF_8);
+    }
+
+    public int getTextWidth(int index) {
+        return buffer.getInt(recordOffset(index) + PieSnapshotFormat.RECORD_TEXT_WIDTH);
+    }
+
+    public int getTextHeight(int index) {
+        return buffer.getInt(recordOffset(index) + PieSnapshotFormat.RECORD_TEXT_HEIGHT);
+    }
+
+    public boolean hasLabel(int index) {
+        return (buffer.getInt(recordOffset(index) + PieSnapshotFormat.RECORD_FLAGS) & PieSnapshotFormat.FLAG_LABEL) != 0;
+    }
+
+    /**
+     * <h3>CN:</h3>读取指示点、指示线和文字的位置（pointX, pointY, lineX1, lineY1, lineX2, lineY2, textX, textY）
+     * <p>
+     * <h3>EN:</h3>Read the guide point, guide line and text positions(pointX, pointY, lineX1, lineY1, lineX2, lineY2, textX, textY).
+     *
+     * @param out 至少8个元素
+     * @return 是否记录了位置
+     */
+    public boolean getLabel(int index, float[] out) {
+        if (!hasLabel(index)) return false;
+        final int offset = recordOffset(index) + PieSnapshotFormat.RECORD_LABEL;
+        for (int i = 0; i < PieSnapshotFormat.LABEL_FLOAT_COUNT; i++) {
+            out[i] = buffer.getFloat(offset + i * 4);
+        }
+        return true;
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= sliceCount) {
+            throw new IndexOutOfBoundsException("index = " + index + " , size = " + sliceCount);
+        }
+        return PieSnapshotFormat.HEADER_SIZE + index * recordSize;
+    }
+}
@@ -0,0 +1,64 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+/**
+ * <h3>CN:</h3>甜甜圈布局快照的二进制格式（大端序）
+ * <pre>
+ * header（48字节）：
+ *   int    magic             "APVS"
+ *   short  version
+ *   short  recordSize        每条扇形记录的字节数，新版本只会在记录末尾追加字段
+ *   int    width, height     布局时的绘制区域
+ *   float  startAngle
+ *   float  pieRadius         0代表未记录
+ *   double sum               数值（绝对值）之和
+ *   int    sliceCount
+ *   int    maxDescTextLength
+ *   long   configHash        0代表不校验
+ * record（recordSize字节） * sliceCount：
+ *   double value
+ *   float  fromAngle, sweepAngle
+ *   int    color
+ *   int    flags             {@link #FLAG_LABEL}
+ *   int    descOffset, descLength   UTF-8字节在字符串表中的位置
+ *   int    textWidth, textHeight
+ *   float  pointX, pointY, lineX1, lineY1, lineX2, lineY2, textX, textY   以圆心为原点
+ * 字符串表：所有描述文字的UTF-8字节
+ * </pre>
+ * <h3>EN:</h3>Binary format(big-endian) of a prepared pie layout snapshot, see above.
+ */
+final class PieSnapshotFormat {
+    static final int MAGIC = 0x41505653;
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 48;
+    static final int RECORD_SIZE = 72;
+
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_RECORD_SIZE = 6;
+    static final int OFFSET_WIDTH = 8;
+    static final int OFFSET_HEIGHT = 12;
+    static final int OFFSET_START_ANGLE = 16;
+    static final int OFFSET_PIE_RADIUS = 20;
+    static final int OFFSET_SUM = 24;
+    static final int OFFSET_SLICE_COUNT = 32;
+    static final int OFFSET_MAX_DESC_TEXT_LENGTH = 36;
+    static final int OFFSET_CONFIG_HASH = 40;
+
+    static final int RECORD_VALUE = 0;
+    static final int RECORD_FROM_ANGLE = 8;
+    static final int RECORD_SWEEP_ANGLE = 12;
+    static final int RECORD_COLOR = 16;
+    static final int RECORD_FLAGS = 20;
+    static final int RECORD_DESC_OFFSET = 24;
+    static final int RECORD_DESC_LENGTH = 28;
+    static final int RECORD_TEXT_WIDTH = 32;
+    static final int RECORD_TEXT_HEIGHT = 36;
+    static final int RECORD_LABEL = 40;
+    static final int LABEL_FLOAT_COUNT = 8;
+
+    //记录中包含指示线和文字位置
+    static final int FLAG_LABEL = 1;
+
+    private PieSnapshotFormat() {
+    }
+}
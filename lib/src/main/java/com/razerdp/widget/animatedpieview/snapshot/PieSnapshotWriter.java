@@ -0,0 +1,211 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <h3>CN:</h3>布局快照的写入器，只依赖JDK，可以在服务端或者构建期预先计算好数据和角度，客户端通过{@link PieSnapshot#map(java.io.File)}直接加载，
+ * 跳过数据遍历和角度计算。没有通过{@link #angles(int, float, float)}指定角度的扇形会按照与控件相同的规则计算
+ * <p>
+ * <h3>EN:</h3>Writer of layout snapshots.It only depends on the JDK, so data and angles can be precomputed on a server or at build time
+ * and loaded on the device with {@link PieSnapshot#map(java.io.File)} without walking the data again.
+ * Slices without {@link #angles(int, float, float)} are laid out with the same rule as the view.
+ */
+public class PieSnapshotWriter {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int width;
+    private final int height;
+    private final float startAngle;
+    private float pieRadius;
+    private int maxDescTextLength;
+    private long configHash;
+
+    private int size;
+    private double[] values = new double[16];
+    private int[] colors = new int[16];
+    private String[] descs = new String[16];
+    private float[] angles = new float[32];
+    private boolean[] hasAngles = new boolean[16];
+    private int[] textBounds = new int[32];
+    private float[] labels = new float[16 * PieSnapshotFormat.LABEL_FLOAT_COUNT];
+    private boolean[] hasLabels = new boolean[16];
+
+    /**
+     * @param width      布局时的绘制宽度
+     * @param height     布局时的绘制高度
+     * @param startAngle 起始角度
+     */
+    public PieSnapshotWriter(int width, int height, float startAngle) {
+        this.width = width;
+        this.height = height;
+        this.startAngle = startAngle;
+    }
+
+    /**
+     * <h3>CN:</h3>布局时的半径，与加载时的绘制区域一致才会使用
+     * <p>
+     * <h3>EN:</h3>Radius used for the layout, only applied when the drawing size matches on load.
+     */
+    public PieSnapshotWriter pieRadius(float pieRadius) {
+        this.pieRadius = pieRadius;
+        return this;
+    }
+
+    public PieSnapshotWriter maxDescTextLength(int maxDescTextLength) {
+        this.maxDescTextLength = maxDescTextLength;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>生成快照时的config指纹，加载时不一致会放弃快照，0代表不校验
+     * <p>
+     * <h3>EN:</h3>Fingerprint of the config the snapshot was laid out with, a mismatch on load discards the snapshot.0 means unchecked.
+     */
+    public PieSnapshotWriter configHash(long configHash) {
+        this.configHash = configHash;
+        return this;
+    }
+
+    /**
+     * @return 扇形的下标
+     */
+    public int addSlice(double value, int color, String desc) {
+        ensureCapacity(size + 1);
+        values[size] = value;
+        colors[size] = color;
+        descs[size] = desc;
+        return size++;
+    }
+
+    public int getSliceCount() {
+        return size;
+    }
+
+    public PieSnapshotWriter angles(int index, float fromAngle, float sweepAngle) {
+        checkIndex(index);
+        angles[index * 2] = fromAngle;
+        angles[index * 2 + 1] = sweepAngle;
+        hasAngles[index] = true;
+        return this;
+    }
+
+    public PieSnapshotWriter textBounds(int index, int textWidth, int textHeight) {
+        checkIndex(index);
+        textBounds[index * 2] = textWidth;
+        textBounds[index * 2 + 1] = textHeight;
+        return this;
+    }
+
+    /**
+     * <h3>CN:</h3>指示点、指示线和文字的位置，以圆心为原点
+     * <p>
+     * <h3>EN:</h3>Positions of the guide point, guide line and text, relative to the pie center.
+     */
+    public PieSnapshotWriter label(int index,
+                                  float pointX, float pointY,
+                                  float lineX1, float lineY1,
+                                  float lineX2, float lineY2,
+                                  float textX, float textY) {
+        checkIndex(index);
+        final int offset = index * PieSnapshotFormat.LABEL_FLOAT_COUNT;
+        labels[offset] = pointX;
+        labels[offset + 1] = pointY;
+        labels[offset + 2] = lineX1;
+        labels[offset + 3] = lineY1;
+        labels[offset + 4] = lineX2;
+        labels[offset + 5] = lineY2;
+        labels[offset + 6] = textX;
+        labels[offset + 7] = textY;
+        hasLabels[index] = true;
+        return this;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += Math.abs(values[i]);
+        }
+
+        //字符串表
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        final int[] descOffsets = new int[size];
+        final int[] descLengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (descs[i] == null) continue;
+            byte[] bytes = descs[i].getBytes(UTF_8);
+            descOffsets[i] = strings.size();
+            descLengths[i] = bytes.length;
+            strings.write(bytes);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(PieSnapshotFormat.MAGIC);
+        out.writeShort(PieSnapshotFormat.VERSION);
+        out.writeShort(PieSnapshotFormat.RECORD_SIZE);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeFloat(startAngle);
+        out.writeFloat(pieRadius);
+        out.writeDouble(sum);
+        out.writeInt(size);
+        out.writeInt(maxDescTextLength);
+        out.writeLong(configHash);
+
+        //与PieInfoWrapper.calculateDegree一致
+        float lastAngle = startAngle;
+        for (int i = 0; i < size; i++) {
+            float fromAngle;
+            float sweepAngle;
+            if (hasAngles[i]) {
+                fromAngle = angles[i * 2];
+                sweepAngle = angles[i * 2 + 1];
+            } else {
+                fromAngle = lastAngle;
+                sweepAngle = sum <= 0 ? 0 : (float) (360f * (Math.abs(values[i]) / sum));
+            }
+            lastAngle = fromAngle + sweepAngle;
+
+            out.writeDouble(values[i]);
+            out.writeFloat(fromAngle);
+            out.writeFloat(sweepAngle);
+            out.writeInt(colors[i]);
+            out.writeInt(hasLabels[i] ? PieSnapshotFormat.FLAG_LABEL : 0);
+            out.writeInt(descOffsets[i]);
+            out.writeInt(descLengths[i]);
+            out.writeInt(textBounds[i * 2]);
+            out.writeInt(textBounds[i * 2 + 1]);
+            final int offset = i * PieSnapshotFormat.LABEL_FLOAT_COUNT;
+            for (int j = 0; j < PieSnapshotFormat.LABEL_FLOAT_COUNT; j++) {
+                out.writeFloat(labels[offset + j]);
+            }
+        }
+        strings.writeTo(out);
+        out.flush();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + " , size = " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (values.length >= capacity) return;
+        final int newCapacity = Math.max(capacity, values.length * 2);
+        values = Arrays.copyOf(values, newCapacity);
+        colors = Arrays.copyOf(colors, newCapacity);
+        descs = Arrays.copyOf(descs, newCapacity);
+        angles = Arrays.copyOf(angles, newCapacity * 2);
+        hasAngles = Arrays.copyOf(hasAngles, newCapacity);
+        textBounds = Arrays.copyOf(textBounds, newCapacity * 2);
+        labels = Arrays.copyOf(labels, newCapacity * PieSnapshotFormat.LABEL_FLOAT_COUNT);
+        hasLabels = Arrays.copyOf(hasLabels, newCapacity);
+    }
+}
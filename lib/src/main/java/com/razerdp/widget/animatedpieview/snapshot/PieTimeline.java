@@ -0,0 +1,259 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h3>CN:</h3>由一组快照组成的时间轴，每一步是同一批分类在某个时间点的数据（例如每个月的市场份额）。
+ * 构建时把每一步每个分类的数值和角度预先计算到基本类型数组中，播放和拖动时只做线性插值，内存与分类数 × 步数成正比
+ * <p>
+ * <h3>EN:</h3>Timeline made of a sequence of snapshots, each step holding the same categories at one point in time(e.g. monthly market share).
+ * Values and angles of every category at every step are precomputed into primitive arrays on build,
+ * so playing and scrubbing only interpolate linearly.Memory is proportional to categories × steps.
+ * <p>
+ * 分类可以按下标对应（每一步的扇形数量必须一致），也可以按key对应（某一步缺少的分类视为0）
+ *
+ * @see Builder
+ */
+public class PieTimeline {
+
+    private final int stepCount;
+    private final int categoryCount;
+    private final float startAngle;
+    //以下数组的下标均为 step * categoryCount + category
+    private final double[] values;
+    private final float[] fromAngles;
+    private final float[] sweepAngles;
+    //分类在该步快照中的下标，-1为缺少
+    private final int[] sliceIndices;
+    //每个分类的颜色，取第一次出现时的颜色
+    private final int[] colors;
+    private final Object[] keys;
+    private final PieSnapshot[] steps;
+
+    private PieTimeline(PieSnapshot[] steps, int categoryCount, Object[] keys) {
+        this.steps = steps;
+        this.stepCount = steps.length;
+        this.categoryCount = categoryCount;
+        this.keys = keys;
+        this.startAngle = steps[0].getStartAngle();
+        final int length = stepCount * categoryCount;
+        values = new double[length];
+        fromAngles = new float[length];
+        sweepAngles = new float[length];
+        sliceIndices = new int[length];
+        colors = new int[categoryCount];
+    }
+
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    public float getStartAngle() {
+        return startAngle;
+    }
+
+    public PieSnapshot getStep(int step) {
+        return steps[step];
+    }
+
+    /**
+     * @return 分类的key，按下标对应时返回null
+     */
+    public Object getKey(int category) {
+        return keys == null ? null : keys[category];
+    }
+
+    public int getColor(int category) {
+        return colors[category];
+    }
+
+    /**
+     * 将位置限制在[0, stepCount - 1]
+     */
+    public float clampPosition(float position) {
+        if (position != position || position < 0) return 0;
+        return Math.min(position, stepCount - 1);
+    }
+
+    /**
+     * @return 离位置最近的一步，用于切换描述文字
+     */
+    public int getNearestStep(float position) {
+        return Math.round(clampPosition(position));
+    }
+
+    public double getValue(int category, float position) {
+        final int offset = offsetOf(position) + category;
+        final float fraction = fractionOf(position);
+        if (fraction == 0) return values[offset];
+        return values[offset] + (values[offset + categoryCount] - values[offset]) * fraction;
+    }
+
+    public float getFromAngle(int category, float position) {
+        return interpolate(fromAngles, category, position);
+    }
+
+    public float getSweepAngle(int category, float position) {
+        return interpolate(sweepAngles, category, position);
+    }
+
+    /**
+     * @return 该分类在某一步的描述，缺少时返回null
+     */
+    public String getDesc(int category, int step) {
+        final int sliceIndex = sliceIndices[step * categoryCount + category];
+        return sliceIndex < 0 ? null : steps[step].getDesc(sliceIndex);
+    }
+
+    private float interpolate(float[] array, int category, float position) {
+        final int offset = offsetOf(position) + category;
+        final float fraction = fractionOf(position);
+        if (fraction == 0) return array[offset];
+        return array[offset] + (array[offset + categoryCount] - array[offset]) * fraction;
+    }
+
+    private int offsetOf(float position) {
+        return lowerStep(position) * categoryCount;
+    }
+
+    private float fractionOf(float position) {
+        position = clampPosition(position);
+        return position - lowerStep(position);
+    }
+
+    private int lowerStep(float position) {
+        //最后一步没有下一步，插值区间取[stepCount - 2, stepCount - 1]
+        return Math.max(0, Math.min((int) clampPosition(position), stepCount - 2));
+    }
+
+    private void fill(int step, PieSnapshot snapshot, int[] categoryOfSlice) {
+        final int offset = step * categoryCount;
+        for (int i = 0; i < categoryCount; i++) {
+            sliceIndices[offset + i] = -1;
+        }
+        for (int slice = 0, count = snapshot.getSliceCount(); slice < count; slice++) {
+            final int category = categoryOfSlice == null ? slice : categoryOfSlice[slice];
+            sliceIndices[offset + category] = slice;
+            values[offset + category] = snapshot.getValue(slice);
+            sweepAngles[offset + category] = snapshot.getSweepAngle(slice);
+        }
+        //按照分类的顺序重新排列角度，缺少的分类角度为0，停在前一个分类的末尾
+        float angle = startAngle;
+        for (int i = 0; i < categoryCount; i++) {
+            fromAngles[offset + i] = angle;
+            angle += sweepAngles[offset + i];
+        }
+    }
+
+    /**
+     * <h3>CN:</h3>时间轴构建器，所有步骤必须统一使用{@link #addStep(PieSnapshot)}或者{@link #addStep(PieSnapshot, Object[])}
+     * <p>
+     * <h3>EN:</h3>Timeline builder.All steps must be added either by {@link #addStep(PieSnapshot)} or by {@link #addStep(PieSnapshot, Object[])}.
+     */
+    public static class Builder {
+        private final List<PieSnapshot> snapshots = new ArrayList<>();
+        private final List<Object[]> stepKeys = new ArrayList<>();
+
+        /**
+         * 分类按下标对应，每一步的扇形数量必须一致
+         */
+        public Builder addStep(PieSnapshot snapshot) {
+            return addStepInternal(snapshot, null);
+        }
+
+        /**
+         * 分类按key对应，keys[i]为快照中第i个扇形的key
+         */
+        public Builder addStep(PieSnapshot snapshot, Object[] keys) {
+            if (keys == null) {
+                throw new NullPointerException("keys must not be null");
+            }
+            return addStepInternal(snapshot, keys);
+        }
+
+        private Builder addStepInternal(PieSnapshot snapshot, Object[] keys) {
+            if (snapshot == null) {
+                throw new NullPointerException("snapshot must not be null");
+            }
+            if (keys != null && keys.length != snapshot.getSliceCount()) {
+                throw new IllegalArgumentException("keys.length = " + keys.length + " , slice count = " + snapshot.getSliceCount());
+            }
+            if (!snapshots.isEmpty() && (keys == null) != (stepKeys.get(0) == null)) {
+                throw new IllegalStateException("can not mix keyed steps with positional steps");
+            }
+            snapshots.add(snapshot);
+            stepKeys.add(keys);
+            return this;
+        }
+
+        public PieTimeline build() {
+            if (snapshots.isEmpty()) {
+                throw new IllegalStateException("timeline needs at least one step");
+            }
+            final PieSnapshot[] steps = snapshots.toArray(new PieSnapshot[snapshots.size()]);
+            return stepKeys.get(0) == null ? buildPositional(steps) : buildKeyed(steps);
+        }
+
+        private PieTimeline buildPositional(PieSnapshot[] steps) {
+            final int categoryCount = steps[0].getSliceCount();
+            for (PieSnapshot step : steps) {
+                if (step.getSliceCount() != categoryCount) {
+                    throw new IllegalArgumentException("all steps must have " + categoryCount + " slices,use keyed steps instead");
+                }
+            }
+            PieTimeline timeline = new PieTimeline(steps, categoryCount, null);
+            for (int i = 0; i < steps.length; i++) {
+                timeline.fill(i, steps[i], null);
+            }
+            for (int category = 0; category < categoryCount; category++) {
+                timeline.colors[category] = steps[0].getColor(category);
+            }
+            return timeline;
+        }
+
+        private PieTimeline buildKeyed(PieSnapshot[] steps) {
+            //按第一次出现的顺序合并所有步骤的分类
+            final Map<Object, Integer> categories = new LinkedHashMap<>();
+            final List<int[]> categoryOfSlices = new ArrayList<>(steps.length);
+            final List<Integer> colorList = new ArrayList<>();
+            //分类最后一次出现的步骤，用于检查同一步中重复的key
+            int[] lastSeenSteps = new int[16];
+            for (int i = 0; i < steps.length; i++) {
+                final Object[] keys = stepKeys.get(i);
+                final int[] categoryOfSlice = new int[keys.length];
+                for (int slice = 0; slice < keys.length; slice++) {
+                    Integer category = categories.get(keys[slice]);
+                    if (category == null) {
+                        category = categories.size();
+                        categories.put(keys[slice], category);
+                        colorList.add(steps[i].getColor(slice));
+                        if (category >= lastSeenSteps.length) {
+                            lastSeenSteps = Arrays.copyOf(lastSeenSteps, lastSeenSteps.length << 1);
+                        }
+                    } else if (lastSeenSteps[category] == i + 1) {
+                        throw new IllegalArgumentException("duplicate key in step " + i + " : " + keys[slice]);
+                    }
+                    lastSeenSteps[category] = i + 1;
+                    categoryOfSlice[slice] = category;
+                }
+                categoryOfSlices.add(categoryOfSlice);
+            }
+            PieTimeline timeline = new PieTimeline(steps, categories.size(), categories.keySet().toArray());
+            for (int i = 0; i < steps.length; i++) {
+                timeline.fill(i, steps[i], categoryOfSlices.get(i));
+            }
+            for (int category = 0; category < colorList.size(); category++) {
+                timeline.colors[category] = colorList.get(category);
+            }
+            return timeline;
+        }
+    }
+}
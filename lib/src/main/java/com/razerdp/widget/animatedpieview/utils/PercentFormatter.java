@@ -0,0 +1,168 @@
+package com.razerdp.widget.animatedpieview.utils;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h3>CN:</h3>预编译的百分比描述格式化工具，用于代替String.format + DecimalFormat("0.##")。
+ * 格式只在编译时解析一次，数字直接写入线程独享的缓冲区，可以在多个线程中同时使用
+ * <p>
+ * <h3>EN:</h3>Precompiled formatter for percentage descriptions which replaces String.format + DecimalFormat("0.##").
+ * The pattern is parsed only once and digits are written into per-thread buffers, so it is safe to use from multiple threads.
+ * <p>
+ * 支持的占位符：%s、%1$s、%%、%n，其他格式会退回到String.format
+ * <p>
+ * 数字的输出与DecimalFormat("0.##")完全一致：按照double的精确值以HALF_EVEN舍入，负数（包括-0）保留负号
+ */
+public final class PercentFormatter {
+
+    private static final ThreadLocal<StringBuilder> sBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(32);
+        }
+    };
+
+    private static final ThreadLocal<char[]> sDigits = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[20];
+        }
+    };
+
+    //数字超过这个范围时退回到DecimalFormat
+    private static final double MAX_FAST_VALUE = 1e15;
+
+    private final String pattern;
+    //占位符之间的文字，长度 = 占位符数量 + 1
+    private final String[] literals;
+    private final boolean fallback;
+    private final char decimalSeparator;
+    private final char minusSign;
+
+    private PercentFormatter(String pattern, String[] literals, boolean fallback) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.fallback = fallback;
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.minusSign = symbols.getMinusSign();
+    }
+
+    public static PercentFormatter compile(String pattern) {
+        if (pattern == null) pattern = "";
+        List<String> literals = new ArrayList<>(2);
+        StringBuilder literal = new StringBuilder();
+        boolean fallback = false;
+        int sequentialCount = 0;
+        final int length = pattern.length();
+        for (int i = 0; i < length && !fallback; i++) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i + 1 >= length) {
+                fallback = true;
+                break;
+            }
+            char next = pattern.charAt(i + 1);
+            if (next == '%') {
+                literal.append('%');
+                i++;
+            } else if (next == 'n') {
+                literal.append(System.getProperty("line.separator", "\n"));
+                i++;
+            } else if (next == 's') {
+                //只有一个参数，第二个按顺序的%s交给String.format处理
+                if (++sequentialCount > 1) {
+                    fallback = true;
+                    break;
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                i++;
+            } else if (pattern.startsWith("1$s", i + 1)) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                i += 3;
+            } else {
+                fallback = true;
+            }
+        }
+        literals.add(literal.toString());
+        return new PercentFormatter(pattern, literals.toArray(new String[literals.size()]), fallback);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 格式化百分比，最多保留两位小数
+     */
+    public String format(double percent) {
+        StringBuilder builder = sBuilder.get();
+        builder.setLength(0);
+        return format(percent, builder).toString();
+    }
+
+    public StringBuilder format(double percent, StringBuilder out) {
+        if (fallback) {
+            out.append(String.format(pattern, formatSlow(percent)));
+            return out;
+        }
+        final int placeholderCount = literals.length - 1;
+        for (int i = 0; i < placeholderCount; i++) {
+            out.append(literals[i]);
+            appendNumber(percent, out);
+        }
+        out.append(literals[placeholderCount]);
+        return out;
+    }
+
+    private void appendNumber(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FAST_VALUE) {
+            out.append(formatSlow(value));
+            return;
+        }
+        final double scaledValue = Math.abs(value) * 100;
+        final double floor = Math.floor(scaledValue);
+        final double remainder = scaledValue - floor;
+        if (Math.abs(remainder - 0.5) <= Math.ulp(scaledValue)) {
+            //接近两位小数的中点时，乘法的误差可能改变舍入方向，交给DecimalFormat按照精确值HALF_EVEN舍入
+            out.append(formatSlow(value));
+            return;
+        }
+        long scaled = (long) floor + (remainder > 0.5 ? 1 : 0);
+        //与DecimalFormat一致，舍入为0的负数输出-0
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out.append(minusSign);
+        }
+        long integer = scaled / 100;
+        int fraction = (int) (scaled % 100);
+
+        char[] digits = sDigits.get();
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer > 0);
+        out.append(digits, pos, digits.length - pos);
+
+        if (fraction != 0) {
+            out.append(decimalSeparator);
+            out.append((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                out.append((char) ('0' + fraction % 10));
+            }
+        }
+    }
+
+    private static String formatSlow(double value) {
+        //DecimalFormat不是线程安全的，每次新建
+        return new DecimalFormat("0.##").format(value);
+    }
+}
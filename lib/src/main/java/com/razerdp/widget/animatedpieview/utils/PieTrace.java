@@ -0,0 +1,101 @@
+package com.razerdp.widget.animatedpieview.utils;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.lang.reflect.Method;
+
+/**
+ * <h3>CN:</h3>systrace/Perfetto埋点，默认关闭。关闭时每个埋点只有一次volatile读，不产生任何分配，可以在运行时随时开关
+ * <p>
+ * <h3>EN:</h3>Trace sections and counters for systrace/Perfetto, disabled by default.
+ * While disabled every probe costs a single volatile read and allocates nothing.It can be switched at any time.
+ * <p>
+ * 用法：
+ * <pre>
+ * final boolean traced = PieTrace.begin(PieTrace.SECTION_DRAW);
+ * try {
+ *     ...
+ * } finally {
+ *     PieTrace.end(traced);
+ * }
+ * </pre>
+ */
+public final class PieTrace {
+
+    //section名称都是常量，避免埋点时拼接字符串
+    public static final String SECTION_PREPARE = "PieView#prepare";
+    public static final String SECTION_MEASURE_RADIUS = "PieView#measureRadius";
+    public static final String SECTION_DRAW = "PieView#draw";
+    public static final String SECTION_DRAW_ARCS = "PieView#drawArcs";
+    public static final String SECTION_DRAW_LABELS = "PieView#drawLabels";
+    public static final String SECTION_DRAW_TOUCH = "PieView#drawTouch";
+    public static final String SECTION_TOUCH = "PieView#touch";
+    public static final String SECTION_ANIM_TICK = "PieView#animTick";
+
+    public static final String COUNTER_SLICES = "PieView:slices";
+    public static final String COUNTER_VISIBLE_LABELS = "PieView:visibleLabels";
+
+    //Trace.setCounter是API 29才有的方法，compileSdk较低，只能反射调用
+    private static final int API_SET_COUNTER = 29;
+
+    private static volatile boolean sEnabled;
+    private static volatile Method sSetCounter;
+    private static volatile boolean sSetCounterResolved;
+
+    private PieTrace() {
+
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * <h3>CN:</h3>开关埋点，Android 4.3以下没有Trace，开启无效；计数器需要Android 10及以上
+     * <p>
+     * <h3>EN:</h3>Switch the probes on or off.It has no effect below Android 4.3, and counters require Android 10 or above.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * @return 是否真正开始了section，需要原样传给{@link #end(boolean)}，保证中途开关也不会出现begin/end不配对
+     */
+    public static boolean begin(String section) {
+        if (!sEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return false;
+        Trace.beginSection(section);
+        return true;
+    }
+
+    public static void end(boolean begun) {
+        if (begun && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    public static void counter(String name, long value) {
+        if (!sEnabled || Build.VERSION.SDK_INT < API_SET_COUNTER) return;
+        final Method setCounter = getSetCounter();
+        if (setCounter == null) return;
+        try {
+            setCounter.invoke(null, name, value);
+        } catch (Exception e) {
+            //调用失败后不再尝试
+            sSetCounter = null;
+        }
+    }
+
+    private static Method getSetCounter() {
+        if (!sSetCounterResolved) {
+            try {
+                sSetCounter = Trace.class.getMethod("setCounter", String.class, long.class);
+            } catch (Exception e) {
+                sSetCounter = null;
+            }
+            sSetCounterResolved = true;
+        }
+        return sSetCounter;
+    }
+}
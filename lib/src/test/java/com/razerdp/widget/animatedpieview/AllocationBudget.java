@@ -0,0 +1,111 @@
+package com.razerdp.widget.animatedpieview;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h3>CN:</h3>分配预算断言，通过HotSpot的线程分配计数统计一段代码在当前线程上分配的字节数。
+ * 不支持线程分配计数的JVM上相关测试会被跳过
+ * <p>
+ * <h3>EN:</h3>Allocation budget assertions.The bytes allocated by a block on the current thread are read from the
+ * per-thread allocation counter of HotSpot.Tests are skipped on JVMs which don't support it.
+ * <p>
+ * 本地单元测试的android.jar只返回默认值，Canvas、Paint的调用都是空操作，统计的是库自身代码的分配。
+ * 绘制路径通过{@code PieChartRenderAllocationTest}驱动
+ * <p>
+ * The android.jar of local unit tests only returns default values, so Canvas and Paint calls are no-ops and only
+ * allocations of the library itself are counted.Render paths are driven by {@code PieChartRenderAllocationTest}.
+ */
+public final class AllocationBudget {
+
+    //预热次数，保证JIT编译完成、缓冲区扩容完毕
+    private static final int WARM_UP = 2000;
+    //测量轮数，取最小值，排除去优化等偶发的一次性分配
+    private static final int ROUNDS = 3;
+
+    private static final com.sun.management.ThreadMXBean sThreadBean = resolveThreadBean();
+    //读取计数本身的分配量
+    private static long sOverhead = -1;
+
+    private AllocationBudget() {
+
+    }
+
+    private static com.sun.management.ThreadMXBean resolveThreadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                    return threadBean;
+                }
+            }
+        } catch (Throwable ignored) {
+            //非HotSpot或者没有management模块
+        }
+        return null;
+    }
+
+    /**
+     * 不支持线程分配计数时跳过当前测试
+     */
+    public static void assumeSupported() {
+        Assume.assumeTrue("per-thread allocation counter is not supported", sThreadBean != null);
+    }
+
+    /**
+     * 预热后执行iterations次，返回平均每次分配的字节数（多轮中的最小值）
+     */
+    public static long measure(Runnable block, int iterations) {
+        assumeSupported();
+        for (int i = 0; i < WARM_UP; i++) {
+            block.run();
+        }
+        final long overhead = getOverhead();
+        long result = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && result > 0; round++) {
+            final long before = allocatedBytes();
+            for (int i = 0; i < iterations; i++) {
+                block.run();
+            }
+            final long after = allocatedBytes();
+            result = Math.min(result, Math.max(0, after - before - overhead) / iterations);
+        }
+        return result;
+    }
+
+    public static void assertBudget(String phase, long bytesPerRun, Runnable block, int iterations) {
+        final long allocated = measure(block, iterations);
+        assertTrue(phase + " allocated " + allocated + " bytes per run, budget is " + bytesPerRun,
+                allocated <= bytesPerRun);
+    }
+
+    /**
+     * 稳态下不允许任何分配
+     */
+    public static void assertNoAllocation(String phase, Runnable block) {
+        assertBudget(phase, 0, block, 1000);
+    }
+
+    private static long allocatedBytes() {
+        return sThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long getOverhead() {
+        if (sOverhead < 0) {
+            long overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 100; i++) {
+                final long before = allocatedBytes();
+                final long after = allocatedBytes();
+                overhead = Math.min(overhead, after - before);
+            }
+            sOverhead = overhead;
+        }
+        return sOverhead;
+    }
+}
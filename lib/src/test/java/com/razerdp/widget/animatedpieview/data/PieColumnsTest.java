@@ -0,0 +1,51 @@
+package com.razerdp.widget.animatedpieview.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按列数据的构造参数校验和按行视图
+ */
+public class PieColumnsTest {
+
+    @Test
+    public void readColumns() {
+        final String desc = "b";
+        final Object key = new Object();
+        PieColumns columns = new PieColumns(new double[]{1, 2}, new int[]{3, 4}, new String[]{null, desc},
+                new Object[]{"a", key}, true);
+        assertEquals(2, columns.size());
+        assertEquals(2, columns.getValue(1), 0);
+        assertEquals(4, columns.getColor(1));
+        assertNull(columns.getDesc(0));
+        //描述原样返回，不会再转换
+        assertSame(desc, columns.getDesc(1));
+        assertSame(key, columns.getEntry(1).getKey());
+        assertTrue(columns.isAutoDesc());
+        //本地单元测试中android.util.Pair只返回默认值，这里只检查按行视图的大小
+        assertEquals(2, columns.asRows().size());
+    }
+
+    @Test
+    public void defaults() {
+        PieColumns columns = new PieColumns(new double[]{1}, new int[]{3}, null);
+        assertNull(columns.getDesc(0));
+        assertNull(columns.getKey(0));
+        assertFalse(columns.isAutoDesc());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedKeys() {
+        new PieColumns(new double[]{1, 2}, new int[]{3, 4}, null, new Object[]{"a"}, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedDescs() {
+        new PieColumns(new double[]{1, 2}, new int[]{3, 4}, new String[]{"a"});
+    }
+}
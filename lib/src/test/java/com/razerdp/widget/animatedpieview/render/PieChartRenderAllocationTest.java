@@ -0,0 +1,159 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.animation.Animation;
+
+import com.razerdp.widget.animatedpieview.AnimatedPieViewConfig;
+import com.razerdp.widget.animatedpieview.IPieView;
+import com.razerdp.widget.animatedpieview.manager.PieManager;
+
+import org.junit.Test;
+
+import static com.razerdp.widget.animatedpieview.AllocationBudget.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 点击模式每一帧都会执行renderTouch和drawText，稳态下不允许分配。
+ * 本地单元测试的android.jar只返回默认值（unitTests.returnDefaultValues），Canvas的绘制都是空操作，
+ * 这里统计的是渲染器自身在每一帧的分配（字符串拼接、装箱、迭代器等）
+ */
+public class PieChartRenderAllocationTest {
+
+    private static final int SIZE = 64;
+
+    private final Canvas canvas = new Canvas();
+
+    private PieChartRender prepare(AnimatedPieViewConfig config) {
+        double[] values = new double[SIZE];
+        int[] colors = new int[SIZE];
+        String[] descs = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = i + 1;
+            colors[i] = 0xFF000000 | i;
+            descs[i] = "slice" + i;
+        }
+        config.setColumns(values, colors, descs)
+                .pieRadius(200)
+                .drawText(true)
+                .animatePie(false)
+                .animOnTouch(false)
+                .publishDatas();
+        PieChartRender render = new PieChartRender(new TestPieView(config));
+        render.prepareLayout(config);
+        assertEquals("slice" + (SIZE - 1), render.getSliceDesc(SIZE - 1));
+        return render;
+    }
+
+    private void assertTouchFramesNoAllocation(String phase, final PieChartRender render, final float rotation) {
+        assertNoAllocation(phase, new Runnable() {
+            int index;
+
+            @Override
+            public void run() {
+                final int last = index;
+                index = (index + 7) % SIZE;
+                //模拟一次浮起和落下的几帧
+                for (int frame = 0; frame <= 4; frame++) {
+                    render.setTouchState(index, last, frame / 4f, rotation);
+                    render.onDraw(canvas);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void touchFrames_alphaReversed() {
+        PieChartRender render = prepare(new AnimatedPieViewConfig()
+                .focusAlphaType(AnimatedPieViewConfig.FOCUS_WITH_ALPHA_REV));
+        assertTouchFramesNoAllocation("touch frames(alpha reversed)", render, 0);
+    }
+
+    @Test
+    public void touchFrames_alpha() {
+        PieChartRender render = prepare(new AnimatedPieViewConfig()
+                .focusAlphaType(AnimatedPieViewConfig.FOCUS_WITH_ALPHA));
+        assertTouchFramesNoAllocation("touch frames(alpha)", render, 0);
+    }
+
+    @Test
+    public void touchFrames_rotated() {
+        //旋转后每一帧都重新计算文字位置，文字边界和图标来自缓存
+        PieChartRender render = prepare(new AnimatedPieViewConfig());
+        assertTouchFramesNoAllocation("touch frames(rotated)", render, 37);
+    }
+
+    @Test
+    public void touchFrames_labelAtlas() {
+        PieChartRender render = prepare(new AnimatedPieViewConfig().labelAtlas(true));
+        assertTouchFramesNoAllocation("touch frames(label atlas)", render, 90);
+    }
+
+    /**
+     * 同步执行所有任务的宿主，只提供渲染器需要的部分
+     */
+    private static final class TestPieView implements IPieView {
+        private final AnimatedPieViewConfig mConfig;
+        private final PieManager mPieManager;
+        private final Context mContext;
+
+        TestPieView(AnimatedPieViewConfig config) {
+            mConfig = config;
+            mPieManager = new PieManager(this);
+            mContext = new ContextWrapper(null);
+        }
+
+        @Override
+        public PieManager getManager() {
+            return mPieManager;
+        }
+
+        @Override
+        public Context getViewContext() {
+            return mContext;
+        }
+
+        @Override
+        public AnimatedPieViewConfig getConfig() {
+            return mConfig;
+        }
+
+        @Override
+        public View getPieView() {
+            return null;
+        }
+
+        @Override
+        public void onCallInvalidate() {
+
+        }
+
+        @Override
+        public boolean postRenderAction(Runnable action) {
+            action.run();
+            return true;
+        }
+
+        @Override
+        public boolean removeRenderAction(Runnable action) {
+            return true;
+        }
+
+        @Override
+        public void startRenderAnimation(Animation animation) {
+
+        }
+
+        @Override
+        public void resumeRenderAnimation(Animation animation) {
+
+        }
+
+        @Override
+        public void clearRenderAnimation() {
+
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import com.razerdp.widget.animatedpieview.data.SimplePieInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 聚合金字塔的角度前缀和、角度查找和各级代表扇形
+ */
+public class PieLodPyramidTest {
+
+    private static List<PieInfoWrapper> wrappers(double... values) {
+        List<PieInfoWrapper> result = new ArrayList<>(values.length);
+        for (double value : values) {
+            result.add(new PieInfoWrapper(new SimplePieInfo(value, 0xFF000000)));
+        }
+        return result;
+    }
+
+    @Test
+    public void build_levels() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        assertTrue(pyramid.isDirty());
+        pyramid.build(wrappers(new double[17]), 0);
+        assertFalse(pyramid.isDirty());
+        //17 -> 5 -> 2 -> 1
+        assertEquals(4, pyramid.getLevelCount());
+        assertEquals(16, pyramid.getBucketSize(2));
+
+        pyramid.build(wrappers(1), 0);
+        assertEquals(1, pyramid.getLevelCount());
+        pyramid.setDirty();
+        assertTrue(pyramid.isDirty());
+    }
+
+    @Test
+    public void angles_fromPrefixSum() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        pyramid.build(wrappers(1, -1, 2), -90);
+        assertEquals(-90f, pyramid.angleAt(0), 1e-4f);
+        //负数按绝对值计算
+        assertEquals(0f, pyramid.angleAt(1), 1e-4f);
+        assertEquals(90f, pyramid.angleAt(2), 1e-4f);
+        assertEquals(270f, pyramid.angleAt(3), 1e-4f);
+        assertEquals(3, pyramid.valueOf(1, 3), 0);
+    }
+
+    @Test
+    public void angles_zeroSum() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        pyramid.build(wrappers(0, 0), 30);
+        assertEquals(30f, pyramid.angleAt(2), 0);
+    }
+
+    @Test
+    public void indexAtAngle_binarySearch() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        pyramid.build(wrappers(1, 1, 2), 0);
+        assertEquals(0, pyramid.indexAtAngle(0));
+        assertEquals(0, pyramid.indexAtAngle(89));
+        assertEquals(1, pyramid.indexAtAngle(90));
+        assertEquals(2, pyramid.indexAtAngle(200));
+        assertEquals(2, pyramid.indexAtAngle(360));
+
+        pyramid.build(wrappers(), 0);
+        assertEquals(-1, pyramid.indexAtAngle(10));
+    }
+
+    @Test
+    public void dominants_keepLargestSlice() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        pyramid.build(wrappers(1, 5, 2, 3, 4, 1, 9, 0, 2), 0);
+        assertEquals(7, pyramid.dominantOf(0, 7));
+        assertEquals(1, pyramid.dominantOf(1, 0));
+        assertEquals(6, pyramid.dominantOf(1, 1));
+        assertEquals(8, pyramid.dominantOf(1, 2));
+        assertEquals(6, pyramid.dominantOf(2, 0));
+    }
+
+    @Test
+    public void chooseLevel_withinBudget() {
+        PieLodPyramid pyramid = new PieLodPyramid();
+        pyramid.build(wrappers(new double[1000]), 0);
+        assertEquals(0, pyramid.chooseLevel(100, 100));
+        assertEquals(1, pyramid.chooseLevel(400, 100));
+        assertEquals(2, pyramid.chooseLevel(1000, 100));
+        //不会超过最粗的一级
+        assertEquals(pyramid.getLevelCount() - 1, pyramid.chooseLevel(1000, 0));
+    }
+}
@@ -0,0 +1,80 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.razerdp.widget.animatedpieview.AllocationBudget.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 多选模型在点击和浮起/落下动画的每一帧都会被调用，稳态下不允许分配
+ */
+public class PieSelectionAllocationTest {
+
+    private static final int SIZE = 10000;
+
+    private PieSelection selection;
+    private float sink;
+
+    @Before
+    public void setUp() {
+        selection = new PieSelection();
+        selection.reset(SIZE);
+    }
+
+    @Test
+    public void reset_reusesBuffers() {
+        assertNoAllocation("reset", new Runnable() {
+            int size;
+
+            @Override
+            public void run() {
+                //不超过已有容量时复用数组
+                selection.reset(SIZE - (size++ & 63));
+            }
+        });
+        selection.reset(SIZE);
+        assertEquals(SIZE, selection.getSize());
+    }
+
+    @Test
+    public void touch_floatUpAndDown() {
+        assertNoAllocation("touch float up/down", new Runnable() {
+            int index;
+
+            @Override
+            public void run() {
+                index = (index + 97) % SIZE;
+                selection.toggle(index);
+                selection.setRange(index / 2, index, true);
+                //模拟一次完整的浮起和落下
+                while (selection.step(0.25f, 0.25f)) {
+                    for (int i = selection.nextFloating(0); i >= 0; i = selection.nextFloating(i + 1)) {
+                        sink += selection.getFloatTime(i);
+                    }
+                }
+                selection.clear();
+                selection.finish();
+            }
+        });
+        assertFalse(selection.isAnimating());
+    }
+
+    @Test
+    public void staticRedraw_queries() {
+        selection.setRange(100, 5000, true);
+        selection.finish();
+        assertNoAllocation("static redraw", new Runnable() {
+            @Override
+            public void run() {
+                //静止帧只查询状态
+                for (int i = selection.nextFloating(0); i >= 0; i = selection.nextFloating(i + 1)) {
+                    if (selection.isFloating(i)) sink += selection.getFloatTime(i);
+                }
+                sink += selection.getSelectedCount() + selection.getVersion();
+            }
+        });
+        assertEquals(4900, selection.getSelectedCount());
+    }
+}
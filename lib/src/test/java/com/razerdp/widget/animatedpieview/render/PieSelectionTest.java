@@ -0,0 +1,128 @@
+package com.razerdp.widget.animatedpieview.render;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多选位图的区间操作，重点覆盖跨越64位字边界的情况
+ */
+public class PieSelectionTest {
+
+    private PieSelection selection;
+
+    @Before
+    public void setUp() {
+        selection = new PieSelection();
+        selection.reset(200);
+    }
+
+    @Test
+    public void setRange_withinOneWord() {
+        selection.setRange(3, 10, true);
+        assertEquals(7, selection.getSelectedCount());
+        assertFalse(selection.isSelected(2));
+        assertTrue(selection.isSelected(3));
+        assertTrue(selection.isSelected(9));
+        assertFalse(selection.isSelected(10));
+    }
+
+    @Test
+    public void setRange_acrossWords() {
+        selection.setRange(60, 130, true);
+        assertEquals(70, selection.getSelectedCount());
+        assertFalse(selection.isSelected(59));
+        assertTrue(selection.isSelected(63));
+        assertTrue(selection.isSelected(64));
+        assertTrue(selection.isSelected(128));
+        assertTrue(selection.isSelected(129));
+        assertFalse(selection.isSelected(130));
+
+        selection.setRange(64, 128, false);
+        assertEquals(6, selection.getSelectedCount());
+        assertTrue(selection.isSelected(63));
+        assertFalse(selection.isSelected(64));
+        assertFalse(selection.isSelected(127));
+        assertTrue(selection.isSelected(128));
+    }
+
+    @Test
+    public void setRange_wordAlignedEnd() {
+        //to为64的倍数时最后一个字的掩码必须是全1
+        selection.setRange(0, 64, true);
+        assertEquals(64, selection.getSelectedCount());
+        assertTrue(selection.isSelected(63));
+        assertFalse(selection.isSelected(64));
+    }
+
+    @Test
+    public void setRange_clampsAndIgnoresEmpty() {
+        selection.setRange(-5, 3, true);
+        selection.setRange(195, 500, true);
+        selection.setRange(50, 50, true);
+        selection.setRange(80, 70, true);
+        assertEquals(8, selection.getSelectedCount());
+        assertFalse(selection.isSelected(-1));
+        assertFalse(selection.isSelected(200));
+    }
+
+    @Test
+    public void selectAllClearAndToggle() {
+        selection.selectAll();
+        assertEquals(200, selection.getSelectedCount());
+        assertFalse(selection.toggle(100));
+        assertEquals(199, selection.getSelectedCount());
+        selection.clear();
+        assertFalse(selection.hasSelection());
+        assertTrue(selection.toggle(199));
+        assertTrue(selection.hasSelection());
+    }
+
+    @Test
+    public void nextFloating_includesSlicesFallingDown() {
+        selection.setRange(10, 12, true);
+        selection.setSelected(150, true);
+        selection.finish();
+        selection.setSelected(11, false);
+        //11已取消选中但还没有落下
+        assertEquals(10, selection.nextFloating(0));
+        assertEquals(11, selection.nextFloating(11));
+        assertEquals(150, selection.nextFloating(12));
+        assertEquals(-1, selection.nextFloating(151));
+
+        selection.finish();
+        assertEquals(150, selection.nextFloating(11));
+        assertFalse(selection.isFloating(11));
+    }
+
+    @Test
+    public void step_advancesProgressToTarget() {
+        selection.setSelected(5, true);
+        assertTrue(selection.isAnimating());
+        assertTrue(selection.step(0.5f, 0.5f));
+        assertEquals(0.75f, selection.getFloatTime(5), 1e-6f);
+        assertFalse(selection.step(0.5f, 0.5f));
+        assertEquals(1f, selection.getFloatTime(5), 0);
+
+        selection.setSelected(5, false);
+        assertTrue(selection.step(0.5f, 0.5f));
+        assertEquals(0.25f, selection.getFloatTime(5), 1e-6f);
+        assertFalse(selection.step(0.5f, 0.5f));
+        assertEquals(0f, selection.getFloatTime(5), 0);
+        assertFalse(selection.isAnimating());
+    }
+
+    @Test
+    public void reset_clearsPreviousState() {
+        selection.setRange(0, 200, true);
+        final int version = selection.getVersion();
+        selection.reset(70);
+        assertEquals(70, selection.getSize());
+        assertEquals(0, selection.getSelectedCount());
+        assertFalse(selection.isAnimating());
+        assertTrue(selection.getVersion() != version);
+    }
+}
@@ -0,0 +1,68 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.razerdp.widget.animatedpieview.AllocationBudget.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 快照在prepare和每一帧的文字绘制中按下标读取，除了描述文字外都不允许分配
+ */
+public class PieSnapshotAllocationTest {
+
+    private static final int SIZE = 1000;
+
+    private static PieSnapshot snapshot;
+    private final float[] label = new float[PieSnapshotFormat.LABEL_FLOAT_COUNT];
+    private float sink;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        PieSnapshotWriter writer = new PieSnapshotWriter(400, 400, -90).pieRadius(150);
+        float from = -90;
+        for (int i = 0; i < SIZE; i++) {
+            writer.addSlice(1, 0xFF000000 | i, "slice" + i);
+            writer.angles(i, from, 360f / SIZE);
+            writer.textBounds(i, 40, 12);
+            writer.label(i, i, i, i, i, i, i, i, i);
+            from += 360f / SIZE;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(outputStream);
+        snapshot = PieSnapshot.wrap(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void prepare_readSlices() {
+        assertNoAllocation("snapshot prepare", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < SIZE; i++) {
+                    sink += snapshot.getFromAngle(i) + snapshot.getSweepAngle(i)
+                            + (float) snapshot.getValue(i) + snapshot.getColor(i) + snapshot.getTextWidth(i);
+                }
+            }
+        });
+        assertEquals(SIZE, snapshot.getSliceCount());
+    }
+
+    @Test
+    public void staticRedraw_restoreLabels() {
+        assertNoAllocation("snapshot label restore", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < SIZE; i++) {
+                    if (snapshot.getLabel(i, label)) sink += label[7];
+                }
+            }
+        });
+        assertTrue(snapshot.getLabel(SIZE - 1, label));
+        assertEquals(SIZE - 1, label[0], 0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 快照写入后读取的一致性，以及损坏的header的校验
+ */
+public class PieSnapshotTest {
+
+    private static byte[] write(PieSnapshotWriter writer) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] sample() throws IOException {
+        PieSnapshotWriter writer = new PieSnapshotWriter(320, 240, -90)
+                .pieRadius(100)
+                .maxDescTextLength(42)
+                .configHash(0x1234567890L);
+        writer.addSlice(1, 0xFFFF0000, "一");
+        writer.addSlice(-3, 0xFF00FF00, null);
+        writer.addSlice(4, 0xFF0000FF, "three");
+        writer.textBounds(0, 30, 12);
+        writer.label(2, 1, 2, 3, 4, 5, 6, 7, 8);
+        return write(writer);
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            PieSnapshot.wrap(ByteBuffer.wrap(bytes));
+            fail("snapshot should be rejected");
+        } catch (IOException expected) {
+            //ok
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        PieSnapshot snapshot = PieSnapshot.wrap(ByteBuffer.wrap(sample()));
+        assertEquals(PieSnapshotFormat.VERSION, snapshot.getVersion());
+        assertEquals(320, snapshot.getWidth());
+        assertEquals(240, snapshot.getHeight());
+        assertEquals(-90f, snapshot.getStartAngle(), 0);
+        assertEquals(100f, snapshot.getPieRadius(), 0);
+        assertEquals(8, snapshot.getSum(), 0);
+        assertEquals(42, snapshot.getMaxDescTextLength());
+        assertEquals(0x1234567890L, snapshot.getConfigHash());
+        assertEquals(3, snapshot.getSliceCount());
+
+        assertEquals(-3, snapshot.getValue(1), 0);
+        assertEquals(0xFF0000FF, snapshot.getColor(2));
+        assertEquals("一", snapshot.getDesc(0));
+        assertNull(snapshot.getDesc(1));
+        assertEquals("three", snapshot.getDesc(2));
+        assertEquals(30, snapshot.getTextWidth(0));
+        assertEquals(12, snapshot.getTextHeight(0));
+
+        //没有指定角度时按数值依次排列
+        assertEquals(-90f, snapshot.getFromAngle(0), 1e-4f);
+        assertEquals(45f, snapshot.getSweepAngle(0), 1e-4f);
+        assertEquals(-45f, snapshot.getFromAngle(1), 1e-4f);
+        assertEquals(135f, snapshot.getSweepAngle(1), 1e-4f);
+        assertEquals(90f, snapshot.getFromAngle(2), 1e-4f);
+
+        float[] label = new float[PieSnapshotFormat.LABEL_FLOAT_COUNT];
+        assertFalse(snapshot.getLabel(0, label));
+        assertTrue(snapshot.getLabel(2, label));
+        assertEquals(1f, label[0], 0);
+        assertEquals(8f, label[7], 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRangeIndex() throws IOException {
+        PieSnapshot.wrap(ByteBuffer.wrap(sample())).getValue(3);
+    }
+
+    @Test
+    public void rejectsBadMagicAndVersion() throws IOException {
+        assertRejected(new byte[PieSnapshotFormat.HEADER_SIZE - 1]);
+
+        byte[] bytes = sample();
+        bytes[0] = 'X';
+        assertRejected(bytes);
+
+        bytes = sample();
+        ByteBuffer.wrap(bytes).putShort(PieSnapshotFormat.OFFSET_VERSION, (short) (PieSnapshotFormat.VERSION + 1));
+        assertRejected(bytes);
+
+        ByteBuffer.wrap(bytes).putShort(PieSnapshotFormat.OFFSET_VERSION, (short) 0);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsCorruptedCounts() throws IOException {
+        byte[] bytes = sample();
+        ByteBuffer.wrap(bytes).putShort(PieSnapshotFormat.OFFSET_RECORD_SIZE, (short) (PieSnapshotFormat.RECORD_SIZE - 1));
+        assertRejected(bytes);
+
+        bytes = sample();
+        ByteBuffer.wrap(bytes).putInt(PieSnapshotFormat.OFFSET_SLICE_COUNT, -1);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsTruncated() throws IOException {
+        final byte[] bytes = sample();
+        //字符串表之前截断
+        assertRejected(Arrays.copyOf(bytes, PieSnapshotFormat.HEADER_SIZE + 2 * PieSnapshotFormat.RECORD_SIZE));
+    }
+
+    @Test
+    public void rejectsDescOutOfRange() throws IOException {
+        final int lastRecord = PieSnapshotFormat.HEADER_SIZE + 2 * PieSnapshotFormat.RECORD_SIZE;
+        byte[] bytes = sample();
+        //字符串表被截断
+        assertRejected(Arrays.copyOf(bytes, bytes.length - 1));
+
+        bytes = sample();
+        ByteBuffer.wrap(bytes).putInt(lastRecord + PieSnapshotFormat.RECORD_DESC_OFFSET, Integer.MAX_VALUE);
+        assertRejected(bytes);
+
+        bytes = sample();
+        ByteBuffer.wrap(bytes).putInt(lastRecord + PieSnapshotFormat.RECORD_DESC_OFFSET, -1);
+        assertRejected(bytes);
+
+        bytes = sample();
+        ByteBuffer.wrap(bytes).putInt(lastRecord + PieSnapshotFormat.RECORD_DESC_LENGTH, Integer.MAX_VALUE);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsOverflowingRecordTable() throws IOException {
+        //sliceCount * recordSize超出int范围，按int计算会回绕成很小的数
+        final byte[] bytes = sample();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putShort(PieSnapshotFormat.OFFSET_RECORD_SIZE, (short) 0x8000);
+        buffer.putInt(PieSnapshotFormat.OFFSET_SLICE_COUNT, 0x20000);
+        assertRejected(bytes);
+    }
+}
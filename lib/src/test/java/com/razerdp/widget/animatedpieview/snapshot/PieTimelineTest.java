@@ -0,0 +1,101 @@
+package com.razerdp.widget.animatedpieview.snapshot;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 时间轴在相邻两步之间的线性插值，以及按key对应时缺少的分类
+ */
+public class PieTimelineTest {
+
+    private static PieSnapshot snapshot(double... values) throws IOException {
+        PieSnapshotWriter writer = new PieSnapshotWriter(100, 100, 0);
+        for (int i = 0; i < values.length; i++) {
+            writer.addSlice(values[i], 0xFF000000 | i, "v" + values[i]);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(outputStream);
+        return PieSnapshot.wrap(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void positional_interpolation() throws IOException {
+        PieTimeline timeline = new PieTimeline.Builder()
+                .addStep(snapshot(1, 1))
+                .addStep(snapshot(1, 3))
+                .addStep(snapshot(3, 1))
+                .build();
+        assertEquals(3, timeline.getStepCount());
+        assertEquals(2, timeline.getCategoryCount());
+
+        assertEquals(180f, timeline.getSweepAngle(0, 0), 1e-4f);
+        assertEquals(90f, timeline.getSweepAngle(0, 1), 1e-4f);
+        //两步中间
+        assertEquals(135f, timeline.getSweepAngle(0, 0.5f), 1e-4f);
+        assertEquals(2, timeline.getValue(1, 0.5f), 1e-9);
+        assertEquals(135f, timeline.getFromAngle(1, 0.5f), 1e-4f);
+        //最后一步用[stepCount - 2, stepCount - 1]插值
+        assertEquals(270f, timeline.getSweepAngle(0, 2), 1e-4f);
+        assertEquals(180f, timeline.getSweepAngle(0, 1.5f), 1e-4f);
+    }
+
+    @Test
+    public void position_isClamped() throws IOException {
+        PieTimeline timeline = new PieTimeline.Builder()
+                .addStep(snapshot(1, 1))
+                .addStep(snapshot(1, 3))
+                .build();
+        assertEquals(0, timeline.clampPosition(-1), 0);
+        assertEquals(0, timeline.clampPosition(Float.NaN), 0);
+        assertEquals(1, timeline.clampPosition(5), 0);
+        assertEquals(90f, timeline.getSweepAngle(0, 5), 1e-4f);
+        assertEquals(180f, timeline.getSweepAngle(0, -5), 1e-4f);
+        assertEquals(1, timeline.getNearestStep(0.6f));
+    }
+
+    @Test
+    public void singleStep() throws IOException {
+        PieTimeline timeline = new PieTimeline.Builder().addStep(snapshot(1, 3)).build();
+        assertEquals(270f, timeline.getSweepAngle(1, 0), 1e-4f);
+        assertEquals(270f, timeline.getSweepAngle(1, 0.5f), 1e-4f);
+    }
+
+    @Test
+    public void keyed_missingCategoryCollapses() throws IOException {
+        PieTimeline timeline = new PieTimeline.Builder()
+                .addStep(snapshot(1, 1), new Object[]{"a", "b"})
+                .addStep(snapshot(1, 1), new Object[]{"c", "a"})
+                .build();
+        assertEquals(3, timeline.getCategoryCount());
+        assertEquals("c", timeline.getKey(2));
+        //b在第二步缺少，角度收缩为0
+        assertEquals(90f, timeline.getSweepAngle(1, 0.5f), 1e-4f);
+        assertEquals(0, timeline.getValue(2, 0), 0);
+        assertEquals(1, timeline.getValue(2, 1), 0);
+        assertNull(timeline.getDesc(1, 1));
+        assertEquals("v1.0", timeline.getDesc(0, 1));
+        //分类按key的顺序重新排列
+        assertEquals(180f, timeline.getFromAngle(2, 1), 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void positional_requiresSameSliceCount() throws IOException {
+        new PieTimeline.Builder().addStep(snapshot(1, 1)).addStep(snapshot(1)).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyed_rejectsDuplicateKeys() throws IOException {
+        new PieTimeline.Builder().addStep(snapshot(1, 1), new Object[]{"a", "a"}).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMixedSteps() throws IOException {
+        new PieTimeline.Builder().addStep(snapshot(1, 1)).addStep(snapshot(1, 1), new Object[]{"a", "b"});
+    }
+}
@@ -0,0 +1,46 @@
+package com.razerdp.widget.animatedpieview.utils;
+
+import org.junit.Test;
+
+import static com.razerdp.widget.animatedpieview.AllocationBudget.assertBudget;
+import static com.razerdp.widget.animatedpieview.AllocationBudget.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 描述文字在prepare时为每个扇形格式化一次，不能退回到String.format
+ */
+public class PercentFormatterAllocationTest {
+
+    private final PercentFormatter formatter = PercentFormatter.compile("%1$s%%");
+    private final StringBuilder builder = new StringBuilder(64);
+
+    @Test
+    public void formatIntoBuilder_noAllocation() {
+        assertNoAllocation("format into builder", new Runnable() {
+            double percent;
+
+            @Override
+            public void run() {
+                percent = (percent + 1.37) % 100;
+                builder.setLength(0);
+                formatter.format(percent, builder);
+            }
+        });
+        builder.setLength(0);
+        assertEquals("12.5%", formatter.format(12.5, builder).toString());
+    }
+
+    @Test
+    public void formatToString_onlyResultAllocated() {
+        //只允许分配结果字符串本身（对象头 + 数组）
+        assertBudget("format to string", 96, new Runnable() {
+            double percent;
+
+            @Override
+            public void run() {
+                percent = (percent + 1.37) % 100;
+                formatter.format(percent);
+            }
+        }, 1000);
+    }
+}
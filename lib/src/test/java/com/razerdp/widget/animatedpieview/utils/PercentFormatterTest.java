@@ -0,0 +1,58 @@
+package com.razerdp.widget.animatedpieview.utils;
+
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 格式化结果必须与原来的String.format + DecimalFormat("0.##")一致
+ */
+public class PercentFormatterTest {
+
+    private final PercentFormatter formatter = PercentFormatter.compile("%s");
+    private final DecimalFormat decimalFormat = new DecimalFormat("0.##");
+
+    @Test
+    public void halfEven_onExactTies() {
+        assertEquals("0.12", formatter.format(0.125));
+        assertEquals("0.38", formatter.format(0.375));
+        assertEquals("2.67", formatter.format(2.675));
+        assertEquals("12.5", formatter.format(12.5));
+        assertEquals("0", formatter.format(0.0));
+    }
+
+    @Test
+    public void negative_keepsSign() {
+        assertEquals(decimalFormat.format(-0.001), formatter.format(-0.001));
+        assertEquals(decimalFormat.format(-0.0), formatter.format(-0.0));
+        assertEquals(decimalFormat.format(-12.345), formatter.format(-12.345));
+    }
+
+    @Test
+    public void sweep_matchesDecimalFormat() {
+        //千分位的步长覆盖所有两位小数的中点
+        for (int i = 0; i <= 200000; i++) {
+            assertSame(i / 1000.0);
+            assertSame(i * 0.001);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            assertSame(random.nextDouble() * 100);
+            assertSame(random.nextDouble() * Math.pow(10, random.nextInt(16)));
+            assertSame(-random.nextDouble() * 100);
+        }
+    }
+
+    @Test
+    public void placeholders() {
+        assertEquals("12.5%", PercentFormatter.compile("%1$s%%").format(12.5));
+        assertEquals("a12.5b", PercentFormatter.compile("a%sb").format(12.5));
+    }
+
+    private void assertSame(double value) {
+        assertEquals("value = " + value, decimalFormat.format(value), formatter.format(value));
+    }
+}